@@ -4,11 +4,28 @@ import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.event.lifecycle.FMLClientSetupEvent;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraft.client.Minecraft;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.fml.loading.FMLEnvironment;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.RegisterClientCommandsEvent;
+import net.neoforged.neoforge.client.event.RegisterClientReloadListenersEvent;
 import net.neoforged.neoforge.common.NeoForge;
-import net.neoforged.neoforge.event.tick.PlayerTickEvent;
 import net.shinysquare.cslib.core.CutsceneManager;
 import net.shinysquare.cslib.core.GamePauseHandler;
+import net.shinysquare.cslib.network.ClientAssetCache;
+import net.shinysquare.cslib.network.ClientLiveStreams;
+import net.shinysquare.cslib.network.ClientPlaybackHandler;
+import net.shinysquare.cslib.network.CutsceneNetwork;
+import net.shinysquare.cslib.network.ServerAssetDistributor;
+import net.shinysquare.cslib.network.ServerPlaybackTracker;
+import net.shinysquare.cslib.render.AssetPrewarmer;
+import net.shinysquare.cslib.render.CrowdRenderer;
+import net.shinysquare.cslib.render.CutsceneAtlasManager;
+import net.shinysquare.cslib.render.CutsceneExporter;
 import net.shinysquare.cslib.render.CutsceneRenderer;
+import net.shinysquare.cslib.render.ExportCommand;
+import net.shinysquare.cslib.render.GeckoRendererCache;
 import net.shinysquare.cslib.trigger.TriggerHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +59,12 @@ public class CutScenesLib {
     /** The trigger handler manages automatic cutscene triggers */
     private final TriggerHandler triggerHandler;
     
+    /** The playback tracker sends server-started cutscenes to clients */
+    private final ServerPlaybackTracker playbackTracker;
+    
+    /** The asset distributor sends server-defined cutscenes to clients */
+    private final ServerAssetDistributor assetDistributor;
+    
     /** The recording manager handles player and world recording */
     private final net.shinysquare.cslib.core.RecordingManager recordingManager;
     
@@ -62,17 +85,24 @@ public class CutScenesLib {
         this.cutsceneManager = new CutsceneManager();
         this.pauseHandler = new GamePauseHandler();
         this.triggerHandler = new TriggerHandler();
+        this.playbackTracker = new ServerPlaybackTracker();
+        this.assetDistributor = new ServerAssetDistributor();
         this.recordingManager = new net.shinysquare.cslib.core.RecordingManager();
         
         // Register lifecycle events
         modEventBus.addListener(this::commonSetup);
         modEventBus.addListener(this::clientSetup);
+        modEventBus.addListener(CutsceneNetwork::register);
+        if (FMLEnvironment.dist == Dist.CLIENT) {
+            modEventBus.addListener(this::registerClientReloadListeners);
+        }
         
         // Register to the game event bus for gameplay events
         NeoForge.EVENT_BUS.register(pauseHandler);
         NeoForge.EVENT_BUS.register(triggerHandler);
+        NeoForge.EVENT_BUS.register(playbackTracker);
+        NeoForge.EVENT_BUS.register(assetDistributor);
         NeoForge.EVENT_BUS.register(recordingManager);
-        NeoForge.EVENT_BUS.addListener(this::onPlayerTick);
         NeoForge.EVENT_BUS.addListener(this::onRegisterCommands);
         
         LOGGER.info("CutScenesLib initialized successfully!");
@@ -96,16 +126,44 @@ public class CutScenesLib {
         // Initialize renderer on client
         this.renderer = new CutsceneRenderer();
         NeoForge.EVENT_BUS.register(renderer);
+        NeoForge.EVENT_BUS.register(CutsceneExporter.getInstance());
+        NeoForge.EVENT_BUS.addListener(this::onRegisterClientCommands);
+        NeoForge.EVENT_BUS.addListener(this::onClientTick);
+        NeoForge.EVENT_BUS.addListener(ClientPlaybackHandler::onLoggingOut);
+        NeoForge.EVENT_BUS.addListener(ClientAssetCache::onLoggingOut);
+        NeoForge.EVENT_BUS.addListener(ClientLiveStreams::onLoggingOut);
+        
+        // Cutscenes are client assets, so load them from the client resources
+        cutsceneManager.setResourceManager(() -> Minecraft.getInstance().getResourceManager());
+        cutsceneManager.setMainThread(Minecraft.getInstance());
+        
+        // Viewers load their assets and skins before playing
+        cutsceneManager.setAssetLoader(viewer -> AssetPrewarmer.start(viewer)::isReady);
+        cutsceneManager.setSkinLoader(playerId -> renderer.getSkinMapper().prefetch(playerId));
     }
     
     /**
-     * Tick the cutscene manager every player tick
+     * Register client resource reload listeners
+     * Caches that hold on to models or textures are cleared on reload
+     */
+    private void registerClientReloadListeners(final RegisterClientReloadListenersEvent event) {
+        event.registerReloadListener(GeckoRendererCache.getInstance());
+        event.registerReloadListener(CutsceneAtlasManager.getInstance());
+        event.registerReloadListener(CrowdRenderer.getInstance());
+    }
+    
+    /**
+     * Tick the cutscene manager once per client tick
      * This updates all active cutscenes
+     * 
+     * Player ticks fire once for every player in the level (and not at all
+     * while entity ticking is cancelled), so the client tick is used instead.
      */
-    private void onPlayerTick(PlayerTickEvent.Post event) {
-        // Only tick on client side
-        if (event.getEntity().level().isClientSide) {
-            cutsceneManager.tick();
+    private void onClientTick(ClientTickEvent.Post event) {
+        Minecraft minecraft = Minecraft.getInstance();
+        if (minecraft.level != null) {
+            cutsceneManager.tick(minecraft.isPaused(), minecraft.level.tickRateManager().tickrate());
+            ClientPlaybackHandler.tick();
         }
     }
     
@@ -145,6 +203,24 @@ public class CutScenesLib {
         return triggerHandler;
     }
     
+    /**
+     * Get the server playback tracker
+     * 
+     * @return The playback tracker
+     */
+    public ServerPlaybackTracker getPlaybackTracker() {
+        return playbackTracker;
+    }
+    
+    /**
+     * Get the server asset distributor
+     * 
+     * @return The asset distributor
+     */
+    public ServerAssetDistributor getAssetDistributor() {
+        return assetDistributor;
+    }
+    
     /**
      * Get the recording manager
      * 
@@ -165,5 +241,10 @@ public class CutScenesLib {
 
     private void onRegisterCommands(net.neoforged.neoforge.event.RegisterCommandsEvent event) {
         net.shinysquare.cslib.core.RecordingCommand.register(event.getDispatcher());
+        net.shinysquare.cslib.core.PlaybackCommand.register(event.getDispatcher());
+    }
+    
+    private void onRegisterClientCommands(RegisterClientCommandsEvent event) {
+        ExportCommand.register(event.getDispatcher());
     }
 }
@@ -1,9 +1,17 @@
 package net.shinysquare.cslib.api;
 
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.Vec3;
 import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutsceneTimeline;
 import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.network.LivePuppetStream;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main API class for CutScenesLib
@@ -14,13 +22,16 @@ import net.shinysquare.cslib.cutscene.Cutscene;
  * Example usage:
  * <pre>
  * // Load a cutscene from your mod's assets
- * Cutscene cutscene = CutsceneAPI.loadCutscene(new ResourceLocation("mymod", "intro"));
+ * Cutscene cutscene = CutsceneAPI.loadCutscene(ResourceLocation.fromNamespaceAndPath("mymod", "intro"));
  * 
  * // Play it for a player
  * CutsceneAPI.playCutscene(player, cutscene);
  * 
  * // Or register a trigger
  * CutsceneAPI.registerItemTrigger(Items.DIAMOND, cutscene);
+ * 
+ * // Or load it in the background and play it once loaded
+ * CutsceneAPI.playWhenReady(player, ResourceLocation.fromNamespaceAndPath("mymod", "intro"));
  * </pre>
  * 
  * @author ShinySquare
@@ -33,7 +44,7 @@ public class CutsceneAPI {
      * The cutscene should be located at:
      * assets/[namespace]/cutscenes/[path]/cutscene.json
      * 
-     * For example: new ResourceLocation("mymod", "intro")
+     * For example: ResourceLocation.fromNamespaceAndPath("mymod", "intro")
      * looks for: assets/mymod/cutscenes/intro/cutscene.json
      * 
      * @param location The resource location of the cutscene
@@ -45,6 +56,23 @@ public class CutsceneAPI {
             .loadCutscene(location);
     }
     
+    /**
+     * Load a cutscene from a resource location without blocking
+     * 
+     * The cutscene is read and parsed on a background thread, then registered
+     * on the main thread, where the future completes. Loading the same
+     * cutscene twice at once only loads it once. On a dedicated server it is
+     * read from the server's data packs and completes on the server thread.
+     * 
+     * @param location The resource location of the cutscene
+     * @return Completes with the loaded cutscene, or exceptionally if loading failed
+     */
+    public static CompletableFuture<Cutscene> loadCutsceneAsync(ResourceLocation location) {
+        return CutScenesLib.getInstance()
+            .getCutsceneManager()
+            .loadCutsceneAsync(location);
+    }
+    
     /**
      * Register a cutscene so it can be referenced by ID
      * 
@@ -89,6 +117,40 @@ public class CutsceneAPI {
             .playCutscene(player, cutscene);
     }
     
+    /**
+     * Play one shared cutscene for a group of players
+     * 
+     * Use this for server-wide events: the cutscene is evaluated once per tick
+     * and shown to every viewer, so it costs the same for 1 viewer as for 200.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @return The shared timeline, which more players can join later
+     */
+    public static CutsceneTimeline playCutsceneForGroup(Collection<? extends Player> viewers, Cutscene cutscene) {
+        return CutScenesLib.getInstance()
+            .getCutsceneManager()
+            .playCutsceneForGroup(viewers, cutscene);
+    }
+    
+    /**
+     * Play a cutscene for a group of players with some actors driven live
+     * 
+     * Set actor transforms on the returned stream from the server thread;
+     * they are sent to every viewer once per tick.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @param origin The scene origin in world coordinates
+     * @param actorIds The actors to drive live
+     * @return The live stream, or null if the cutscene couldn't be started
+     */
+    public static LivePuppetStream startLiveStream(Collection<ServerPlayer> viewers, Cutscene cutscene, Vec3 origin, List<String> actorIds) {
+        return CutScenesLib.getInstance()
+            .getPlaybackTracker()
+            .startLiveStream(viewers, cutscene, origin, actorIds);
+    }
+    
     /**
      * Play a registered cutscene by ID
      * 
@@ -105,6 +167,23 @@ public class CutsceneAPI {
         return false;
     }
     
+    /**
+     * Play a cutscene by ID, loading it in the background if needed
+     * 
+     * Safe to call from triggers: the tick isn't held up while the cutscene
+     * loads, and playback starts on the main thread once it has.
+     * 
+     * @param player The player to show the cutscene to
+     * @param id The ID of the cutscene to play
+     * @return Completes with the cutscene once it started, or exceptionally
+     *         if it couldn't be loaded
+     */
+    public static CompletableFuture<Cutscene> playWhenReady(Player player, ResourceLocation id) {
+        return CutScenesLib.getInstance()
+            .getCutsceneManager()
+            .playWhenReady(player, id);
+    }
+    
     /**
      * Register a trigger that plays a cutscene when an item is picked up
      * 
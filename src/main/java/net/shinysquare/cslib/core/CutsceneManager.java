@@ -1,17 +1,33 @@
 package net.shinysquare.cslib.core;
 
-import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.packs.resources.ResourceManager;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.Item;
+import net.neoforged.neoforge.server.ServerLifecycleHooks;
 import net.shinysquare.cslib.CutScenesLib;
 import net.shinysquare.cslib.cutscene.Cutscene;
 import net.shinysquare.cslib.loader.CutsceneLoader;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Manages all cutscenes in the game
@@ -23,34 +39,145 @@ import java.util.UUID;
  * - Managing triggers (item pickups, achievements, etc.)
  * - Tracking which players are currently watching cutscenes
  * 
+ * Playback requested for a {@link ServerPlayer} is handed to the server's
+ * playback tracker, which tells the client to play it; everything else in
+ * this class runs on the client that renders the cutscene.
+ * 
  * @author ShinySquare
  */
 public class CutsceneManager {
     
-    /** Map of registered cutscenes by ID */
+    /** Threads loading cutscenes for {@link #loadCutsceneAsync} */
+    private static final int LOAD_THREADS = 2;
+    
+    /**
+     * Map of registered cutscenes by ID
+     * 
+     * Concurrent because on an integrated server async loads register
+     * cutscenes on the client thread while the server thread looks them up.
+     */
     private final Map<ResourceLocation, Cutscene> cutscenes;
     
-    /** Map of currently playing cutscenes by player UUID */
+    /**
+     * Map of currently playing cutscenes by player UUID
+     * 
+     * Concurrent because the tick thread adds and removes playbacks while the
+     * render thread looks them up.
+     */
     private final Map<UUID, CutscenePlayer> activePlayers;
     
+    /** Running timelines, each ticked once no matter how many viewers it has */
+    private final Set<CutsceneTimeline> activeTimelines;
+    
     /** Map of item triggers */
     private final Map<Item, Cutscene> itemTriggers;
     
     /** Map of advancement triggers */
     private final Map<ResourceLocation, Cutscene> advancementTriggers;
     
+    /** Resource manager cutscenes are loaded from (client resources once set up) */
+    private Supplier<ResourceManager> resourceManager;
+    
+    /** Thread async loads complete on (the client thread once set up) */
+    private Executor mainThread;
+    
+    /** Starts loading a viewer's assets and tells when they are ready (set on the client) */
+    private Function<CutscenePlayer, BooleanSupplier> assetLoader;
+    
+    /** Starts loading a player's skin (set on the client) */
+    private Consumer<UUID> skinLoader;
+    
+    /** Threads async loads read and parse on */
+    private final ExecutorService loadExecutor;
+    
+    /**
+     * Async loads in progress by ID
+     * 
+     * Concurrent requests for the same cutscene share one load.
+     */
+    private final Map<ResourceLocation, CompletableFuture<Cutscene>> pendingLoads;
+    
     /**
      * Create a new cutscene manager
      */
     public CutsceneManager() {
-        this.cutscenes = new HashMap<>();
-        this.activePlayers = new HashMap<>();
+        this.cutscenes = new ConcurrentHashMap<>();
+        this.activePlayers = new ConcurrentHashMap<>();
+        this.activeTimelines = ConcurrentHashMap.newKeySet();
         this.itemTriggers = new HashMap<>();
         this.advancementTriggers = new HashMap<>();
+        this.pendingLoads = new ConcurrentHashMap<>();
+        
+        AtomicInteger threadId = new AtomicInteger();
+        this.loadExecutor = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "CutsceneLoader-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         
         CutScenesLib.LOGGER.info("CutsceneManager initialized");
     }
     
+    /**
+     * Set where {@link #loadCutscene(ResourceLocation)} loads cutscenes from
+     * 
+     * @param resourceManager Supplies the resource manager to load from
+     */
+    public void setResourceManager(Supplier<ResourceManager> resourceManager) {
+        this.resourceManager = resourceManager;
+    }
+    
+    /**
+     * Set the thread {@link #loadCutsceneAsync} completes on
+     * 
+     * Without one (a dedicated server), async loads read the server's
+     * resources and complete on the server thread.
+     * 
+     * @param mainThread Runs tasks on the main thread
+     */
+    public void setMainThread(Executor mainThread) {
+        this.mainThread = mainThread;
+    }
+    
+    /**
+     * Set how viewers load their cutscene's assets before playing
+     * 
+     * Without one (a dedicated server), viewers start straight away.
+     * 
+     * @param assetLoader Starts loading a viewer's assets and returns
+     *                    whether they are ready, polled every tick
+     */
+    public void setAssetLoader(Function<CutscenePlayer, BooleanSupplier> assetLoader) {
+        this.assetLoader = assetLoader;
+    }
+    
+    /**
+     * Set how skins shown on actors are loaded ahead of playback
+     * 
+     * @param skinLoader Starts loading a player's skin
+     */
+    public void setSkinLoader(Consumer<UUID> skinLoader) {
+        this.skinLoader = skinLoader;
+    }
+    
+    /**
+     * Start loading a viewer's assets
+     * 
+     * @return Whether they are ready
+     */
+    BooleanSupplier loadAssets(CutscenePlayer viewer) {
+        return assetLoader != null ? assetLoader.apply(viewer) : () -> true;
+    }
+    
+    /**
+     * Start loading a player's skin, if skins are shown here
+     */
+    void loadSkin(UUID playerId) {
+        if (skinLoader != null) {
+            skinLoader.accept(playerId);
+        }
+    }
+    
     /**
      * Load a cutscene from a resource location
      * 
@@ -58,10 +185,22 @@ public class CutsceneManager {
      * @return The loaded cutscene, or null if loading failed
      */
     public Cutscene loadCutscene(ResourceLocation location) {
+        if (resourceManager == null) {
+            CutScenesLib.LOGGER.error("Cannot load cutscene {}: no resource manager available", location);
+            return null;
+        }
+        return loadCutscene(resourceManager.get(), location);
+    }
+    
+    /**
+     * Load a cutscene from a resource location using a specific resource manager
+     * 
+     * @param resourceManager The resource manager to load from
+     * @param location The resource location of the cutscene
+     * @return The loaded cutscene, or null if loading failed
+     */
+    public Cutscene loadCutscene(ResourceManager resourceManager, ResourceLocation location) {
         try {
-            Minecraft minecraft = Minecraft.getInstance();
-            ResourceManager resourceManager = minecraft.getResourceManager();
-            
             Cutscene cutscene = CutsceneLoader.loadCutscene(resourceManager, location);
             
             if (cutscene != null) {
@@ -76,6 +215,88 @@ public class CutsceneManager {
         }
     }
     
+    /**
+     * Load a cutscene in the background
+     * 
+     * The file is read and parsed on the loader threads. The cutscene's
+     * animations are then baked, the cutscene registered and the future
+     * completed on the main thread, so callbacks can play it straight away.
+     * Requests for a cutscene that is already loading share that load.
+     * 
+     * On a dedicated server there is no client, so the cutscene is read from
+     * the server's resources (data packs) and completes on the server thread,
+     * unbaked (clients bake their own copy when they prewarm it).
+     * 
+     * @param location The resource location of the cutscene
+     * @return Completes with the loaded cutscene, or exceptionally if loading failed
+     */
+    public CompletableFuture<Cutscene> loadCutsceneAsync(ResourceLocation location) {
+        Supplier<ResourceManager> resources = resourceManager;
+        Executor completeOn = mainThread;
+        boolean onClient = resources != null && completeOn != null;
+        if (!onClient) {
+            MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+            if (server == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Cannot load cutscene " + location + ": no resource manager available"));
+            }
+            resources = server::getResourceManager;
+            completeOn = server;
+        }
+        
+        CompletableFuture<Cutscene> future = new CompletableFuture<>();
+        CompletableFuture<Cutscene> pending = pendingLoads.putIfAbsent(location, future);
+        if (pending != null) {
+            return pending;
+        }
+        
+        ResourceManager loadFrom = resources.get();
+        // Baking reads GeckoLib's shared bones, so it waits for the client thread
+        CompletableFuture.supplyAsync(() -> CutsceneLoader.loadCutscene(loadFrom, location, false), loadExecutor)
+                .whenCompleteAsync((cutscene, error) -> {
+                    pendingLoads.remove(location, future);
+                    
+                    if (error != null) {
+                        CutScenesLib.LOGGER.error("Failed to load cutscene: {}", location, error);
+                        future.completeExceptionally(error);
+                    } else if (cutscene == null) {
+                        future.completeExceptionally(new IllegalStateException("Failed to load cutscene: " + location));
+                    } else {
+                        if (onClient) {
+                            CutsceneLoader.bakeAnimations(cutscene);
+                        }
+                        registerCutscene(location, cutscene);
+                        future.complete(cutscene);
+                    }
+                }, completeOn);
+        return future;
+    }
+    
+    /**
+     * Play a cutscene for a player once it is loaded
+     * 
+     * Registered cutscenes play straight away; others are loaded in the
+     * background first (see {@link #loadCutsceneAsync}).
+     * 
+     * @param player The player to show the cutscene to
+     * @param id The ID of the cutscene
+     * @return Completes with the cutscene once it started playing, or
+     *         exceptionally if it couldn't be loaded
+     */
+    public CompletableFuture<Cutscene> playWhenReady(Player player, ResourceLocation id) {
+        Cutscene registered = getCutscene(id);
+        if (registered != null) {
+            playCutscene(player, registered);
+            return CompletableFuture.completedFuture(registered);
+        }
+        
+        // Server players are started from the server thread
+        Executor playThread = player instanceof ServerPlayer serverPlayer ? serverPlayer.getServer() : mainThread;
+        return loadCutsceneAsync(id).thenApplyAsync(cutscene -> {
+            playCutscene(player, cutscene);
+            return cutscene;
+        }, playThread != null ? playThread : Runnable::run);
+    }
+    
     /**
      * Register a cutscene by ID
      * 
@@ -87,6 +308,22 @@ public class CutsceneManager {
         CutScenesLib.LOGGER.info("Registered cutscene: {}", id);
     }
     
+    /**
+     * Unregister a cutscene by ID
+     * 
+     * Playbacks already running keep their cutscene.
+     * 
+     * @param id The ID of the cutscene
+     * @return The cutscene that was registered, or null if there was none
+     */
+    public Cutscene unregisterCutscene(ResourceLocation id) {
+        Cutscene removed = cutscenes.remove(id);
+        if (removed != null) {
+            CutScenesLib.LOGGER.info("Unregistered cutscene: {}", id);
+        }
+        return removed;
+    }
+    
     /**
      * Get a registered cutscene by ID
      * 
@@ -109,21 +346,78 @@ public class CutsceneManager {
             return;
         }
         
-        UUID playerId = player.getUUID();
+        // The server only decides when; the client does the playing
+        if (player instanceof ServerPlayer serverPlayer) {
+            CutScenesLib.getInstance().getPlaybackTracker().start(serverPlayer, cutscene);
+            return;
+        }
+        
+        joinTimeline(player, new CutsceneTimeline(cutscene));
+    }
+    
+    /**
+     * Play one shared cutscene timeline for a group of players
+     * 
+     * The timeline is evaluated once per tick and shown to every viewer, so
+     * the cost doesn't grow with the number of players watching.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @return The shared timeline (more viewers can join it later), or null
+     *         if the cutscene is null or the viewers are server players, in
+     *         which case one batched start is sent to every viewer instead
+     */
+    public CutsceneTimeline playCutsceneForGroup(Collection<? extends Player> viewers, Cutscene cutscene) {
+        if (cutscene == null) {
+            CutScenesLib.LOGGER.warn("Cannot play cutscene: cutscene is null");
+            return null;
+        }
         
-        // Stop any currently playing cutscene for this player
-        if (activePlayers.containsKey(playerId)) {
-            stopCutscene(player);
+        List<ServerPlayer> serverViewers = new ArrayList<>();
+        for (Player viewer : viewers) {
+            if (viewer instanceof ServerPlayer serverPlayer) {
+                serverViewers.add(serverPlayer);
+            }
         }
+        if (!serverViewers.isEmpty()) {
+            CutScenesLib.getInstance().getPlaybackTracker().startGroup(serverViewers, cutscene);
+            if (serverViewers.size() == viewers.size()) {
+                return null;
+            }
+        }
+        
+        CutsceneTimeline timeline = new CutsceneTimeline(cutscene);
+        for (Player viewer : viewers) {
+            if (!(viewer instanceof ServerPlayer)) {
+                joinTimeline(viewer, timeline);
+            }
+        }
+        
+        CutScenesLib.LOGGER.info("Started cutscene {} for {} viewers", cutscene.getId(), viewers.size());
+        return timeline;
+    }
+    
+    /**
+     * Make a player watch a timeline from its current position
+     * 
+     * @param player The player to show the cutscene to
+     * @param timeline The timeline to watch
+     */
+    public void joinTimeline(Player player, CutsceneTimeline timeline) {
+        UUID playerId = player.getUUID();
         
-        // Create a new cutscene player
-        CutscenePlayer cutscenePlayer = new CutscenePlayer(player, cutscene);
-        activePlayers.put(playerId, cutscenePlayer);
+        // Create a new viewer, replacing any currently playing one
+        CutscenePlayer cutscenePlayer = new CutscenePlayer(player, timeline);
+        CutscenePlayer previous = activePlayers.put(playerId, cutscenePlayer);
+        if (previous != null) {
+            previous.stop();
+        }
         
         // Start playing
+        activeTimelines.add(timeline);
         cutscenePlayer.start();
         
-        CutScenesLib.LOGGER.info("Started cutscene {} for player {}", cutscene.getId(), player.getName().getString());
+        CutScenesLib.LOGGER.info("Started cutscene {} for player {}", timeline.getCutscene().getId(), player.getName().getString());
     }
     
     /**
@@ -132,12 +426,15 @@ public class CutsceneManager {
      * @param player The player to stop the cutscene for
      */
     public void stopCutscene(Player player) {
-        UUID playerId = player.getUUID();
-        CutscenePlayer cutscenePlayer = activePlayers.get(playerId);
+        if (player instanceof ServerPlayer serverPlayer) {
+            CutScenesLib.getInstance().getPlaybackTracker().stop(serverPlayer);
+            return;
+        }
+        
+        CutscenePlayer cutscenePlayer = activePlayers.remove(player.getUUID());
         
         if (cutscenePlayer != null) {
             cutscenePlayer.stop();
-            activePlayers.remove(playerId);
             CutScenesLib.LOGGER.info("Stopped cutscene for player {}", player.getName().getString());
         }
     }
@@ -149,6 +446,9 @@ public class CutsceneManager {
      * @return true if watching a cutscene, false otherwise
      */
     public boolean isPlayingCutscene(Player player) {
+        if (player instanceof ServerPlayer serverPlayer) {
+            return CutScenesLib.getInstance().getPlaybackTracker().isPlaying(serverPlayer);
+        }
         return activePlayers.containsKey(player.getUUID());
     }
     
@@ -163,15 +463,41 @@ public class CutsceneManager {
     }
     
     /**
-     * Update all active cutscene players
-     * Called every tick
+     * Get the latest render snapshot for a player's cutscene
+     * 
+     * Safe to call from the render thread.
+     * 
+     * @param player The player
+     * @return The snapshot, or null if not watching a cutscene
+     */
+    public PlaybackSnapshot getPlaybackSnapshot(Player player) {
+        CutscenePlayer cutscenePlayer = activePlayers.get(player.getUUID());
+        return cutscenePlayer != null && cutscenePlayer.isPlaying() ? cutscenePlayer.getSnapshot() : null;
+    }
+    
+    /**
+     * Update all active timelines and their viewers
+     * Called once every client tick
+     * 
+     * @param gamePaused Whether the game is paused this tick
+     * @param tickRate The level's current tick rate
      */
-    public void tick() {
-        // Update all active players
+    public void tick(boolean gamePaused, float tickRate) {
+        // Evaluate each timeline once
+        activeTimelines.forEach(timeline -> timeline.tick(gamePaused, tickRate));
+        
+        // Let viewers notice finished timelines
         activePlayers.values().forEach(CutscenePlayer::tick);
         
-        // Remove finished players
+        // Remove finished players and timelines nobody is watching
         activePlayers.entrySet().removeIf(entry -> entry.getValue().isFinished());
+        activeTimelines.removeIf(timeline -> {
+            if (timeline.isFinished() || timeline.getViewerCount() == 0) {
+                timeline.close();
+                return true;
+            }
+            return false;
+        });
     }
     
     /**
@@ -2,20 +2,28 @@ package net.shinysquare.cslib.core;
 
 import net.minecraft.world.entity.player.Player;
 import net.shinysquare.cslib.CutScenesLib;
-import net.shinysquare.cslib.cutscene.CameraPath;
 import net.shinysquare.cslib.cutscene.Cutscene;
-import net.shinysquare.cslib.cutscene.CutsceneFrame;
 import net.shinysquare.cslib.event.CutsceneEndEvent;
 import net.shinysquare.cslib.event.CutsceneStartEvent;
 import net.neoforged.neoforge.common.NeoForge;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
 /**
  * Plays a cutscene for a specific player
  * 
- * This class manages the playback of a single cutscene, including:
- * - Tracking playback time
- * - Updating camera position
- * - Rendering frames
+ * A cutscene player is one viewer of a {@link CutsceneTimeline}. The timeline
+ * does the time keeping and scene evaluation; this class only holds what is
+ * different per viewer:
+ * - The timeline time at which the viewer joined
+ * - Which player's skin is shown on which actor
+ * 
+ * It also handles the per-viewer side effects:
+ * - Loading the cutscene's assets before playback begins
  * - Pausing/resuming the game
  * - Firing events
  * 
@@ -26,48 +34,97 @@ public class CutscenePlayer {
     /** The player watching this cutscene */
     private final Player player;
     
-    /** The cutscene being played */
-    private final Cutscene cutscene;
+    /** The timeline being watched */
+    private final CutsceneTimeline timeline;
+    
+    /** Timeline time when this viewer joined, in seconds */
+    private float joinOffset;
     
-    /** Current playback time in seconds */
-    private float currentTime;
+    /** Actor ID to skin owner, copied on write (empty = viewer's own skin) */
+    private volatile Map<String, UUID> skinBindings;
     
     /** Whether the cutscene is currently playing */
-    private boolean playing;
+    private volatile boolean playing;
     
     /** Whether the cutscene has finished */
-    private boolean finished;
+    private volatile boolean finished;
     
-    /** The current camera state */
-    private CameraPath.CameraState cameraState;
+    /** Whether the cutscene's assets are loading before playback begins */
+    private volatile boolean warming;
     
-    /** The current frame */
-    private CutsceneFrame currentFrame;
+    /** When loading began (System.nanoTime) */
+    private volatile long warmingSince;
+    
+    /** Whether the cutscene's assets are loaded, polled while warming */
+    private BooleanSupplier assetsReady;
     
     /**
-     * Create a new cutscene player
+     * Create a new cutscene player with its own timeline
      * 
      * @param player The player to show the cutscene to
      * @param cutscene The cutscene to play
      */
     public CutscenePlayer(Player player, Cutscene cutscene) {
+        this(player, new CutsceneTimeline(cutscene));
+    }
+    
+    /**
+     * Create a new viewer of a shared timeline
+     * 
+     * @param player The player to show the cutscene to
+     * @param timeline The timeline to watch
+     */
+    public CutscenePlayer(Player player, CutsceneTimeline timeline) {
         this.player = player;
-        this.cutscene = cutscene;
-        this.currentTime = 0.0f;
+        this.timeline = timeline;
+        this.skinBindings = Map.of();
         this.playing = false;
         this.finished = false;
     }
     
     /**
-     * Start playing the cutscene
+     * Start watching the timeline
+     * 
+     * The cutscene's assets are loaded first (see {@link CutsceneManager#setAssetLoader}).
+     * Playback, and the {@link CutsceneStartEvent}, begin on the first tick
+     * they are all ready, or once the cutscene's prewarm timeout passes.
+     * Starts the timeline too if this is its first viewer.
      */
     public void start() {
-        if (playing) {
+        if (playing || warming) {
             return;
         }
         
+        // Counted as a viewer straight away, so the timeline is kept while loading
+        timeline.addViewer();
+        warming = true;
+        warmingSince = System.nanoTime();
+        
+        // Load the skins shown on actors before the first frame
+        CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+        manager.loadSkin(player.getUUID());
+        skinBindings.values().forEach(manager::loadSkin);
+        assetsReady = manager.loadAssets(this);
+        
+        // Everything may be loaded already (a cutscene played before)
+        if (assetsReady.getAsBoolean()) {
+            begin();
+        }
+    }
+    
+    /**
+     * Begin playback once the assets are ready
+     */
+    private void begin() {
+        warming = false;
+        assetsReady = null;
+        
+        // A networked timeline starts where the server is, not at 0 (see CutsceneTimeline.seek)
+        timeline.start();
+        joinOffset = timeline.getCurrentTime();
         playing = true;
-        currentTime = 0.0f;
+        
+        Cutscene cutscene = timeline.getCutscene();
         
         // Pause the game if configured
         if (cutscene.shouldPauseGame()) {
@@ -81,15 +138,27 @@ public class CutscenePlayer {
     }
     
     /**
-     * Stop playing the cutscene
+     * Stop watching the timeline
      */
     public void stop() {
+        // Stopped while loading: it never started, so there is nothing to end
+        if (warming) {
+            warming = false;
+            assetsReady = null;
+            finished = true;
+            timeline.removeViewer();
+            return;
+        }
+        
         if (!playing) {
             return;
         }
         
         playing = false;
         finished = true;
+        timeline.removeViewer();
+        
+        Cutscene cutscene = timeline.getCutscene();
         
         // Resume the game
         CutScenesLib.getInstance().getPauseHandler().setPaused(false);
@@ -101,29 +170,67 @@ public class CutscenePlayer {
     }
     
     /**
-     * Update the cutscene (called every tick)
+     * Update the viewer (called every client tick, after the timeline ticked)
      */
     public void tick() {
-        if (!playing) {
+        if (warming) {
+            float waited = getWarmingTime();
+            if (assetsReady.getAsBoolean()) {
+                CutScenesLib.LOGGER.debug("Assets of cutscene {} ready after {}s", getCutscene().getName(), waited);
+                begin();
+            } else if (waited >= getCutscene().getPrewarmTimeout()) {
+                CutScenesLib.LOGGER.warn("Starting cutscene {} before its assets finished loading", getCutscene().getName());
+                begin();
+            }
             return;
         }
         
-        // Update time (20 ticks per second)
-        currentTime += 0.05f;
-        
-        // Check if finished
-        if (currentTime >= cutscene.getDuration()) {
+        if (playing && timeline.isFinished()) {
             stop();
-            return;
         }
-        
-        // Update camera
-        if (cutscene.getCameraPath() != null) {
-            cameraState = cutscene.getCameraPath().getStateAtTime(currentTime);
-        }
-        
-        // Update frame
-        currentFrame = cutscene.getFrameAtTime(currentTime);
+    }
+    
+    /**
+     * Show another player's skin on an actor for this viewer
+     * 
+     * @param actorId The actor (scene model or frame entity) ID
+     * @param skinOwner The player whose skin to show
+     */
+    public void bindSkin(String actorId, UUID skinOwner) {
+        Map<String, UUID> bindings = new HashMap<>(skinBindings);
+        bindings.put(actorId, skinOwner);
+        skinBindings = Map.copyOf(bindings);
+        CutScenesLib.getInstance().getCutsceneManager().loadSkin(skinOwner);
+    }
+    
+    /**
+     * Get whose skin to show on an actor
+     * 
+     * @param actorId The actor ID
+     * @return The bound player, or the viewer if the actor isn't bound
+     */
+    public UUID getSkinOwner(String actorId) {
+        return skinBindings.getOrDefault(actorId, player.getUUID());
+    }
+    
+    /**
+     * Let a live stream drive some actors instead of their keyframes
+     * 
+     * Applies to the whole timeline, so every viewer of it sees the same
+     * live actors.
+     * 
+     * @param actorIds The actors the stream drives, in stream order
+     * @return The live track the stream writes into
+     */
+    public LiveTrack startLiveTrack(List<String> actorIds) {
+        return timeline.startLiveTrack(actorIds);
+    }
+    
+    /**
+     * Get the live track, or null if not in live-track mode
+     */
+    public LiveTrack getLiveTrack() {
+        return timeline.getLiveTrack();
     }
     
     /**
@@ -133,18 +240,32 @@ public class CutscenePlayer {
         return player;
     }
     
+    /**
+     * Get the timeline being watched
+     */
+    public CutsceneTimeline getTimeline() {
+        return timeline;
+    }
+    
     /**
      * Get the cutscene being played
      */
     public Cutscene getCutscene() {
-        return cutscene;
+        return timeline.getCutscene();
     }
     
     /**
-     * Get the current playback time
+     * Get the current playback time at the last tick boundary
      */
     public float getCurrentTime() {
-        return currentTime;
+        return timeline.getCurrentTime();
+    }
+    
+    /**
+     * Get the timeline time when this viewer joined
+     */
+    public float getJoinOffset() {
+        return joinOffset;
     }
     
     /**
@@ -155,33 +276,43 @@ public class CutscenePlayer {
     }
     
     /**
-     * Check if the cutscene has finished
+     * Check if the cutscene's assets are still loading
      */
-    public boolean isFinished() {
-        return finished;
+    public boolean isWarming() {
+        return warming;
     }
     
     /**
-     * Get the current camera state
+     * Get how long the cutscene's assets have been loading, in seconds
      */
-    public CameraPath.CameraState getCameraState() {
-        return cameraState;
+    public float getWarmingTime() {
+        return (System.nanoTime() - warmingSince) / 1_000_000_000.0f;
     }
     
     /**
-     * Get the current frame
+     * Check if the cutscene has finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    /**
+     * Get the latest published snapshot of the timeline
+     * 
+     * This is the only timeline state the render thread should read.
      */
-    public CutsceneFrame getCurrentFrame() {
-        return currentFrame;
+    public PlaybackSnapshot getSnapshot() {
+        return timeline.getSnapshot();
     }
     
     /**
      * Get the playback progress (0.0 to 1.0)
      */
     public float getProgress() {
+        Cutscene cutscene = getCutscene();
         if (cutscene.getDuration() <= 0) {
             return 1.0f;
         }
-        return Math.min(currentTime / cutscene.getDuration(), 1.0f);
+        return Math.min(getCurrentTime() / cutscene.getDuration(), 1.0f);
     }
 }
@@ -0,0 +1,285 @@
+package net.shinysquare.cslib.core;
+
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+import java.util.List;
+
+/**
+ * A single running instance of a cutscene's timeline
+ *
+ * The timeline owns everything that is the same for every viewer: the
+ * clock, the scene evaluator and the evaluated state buffer. It is ticked
+ * and evaluated once per tick no matter how many {@link CutscenePlayer}s
+ * are watching it, so a server-wide event costs the same for one viewer as
+ * for hundreds.
+ *
+ * @author ShinySquare
+ */
+public class CutsceneTimeline {
+
+    /** The cutscene being played */
+    private final Cutscene cutscene;
+
+    /** Clock driving playback time */
+    private final PlaybackClock clock;
+
+    /** Evaluates the cutscene into scene states */
+    private final SceneEvaluator evaluator;
+
+    /** Evaluated states shared with the render thread */
+    private final SceneStateBuffer sceneBuffer;
+
+    /** Seed for anything random in the cutscene, shared by all clients */
+    private final long seed;
+
+    /** Live transforms applied over the keyframes, or null */
+    private LiveTrack liveTrack;
+
+    /** Number of viewers currently watching */
+    private int viewerCount;
+
+    /** Whether the timeline has started */
+    private boolean started;
+
+    /** Time to start from, set by a seek before the start, or -1 */
+    private double pendingStart = -1.0;
+
+    /** When the pending start time was set (System.nanoTime) */
+    private long pendingSince;
+
+    /** Whether the timeline reached the end of the cutscene */
+    private volatile boolean finished;
+
+    /** Latest immutable state for the render thread */
+    private volatile PlaybackSnapshot snapshot;
+
+    /**
+     * Create a new timeline
+     *
+     * @param cutscene The cutscene to play
+     */
+    public CutsceneTimeline(Cutscene cutscene) {
+        this(cutscene, 0L);
+    }
+
+    /**
+     * Create a new timeline with a seed
+     *
+     * @param cutscene The cutscene to play
+     * @param seed Seed for anything random in the cutscene
+     */
+    public CutsceneTimeline(Cutscene cutscene, long seed) {
+        this.cutscene = cutscene;
+        this.seed = seed;
+        this.clock = new PlaybackClock();
+        this.evaluator = new SceneEvaluator(cutscene);
+        this.sceneBuffer = new SceneStateBuffer(evaluator.getActorCount());
+        publishSnapshot();
+    }
+
+    /**
+     * Start the timeline
+     *
+     * Starts from the beginning, or from the time of a {@link #seek} made
+     * before the start plus the real time since that seek.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+
+        started = true;
+        clock.reset();
+        if (pendingStart >= 0.0) {
+            clock.seek(pendingStart + (System.nanoTime() - pendingSince) / 1_000_000_000.0);
+            pendingStart = -1.0;
+        }
+
+        // Pick up anything compiled since the timeline was created (a camera config loaded while warming up)
+        if (!evaluator.update(cutscene.getCompiled())) {
+            CutScenesLib.LOGGER.warn("Cutscene {} changed its actors after its timeline was created, playing the earlier version", cutscene.getName());
+        }
+
+        // Seed both buffers with the opening state
+        SceneState initial = sceneBuffer.createState();
+        evaluator.evaluate(clock.getTickTime(), initial);
+        sceneBuffer.reset(initial);
+        publishSnapshot();
+
+        CutScenesLib.LOGGER.debug("Started timeline for cutscene: {}", cutscene.getName());
+    }
+
+    /**
+     * Jump to a point in the timeline
+     *
+     * Used to line up with the server when a networked playback starts
+     * late or drifts. Before the timeline starts (its viewers are still
+     * loading assets) the time is kept, and the clock is treated as running
+     * from it until {@link #start()}, so a late or slow viewer starts where
+     * the server is rather than at the beginning.
+     *
+     * @param time The time to jump to, in seconds
+     */
+    public void seek(double time) {
+        if (finished) {
+            return;
+        }
+        if (!started) {
+            pendingStart = Math.max(time, 0.0);
+            pendingSince = System.nanoTime();
+            return;
+        }
+
+        clock.seek(time);
+
+        // Re-seed both buffers so the renderer doesn't interpolate across the jump
+        SceneState state = sceneBuffer.createState();
+        evaluator.evaluate(clock.getTickTime(), state);
+        if (liveTrack != null) {
+            liveTrack.apply(state);
+        }
+        sceneBuffer.reset(state);
+        publishSnapshot();
+    }
+
+    /**
+     * Advance and evaluate the timeline (called once per client tick)
+     *
+     * @param gamePaused Whether the game is paused, in which case ticks don't
+     *                   advance and the clock falls back to real time
+     * @param tickRate The level's current tick rate
+     */
+    public void tick(boolean gamePaused, float tickRate) {
+        if (!started || finished) {
+            return;
+        }
+
+        // Advance the clock at the level's configured tick rate
+        if (gamePaused) {
+            clock.setSource(PlaybackClock.Source.REALTIME);
+        } else {
+            clock.advanceTick(tickRate);
+        }
+
+        // Check if finished
+        if (clock.getTickTime() >= evaluator.getProgram().getDuration()) {
+            finished = true;
+            publishSnapshot();
+            return;
+        }
+
+        // Evaluate camera and actors into the back buffer and swap it in
+        SceneState state = sceneBuffer.beginWrite();
+        evaluator.evaluate(clock.getTickTime(), state);
+        if (liveTrack != null) {
+            liveTrack.apply(state);
+        }
+        sceneBuffer.publish();
+
+        publishSnapshot();
+    }
+
+    /**
+     * Publish the current state for the render thread
+     */
+    private void publishSnapshot() {
+        snapshot = new PlaybackSnapshot(
+                cutscene,
+                finished,
+                clock.getTickTime(),
+                clock.getTickRate(),
+                clock.getSource() == PlaybackClock.Source.REALTIME,
+                System.nanoTime(),
+                evaluator,
+                sceneBuffer
+        );
+    }
+
+    /**
+     * Switch to live-track mode for some actors
+     *
+     * @param actorIds The actors the live stream drives, in stream order
+     * @return The live track to write transforms into
+     */
+    public LiveTrack startLiveTrack(List<String> actorIds) {
+        liveTrack = new LiveTrack(evaluator, actorIds);
+        return liveTrack;
+    }
+
+    /**
+     * Release what the timeline holds open (the tracks of streamed actors)
+     *
+     * Called once nobody watches the timeline any more. They are reopened
+     * if it is evaluated again.
+     */
+    public void close() {
+        evaluator.close();
+    }
+
+    /**
+     * Get the live track, or null if not in live-track mode
+     */
+    public LiveTrack getLiveTrack() {
+        return liveTrack;
+    }
+
+    void addViewer() {
+        viewerCount++;
+    }
+
+    void removeViewer() {
+        viewerCount--;
+    }
+
+    /**
+     * Get the number of viewers currently watching
+     */
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    /**
+     * Get the seed for anything random in the cutscene
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the cutscene being played
+     */
+    public Cutscene getCutscene() {
+        return cutscene;
+    }
+
+    /**
+     * Get the current playback time at the last tick boundary
+     */
+    public float getCurrentTime() {
+        return (float) clock.getTickTime();
+    }
+
+    /**
+     * Get the playback clock
+     */
+    public PlaybackClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Check if the timeline reached the end of the cutscene
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the latest published snapshot
+     *
+     * This is the only state the render thread should read.
+     */
+    public PlaybackSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
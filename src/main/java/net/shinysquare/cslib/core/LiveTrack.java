@@ -0,0 +1,95 @@
+package net.shinysquare.cslib.core;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * Live transforms for actors of a running timeline
+ *
+ * In live-track mode some actors are driven by a stream instead of the
+ * cutscene's keyframes. The stream writes the latest transform of each of
+ * its actors here and the timeline applies them on top of every evaluated
+ * state. Stream actors are matched to actor slots by ID once, when the
+ * track is created.
+ *
+ * Tick thread only.
+ *
+ * @author ShinySquare
+ */
+public class LiveTrack {
+
+    /** Actor slot of each stream actor, or -1 if the scene has no such actor */
+    private final int[] slots;
+
+    /** Latest transform of each stream actor, in the {@link SceneState} layout */
+    private final float[] transforms;
+
+    /** Whether each stream actor has received a transform yet */
+    private final boolean[] active;
+
+    // Scratch vector for rotation conversion
+    private final Vector3f euler = new Vector3f();
+
+    LiveTrack(SceneEvaluator evaluator, List<String> actorIds) {
+        this.slots = new int[actorIds.size()];
+        this.transforms = new float[actorIds.size() * SceneState.TRANSFORM_STRIDE];
+        this.active = new boolean[actorIds.size()];
+
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = -1;
+            for (int slot = 0; slot < evaluator.getActorCount(); slot++) {
+                if (evaluator.getActorId(slot).equals(actorIds.get(i))) {
+                    slots[i] = slot;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of stream actors
+     */
+    public int getActorCount() {
+        return slots.length;
+    }
+
+    /**
+     * Set the transform of a stream actor
+     *
+     * @param actor Index of the actor in the stream
+     * @param x Position relative to the scene origin
+     * @param y Position relative to the scene origin
+     * @param z Position relative to the scene origin
+     * @param rotation Rotation of the actor
+     * @param scale Uniform scale of the actor
+     */
+    public void set(int actor, float x, float y, float z, Quaternionf rotation, float scale) {
+        // The renderer applies X, then Y, then Z rotations in degrees
+        rotation.getEulerAnglesXYZ(euler);
+
+        int offset = actor * SceneState.TRANSFORM_STRIDE;
+        transforms[offset] = x;
+        transforms[offset + 1] = y;
+        transforms[offset + 2] = z;
+        transforms[offset + 3] = (float) Math.toDegrees(euler.x);
+        transforms[offset + 4] = (float) Math.toDegrees(euler.y);
+        transforms[offset + 5] = (float) Math.toDegrees(euler.z);
+        transforms[offset + 6] = scale;
+        transforms[offset + 7] = scale;
+        transforms[offset + 8] = scale;
+        active[actor] = true;
+    }
+
+    /**
+     * Overwrite the live actors in an evaluated state
+     */
+    void apply(SceneState state) {
+        for (int i = 0; i < slots.length; i++) {
+            if (active[i] && slots[i] >= 0) {
+                state.setTransform(slots[i], transforms, i * SceneState.TRANSFORM_STRIDE);
+            }
+        }
+    }
+}
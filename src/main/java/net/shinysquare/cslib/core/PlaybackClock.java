@@ -0,0 +1,158 @@
+package net.shinysquare.cslib.core;
+
+/**
+ * Playback clock for a cutscene
+ *
+ * Time is derived from a whole-tick counter plus the render partial tick
+ * instead of summing a float step every tick, so long cutscenes don't drift
+ * and the renderer can sample the timeline between ticks.
+ *
+ * The clock has two sources:
+ * - TICKS: (ticks + partialTick) / tickRate, following the level's tick rate
+ * - REALTIME: a monotonic nanosecond source, used while the game is paused
+ *   and neither the tick counter nor the partial tick advance
+ *
+ * Whenever the source or the tick rate changes, the elapsed time is folded
+ * into a double base so the timeline stays continuous.
+ *
+ * @author ShinySquare
+ */
+public class PlaybackClock {
+
+    /** Default Minecraft tick rate */
+    public static final float DEFAULT_TICK_RATE = 20.0f;
+
+    /** Source of time for the clock */
+    public enum Source {
+        /** Game ticks plus the render partial tick */
+        TICKS,
+        /** Monotonic wall clock, used while the game is paused */
+        REALTIME
+    }
+
+    /** Seconds elapsed before the current segment started */
+    private double baseSeconds;
+
+    /** Ticks elapsed in the current TICKS segment */
+    private long ticks;
+
+    /** Tick rate of the current TICKS segment */
+    private float tickRate;
+
+    /** Start of the current REALTIME segment */
+    private long realtimeStartNanos;
+
+    /** The active source */
+    private Source source;
+
+    /**
+     * Create a new clock at time zero using game ticks
+     */
+    public PlaybackClock() {
+        reset();
+    }
+
+    /**
+     * Rewind the clock to zero
+     */
+    public void reset() {
+        this.baseSeconds = 0.0;
+        this.ticks = 0;
+        this.tickRate = DEFAULT_TICK_RATE;
+        this.source = Source.TICKS;
+    }
+
+    /**
+     * Jump to a point in time, keeping the current source and tick rate
+     *
+     * @param seconds The time to jump to
+     */
+    public void seek(double seconds) {
+        baseSeconds = Math.max(0.0, seconds);
+        ticks = 0;
+        realtimeStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Advance the clock by one game tick
+     *
+     * @param currentTickRate The level's current tick rate (ticks per second)
+     */
+    public void advanceTick(float currentTickRate) {
+        setSource(Source.TICKS);
+
+        if (currentTickRate > 0 && currentTickRate != tickRate) {
+            // Fold the ticks run at the old rate before switching
+            baseSeconds += ticks / (double) tickRate;
+            ticks = 0;
+            tickRate = currentTickRate;
+        }
+
+        ticks++;
+    }
+
+    /**
+     * Switch the clock's time source, keeping the timeline continuous
+     *
+     * @param newSource The source to use from now on
+     */
+    public void setSource(Source newSource) {
+        if (newSource == source) {
+            return;
+        }
+
+        baseSeconds = getSegmentEnd();
+        ticks = 0;
+
+        if (newSource == Source.REALTIME) {
+            realtimeStartNanos = System.nanoTime();
+        }
+
+        source = newSource;
+    }
+
+    /**
+     * Get the time at the last tick boundary
+     *
+     * This is the simulation time used for finishing and tick-side logic.
+     *
+     * @return The time in seconds
+     */
+    public double getTickTime() {
+        return getSegmentEnd();
+    }
+
+    /**
+     * Get the time for rendering
+     *
+     * @param partialTick Fraction of the current tick that has elapsed (0.0 to 1.0)
+     * @return The time in seconds
+     */
+    public double getTime(float partialTick) {
+        if (source == Source.REALTIME) {
+            return getSegmentEnd();
+        }
+        return baseSeconds + (ticks + partialTick) / (double) tickRate;
+    }
+
+    /**
+     * Get the active time source
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * Get the tick rate the clock is currently following
+     */
+    public float getTickRate() {
+        return tickRate;
+    }
+
+    private double getSegmentEnd() {
+        if (source == Source.REALTIME) {
+            return baseSeconds + (System.nanoTime() - realtimeStartNanos) / 1_000_000_000.0;
+        }
+        return baseSeconds + ticks / (double) tickRate;
+    }
+}
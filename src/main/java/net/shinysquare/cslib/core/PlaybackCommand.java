@@ -0,0 +1,59 @@
+package net.shinysquare.cslib.core;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.EntityArgument;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+import java.util.Collection;
+import java.util.List;
+
+public class PlaybackCommand {
+    
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("cslib")
+            .then(Commands.literal("play")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.argument("targets", EntityArgument.players())
+                    .then(Commands.argument("cutscene", ResourceLocationArgument.id())
+                        .executes(context -> {
+                            Collection<ServerPlayer> targets = EntityArgument.getPlayers(context, "targets");
+                            ResourceLocation id = ResourceLocationArgument.getId(context, "cutscene");
+                            
+                            // Use the registered cutscene if the server has one, so it knows the duration
+                            Cutscene cutscene = CutScenesLib.getInstance().getCutsceneManager().getCutscene(id);
+                            if (cutscene != null) {
+                                CutScenesLib.getInstance().getCutsceneManager().playCutsceneForGroup(targets, cutscene);
+                            } else {
+                                CutScenesLib.getInstance().getPlaybackTracker().startGroup(List.copyOf(targets), id, -1);
+                            }
+                            
+                            context.getSource().sendSuccess(() -> Component.literal("Playing cutscene " + id + " for " + targets.size() + " players"), true);
+                            return targets.size();
+                        })
+                    )
+                )
+            )
+            .then(Commands.literal("cancel")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.argument("targets", EntityArgument.players())
+                    .executes(context -> {
+                        Collection<ServerPlayer> targets = EntityArgument.getPlayers(context, "targets");
+                        for (ServerPlayer target : targets) {
+                            CutScenesLib.getInstance().getCutsceneManager().stopCutscene(target);
+                        }
+                        
+                        context.getSource().sendSuccess(() -> Component.literal("Stopped cutscenes for " + targets.size() + " players"), true);
+                        return targets.size();
+                    })
+                )
+            )
+        );
+    }
+}
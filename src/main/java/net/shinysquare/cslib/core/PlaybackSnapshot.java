@@ -0,0 +1,61 @@
+package net.shinysquare.cslib.core;
+
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+/**
+ * Immutable view of a timeline, published once per tick
+ *
+ * The tick thread builds a new snapshot at the end of every tick and
+ * publishes it through a volatile field on {@link CutsceneTimeline}. All
+ * viewers of the timeline share the same snapshot. The render thread only
+ * ever reads snapshots, so it sees a consistent state without locking and
+ * never observes a half-updated timeline.
+ *
+ * @param cutscene The cutscene being played
+ * @param finished Whether the timeline reached the end
+ * @param tickTime Playback time at the last tick boundary, in seconds
+ * @param tickRate Tick rate the clock was following
+ * @param realtime Whether the clock was running on wall time (game paused)
+ * @param publishedNanos System.nanoTime() when the snapshot was published
+ * @param evaluator Actor slot layout of the scene
+ * @param sceneBuffer Evaluated scene states to interpolate between
+ *
+ * @author ShinySquare
+ */
+public record PlaybackSnapshot(Cutscene cutscene,
+                               boolean finished,
+                               double tickTime,
+                               float tickRate,
+                               boolean realtime,
+                               long publishedNanos,
+                               SceneEvaluator evaluator,
+                               SceneStateBuffer sceneBuffer) {
+
+    /**
+     * Get the playback time for rendering
+     *
+     * @param partialTick Partial tick of the frame being rendered
+     * @return The time in seconds, clamped to the cutscene duration
+     */
+    public float getTime(float partialTick) {
+        double time;
+        if (realtime) {
+            time = tickTime + (System.nanoTime() - publishedNanos) / 1_000_000_000.0;
+        } else {
+            time = tickTime + partialTick / (double) tickRate;
+        }
+        return Math.min((float) time, cutscene.getDuration());
+    }
+
+    /**
+     * Get the playback progress (0.0 to 1.0) at render time
+     *
+     * @param partialTick Partial tick of the frame being rendered
+     */
+    public float getProgress(float partialTick) {
+        if (cutscene.getDuration() <= 0) {
+            return 1.0f;
+        }
+        return Math.min(getTime(partialTick) / cutscene.getDuration(), 1.0f);
+    }
+}
@@ -27,7 +27,10 @@ public class RecordingCommand {
                                 return 0;
                             }
                             
-                            manager.startRecording(player, name, radius);
+                            if (!manager.startRecording(player, name, radius)) {
+                                context.getSource().sendFailure(Component.literal("Couldn't create the recording file, see log"));
+                                return 0;
+                            }
                             context.getSource().sendSuccess(() -> Component.literal("Started recording cutscene: " + name), true);
                             return 1;
                         })
@@ -8,40 +8,98 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.phys.Vec3;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.neoforge.event.tick.PlayerTickEvent;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.loader.TrackStreamWriter;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * Handles recording player movements and world snapshots for cutscenes
+ * 
+ * The player's path is written to a track file as it is recorded, a block at
+ * a time, so long takes don't build up in memory. Cutscenes play it back
+ * as a streamed actor.
  */
 public class RecordingManager {
     
+    /** Where recordings and their tracks are saved */
+    private static final Path RECORDINGS_DIR = Path.of("cutscenes", "recordings");
+    
+    /** Recording names: lowercase letters, digits, _ and -, with / for subfolders */
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-z0-9_/-]+");
+    
+    /** Path samples per second (one per player tick) */
+    private static final float SAMPLE_RATE = 20.0f;
+    
     private boolean isRecording = false;
     private String currentRecordingName;
     private int recordingRadius;
-    private final List<PlayerFrame> recordedFrames = new ArrayList<>();
+    private UUID recordingPlayer;
+    private TrackStreamWriter pathWriter;
     private final Map<BlockPos, BlockState> worldSnapshot = new HashMap<>();
     private BlockPos startPos;
 
-    public void startRecording(Player player, String name, int radius) {
+    /**
+     * Get the track file of a recording's player path
+     * 
+     * @param name The recording name
+     * @throws IllegalArgumentException If the name isn't valid (see {@link #isValidName})
+     */
+    public static Path getTrackPath(String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid recording name: " + name);
+        }
+        return RECORDINGS_DIR.resolve(name + ".cstrack");
+    }
+    
+    /**
+     * Check that a recording name stays inside the recordings folder
+     * 
+     * Names come from cutscene files, which servers send to clients, so
+     * anything that could reach outside the folder is refused.
+     */
+    public static boolean isValidName(String name) {
+        return NAME_PATTERN.matcher(name).matches()
+                && RECORDINGS_DIR.resolve(name + ".cstrack").normalize().startsWith(RECORDINGS_DIR);
+    }
+
+    /**
+     * Start recording a player
+     * 
+     * @return false if the track file couldn't be created
+     */
+    public boolean startRecording(Player player, String name, int radius) {
+        if (!isValidName(name)) {
+            CutScenesLib.LOGGER.error("Invalid recording name {}: use lowercase letters, digits, _, - and /", name);
+            return false;
+        }
+        
+        try {
+            this.pathWriter = new TrackStreamWriter(getTrackPath(name), SAMPLE_RATE, TrackStreamWriter.DEFAULT_BLOCK_SAMPLES);
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.error("Failed to create track for recording {}", name, e);
+            return false;
+        }
+        
         this.isRecording = true;
         this.currentRecordingName = name;
         this.recordingRadius = radius;
-        this.recordedFrames.clear();
+        this.recordingPlayer = player.getUUID();
         this.worldSnapshot.clear();
         this.startPos = player.blockPosition();
         
         // Take initial world snapshot
         captureWorld(player.level(), player.blockPosition(), radius);
+        return true;
     }
 
     public void stopRecording() {
@@ -54,13 +112,23 @@ public class RecordingManager {
     public void onPlayerTick(PlayerTickEvent.Post event) {
         if (!isRecording) return;
         
+        // Only the recorded player, once per tick (not again on the client)
         Player player = event.getEntity();
-        recordedFrames.add(new PlayerFrame(
-            player.position(),
-            player.getYRot(),
-            player.getXRot(),
-            player.level().getGameTime()
-        ));
+        if (player.level().isClientSide() || !player.getUUID().equals(recordingPlayer)) return;
+        
+        try {
+            pathWriter.append(
+                (float) (player.getX() - startPos.getX()),
+                (float) (player.getY() - startPos.getY()),
+                (float) (player.getZ() - startPos.getZ()),
+                player.getXRot(),
+                player.getYRot(),
+                0.0f
+            );
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.error("Failed to write recording {}, stopping", currentRecordingName, e);
+            stopRecording();
+        }
     }
 
     private void captureWorld(Level level, BlockPos center, int radius) {
@@ -75,22 +143,19 @@ public class RecordingManager {
     }
 
     private void saveRecording() {
+        // The player path was streamed to its track while recording
+        int samples = pathWriter.getSampleCount();
+        try {
+            pathWriter.close();
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.error("Failed to finish track of recording {}", currentRecordingName, e);
+        }
+        pathWriter = null;
+        
         JsonObject json = new JsonObject();
         json.addProperty("name", currentRecordingName);
-        json.addProperty("duration", recordedFrames.size() / 20.0);
-        
-        // Save player path
-        JsonArray pathArray = new JsonArray();
-        for (PlayerFrame frame : recordedFrames) {
-            JsonObject frameJson = new JsonObject();
-            frameJson.addProperty("x", frame.pos.x - startPos.getX());
-            frameJson.addProperty("y", frame.pos.y - startPos.getY());
-            frameJson.addProperty("z", frame.pos.z - startPos.getZ());
-            frameJson.addProperty("yRot", frame.yRot);
-            frameJson.addProperty("xRot", frame.xRot);
-            pathArray.add(frameJson);
-        }
-        json.add("player_path", pathArray);
+        json.addProperty("duration", samples / SAMPLE_RATE);
+        json.addProperty("player_track", currentRecordingName);
 
         // Save world snapshot (simplified for now)
         JsonArray worldArray = new JsonArray();
@@ -106,7 +171,7 @@ public class RecordingManager {
         json.add("world_snapshot", worldArray);
 
         // Write to file
-        File dir = new File("cutscenes/recordings");
+        File dir = RECORDINGS_DIR.toFile();
         dir.mkdirs();
         try (FileWriter writer = new FileWriter(new File(dir, currentRecordingName + ".json"))) {
             new GsonBuilder().setPrettyPrinting().create().toJson(json, writer);
@@ -116,6 +181,4 @@ public class RecordingManager {
     }
 
     public boolean isRecording() { return isRecording; }
-
-    private static record PlayerFrame(Vec3 pos, float yRot, float xRot, long time) {}
 }
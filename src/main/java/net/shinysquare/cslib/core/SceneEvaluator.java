@@ -0,0 +1,224 @@
+package net.shinysquare.cslib.core;
+
+import net.shinysquare.cslib.cutscene.CompiledCutscene;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.loader.TrackStreamReader;
+import org.joml.Vector3f;
+
+/**
+ * Evaluates a cutscene into a {@link SceneState}
+ *
+ * Reads the cutscene's compiled form ({@link CompiledCutscene}), which is
+ * immutable, so evaluators on any number of timelines share it as is.
+ * Actor slots follow its layout: every scene model gets a slot, followed by
+ * one slot per distinct frame entity ID, then one per streamed actor.
+ * Evaluating a tick is a binary search over keyframe times plus array reads,
+ * with no string lookups.
+ *
+ * Streamed actors are read through a {@link TrackStreamReader} each, owned
+ * by this evaluator because the window follows this timeline's playhead.
+ * {@link #close()} releases their files.
+ *
+ * Runs on the tick thread only.
+ *
+ * @author ShinySquare
+ */
+public class SceneEvaluator {
+
+    /** The compiled cutscene being evaluated */
+    private CompiledCutscene program;
+
+    /** Number of scene model slots (they come first) */
+    private final int modelCount;
+
+    /** Number of frame entity and streamed actor slots */
+    private final int entityCount;
+
+    /** Number of keyframed entity slots (streamed actors follow them) */
+    private final int frameEntityCount;
+
+    /** Reader of each streamed actor's track */
+    private final TrackStreamReader[] streams;
+
+    /** Scratch sample read from a stream */
+    private final float[] streamSample = new float[TrackStreamReader.CHANNELS];
+
+    // Scratch vectors reused every tick
+    private final Vector3f position = new Vector3f();
+    private final Vector3f rotation = new Vector3f();
+    private final Vector3f scale = new Vector3f();
+
+    /**
+     * Create an evaluator for a cutscene
+     *
+     * @param cutscene The cutscene to evaluate, in its current compiled form
+     */
+    public SceneEvaluator(Cutscene cutscene) {
+        this(cutscene.getCompiled());
+    }
+
+    /**
+     * Create an evaluator for a compiled cutscene
+     *
+     * @param program The compiled cutscene to evaluate
+     */
+    public SceneEvaluator(CompiledCutscene program) {
+        this.program = program;
+        this.modelCount = program.getModelCount();
+        this.entityCount = program.getEntityCount();
+        this.frameEntityCount = program.getFrameEntityCount();
+        this.streams = new TrackStreamReader[program.getStreamCount()];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = new TrackStreamReader(program.getStreamTrack(i));
+        }
+    }
+
+    /**
+     * Switch to a newer compile of the same cutscene
+     *
+     * Only taken if the actor layout is unchanged, since states were
+     * already sized for it.
+     *
+     * @return Whether the compile was taken
+     */
+    boolean update(CompiledCutscene next) {
+        if (next.getModelCount() != modelCount || next.getEntityCount() != entityCount
+                || next.getFrameEntityCount() != frameEntityCount) {
+            return false;
+        }
+        for (int i = 0; i < next.getActorCount(); i++) {
+            if (!next.getActorId(i).equals(program.getActorId(i))) {
+                return false;
+            }
+        }
+        program = next;
+        return true;
+    }
+
+    /**
+     * Get the compiled cutscene being evaluated
+     */
+    public CompiledCutscene getProgram() {
+        return program;
+    }
+
+    /**
+     * Get the total number of actor slots
+     */
+    public int getActorCount() {
+        return modelCount + entityCount;
+    }
+
+    /**
+     * Get the number of scene model slots
+     *
+     * Slot i for i below this count is {@code cutscene.getModels().get(i)}.
+     */
+    public int getModelCount() {
+        return modelCount;
+    }
+
+    /**
+     * Get the ID of an actor slot (scene model ID or frame entity ID)
+     */
+    public String getActorId(int actorIndex) {
+        return program.getActorId(actorIndex);
+    }
+
+    /**
+     * Get the model name of a frame entity slot
+     *
+     * @param actorIndex An actor slot at or after {@link #getModelCount()}
+     */
+    public String getEntityModel(int actorIndex) {
+        return program.getEntityModel(actorIndex - modelCount);
+    }
+
+    /**
+     * Check whether a frame entity slot uses the player's skin
+     *
+     * @param actorIndex An actor slot at or after {@link #getModelCount()}
+     */
+    public boolean usesPlayerSkin(int actorIndex) {
+        return program.usesPlayerSkin(actorIndex - modelCount);
+    }
+
+    /**
+     * Evaluate the scene at a point in time
+     *
+     * @param time The playback time in seconds
+     * @param dest The state to write into
+     */
+    public void evaluate(double time, SceneState dest) {
+        CompiledCutscene program = this.program;
+        dest.setTime(time);
+
+        // Camera: an explicit path overrides a model's camera bone
+        if (program.getCamera(time, position, rotation)) {
+            dest.setCamera(position, rotation);
+        } else {
+            dest.clearCamera();
+        }
+
+        // Scene models
+        for (int i = 0; i < modelCount; i++) {
+            program.getModelTransform(i, position, rotation, scale);
+            dest.setActor(i, position, rotation, scale, program.getModelAnimation(i));
+        }
+
+        // Streamed actors, read from the window around the playhead
+        for (int i = 0; i < streams.length; i++) {
+            int slot = modelCount + frameEntityCount + i;
+            if (streams[i].sample(time, streamSample)) {
+                position.set(streamSample[0], streamSample[1], streamSample[2]);
+                rotation.set(streamSample[3], streamSample[4], streamSample[5]);
+                dest.setActor(slot, position, rotation, scale.set(1.0f), null);
+            } else {
+                dest.hideActor(slot);
+            }
+        }
+
+        // Frame entities, interpolated between the surrounding keyframes
+        int frameCount = program.getFrameCount();
+        if (frameCount == 0) {
+            return;
+        }
+
+        int after = program.findFrameAfter((float) time);
+        int before = after == 0 ? 0 : after - 1;
+        if (after == frameCount) {
+            after = before;
+        }
+
+        float span = program.getFrameTime(after) - program.getFrameTime(before);
+        float alpha = span > 0 ? Math.max(0.0f, Math.min(((float) time - program.getFrameTime(before)) / span, 1.0f)) : 0.0f;
+
+        for (int e = 0; e < frameEntityCount; e++) {
+            int slot = modelCount + e;
+
+            if (!program.hasEntity(before, e)) {
+                dest.hideActor(slot);
+                continue;
+            }
+
+            int from = program.getEntityOffset(before, e);
+            if (after == before || !program.hasEntity(after, e)) {
+                program.readTransform(from, position, rotation, scale);
+            } else {
+                program.lerpTransform(from, program.getEntityOffset(after, e), program.ease(before, e, alpha), position, rotation, scale);
+            }
+            dest.setActor(slot, position, rotation, scale, null);
+        }
+    }
+
+    /**
+     * Release the files of streamed actors
+     *
+     * They are reopened if the evaluator is used again.
+     */
+    public void close() {
+        for (TrackStreamReader stream : streams) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.shinysquare.cslib.core;
+
+import org.joml.Vector3f;
+
+/**
+ * Evaluated state of a cutscene at one point in time
+ *
+ * Holds the camera and a transform for every actor in the scene (scene
+ * models first, then frame entities) in flat, preallocated arrays. States
+ * are filled in by {@link SceneEvaluator} on the tick thread and exchanged
+ * with the render thread through a {@link SceneStateBuffer}, so no objects
+ * are allocated per tick or per frame.
+ *
+ * @author ShinySquare
+ */
+public class SceneState {
+
+    /** Floats per actor: position xyz, rotation xyz (degrees), scale xyz */
+    public static final int TRANSFORM_STRIDE = 9;
+
+    /** Playback time this state was evaluated at, in seconds */
+    private double time;
+
+    /** Whether the cutscene has a camera at this time */
+    private boolean hasCamera;
+
+    /** Camera position xyz followed by rotation xyz (pitch, yaw, roll) */
+    private final float[] camera = new float[6];
+
+    /** Per-actor transforms, {@link #TRANSFORM_STRIDE} floats each */
+    private final float[] transforms;
+
+    /** Per-actor animation names */
+    private final String[] animations;
+
+    /** Whether each actor is present at this time */
+    private final boolean[] visible;
+
+    /**
+     * Create a new state
+     *
+     * @param actorCount Number of actor slots in the scene
+     */
+    public SceneState(int actorCount) {
+        this.transforms = new float[actorCount * TRANSFORM_STRIDE];
+        this.animations = new String[actorCount];
+        this.visible = new boolean[actorCount];
+    }
+
+    /**
+     * Copy another state into this one
+     */
+    public void set(SceneState other) {
+        this.time = other.time;
+        this.hasCamera = other.hasCamera;
+        System.arraycopy(other.camera, 0, camera, 0, camera.length);
+        System.arraycopy(other.transforms, 0, transforms, 0, transforms.length);
+        System.arraycopy(other.animations, 0, animations, 0, animations.length);
+        System.arraycopy(other.visible, 0, visible, 0, visible.length);
+    }
+
+    /**
+     * Interpolate between two states into this one
+     *
+     * Transforms are blended linearly. Discrete data (animation names,
+     * visibility) is taken from the later state.
+     *
+     * @param from The earlier state
+     * @param to The later state
+     * @param alpha Blend factor (0.0 = from, 1.0 = to)
+     */
+    public void interpolate(SceneState from, SceneState to, float alpha) {
+        this.time = from.time + (to.time - from.time) * alpha;
+
+        this.hasCamera = to.hasCamera;
+        if (from.hasCamera && to.hasCamera) {
+            lerp(from.camera, to.camera, camera, 0, camera.length, alpha);
+        } else {
+            System.arraycopy(to.camera, 0, camera, 0, camera.length);
+        }
+
+        for (int i = 0; i < visible.length; i++) {
+            int offset = i * TRANSFORM_STRIDE;
+            if (from.visible[i] && to.visible[i]) {
+                lerp(from.transforms, to.transforms, transforms, offset, TRANSFORM_STRIDE, alpha);
+            } else {
+                System.arraycopy(to.transforms, offset, transforms, offset, TRANSFORM_STRIDE);
+            }
+            animations[i] = to.animations[i];
+            visible[i] = to.visible[i];
+        }
+    }
+
+    private static void lerp(float[] a, float[] b, float[] dest, int offset, int length, float alpha) {
+        for (int i = offset; i < offset + length; i++) {
+            dest[i] = a[i] + (b[i] - a[i]) * alpha;
+        }
+    }
+
+    // Writers (used by the evaluator)
+
+    void setTime(double time) {
+        this.time = time;
+    }
+
+    void setCamera(Vector3f position, Vector3f rotation) {
+        hasCamera = true;
+        camera[0] = position.x;
+        camera[1] = position.y;
+        camera[2] = position.z;
+        camera[3] = rotation.x;
+        camera[4] = rotation.y;
+        camera[5] = rotation.z;
+    }
+
+    void clearCamera() {
+        hasCamera = false;
+    }
+
+    void setActor(int index, Vector3f position, Vector3f rotation, Vector3f scale, String animation) {
+        int offset = index * TRANSFORM_STRIDE;
+        transforms[offset] = position.x;
+        transforms[offset + 1] = position.y;
+        transforms[offset + 2] = position.z;
+        transforms[offset + 3] = rotation.x;
+        transforms[offset + 4] = rotation.y;
+        transforms[offset + 5] = rotation.z;
+        transforms[offset + 6] = scale.x;
+        transforms[offset + 7] = scale.y;
+        transforms[offset + 8] = scale.z;
+        animations[index] = animation;
+        visible[index] = true;
+    }
+
+    void setTransform(int index, float[] source, int sourceOffset) {
+        System.arraycopy(source, sourceOffset, transforms, index * TRANSFORM_STRIDE, TRANSFORM_STRIDE);
+        visible[index] = true;
+    }
+
+    void hideActor(int index) {
+        visible[index] = false;
+    }
+
+    // Readers
+
+    public double getTime() {
+        return time;
+    }
+
+    public boolean hasCamera() {
+        return hasCamera;
+    }
+
+    public Vector3f getCameraPosition(Vector3f dest) {
+        return dest.set(camera[0], camera[1], camera[2]);
+    }
+
+    public Vector3f getCameraRotation(Vector3f dest) {
+        return dest.set(camera[3], camera[4], camera[5]);
+    }
+
+    public int getActorCount() {
+        return visible.length;
+    }
+
+    public boolean isVisible(int index) {
+        return visible[index];
+    }
+
+    public Vector3f getPosition(int index, Vector3f dest) {
+        int offset = index * TRANSFORM_STRIDE;
+        return dest.set(transforms[offset], transforms[offset + 1], transforms[offset + 2]);
+    }
+
+    public Vector3f getRotation(int index, Vector3f dest) {
+        int offset = index * TRANSFORM_STRIDE + 3;
+        return dest.set(transforms[offset], transforms[offset + 1], transforms[offset + 2]);
+    }
+
+    public Vector3f getScale(int index, Vector3f dest) {
+        int offset = index * TRANSFORM_STRIDE + 6;
+        return dest.set(transforms[offset], transforms[offset + 1], transforms[offset + 2]);
+    }
+
+    public String getAnimation(int index) {
+        return animations[index];
+    }
+}
@@ -0,0 +1,124 @@
+package net.shinysquare.cslib.core;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Double buffer of evaluated scene states shared by the tick and render threads
+ *
+ * The tick thread evaluates the next state into the slot that currently holds
+ * the previous state (which the renderer no longer needs once the swap
+ * happens) and then publishes it by flipping the current index. The render
+ * thread interpolates between the previous and current slots.
+ *
+ * A sequence counter guards the swap: it is odd while a write is in
+ * progress, and readers retry if it changed while they were reading. Fences
+ * keep the slot writes after the odd increment and the reader's slot reads
+ * before its re-check, so a reader that validates never used a torn state.
+ * Readers never block the tick thread.
+ *
+ * @author ShinySquare
+ */
+public class SceneStateBuffer {
+
+    /** How many times a reader retries before falling back to the published slot */
+    private static final int MAX_READ_ATTEMPTS = 4;
+
+    /** The two state slots */
+    private final SceneState[] slots;
+
+    /** Index of the most recently published slot */
+    private volatile int current;
+
+    /** Write sequence; odd while the tick thread is writing */
+    private volatile int sequence;
+
+    /**
+     * Create a new buffer
+     *
+     * @param actorCount Number of actor slots in the scene
+     */
+    public SceneStateBuffer(int actorCount) {
+        this.slots = new SceneState[] { new SceneState(actorCount), new SceneState(actorCount) };
+        this.current = 0;
+    }
+
+    /**
+     * Create a state with the same layout, for a reader's output
+     */
+    public SceneState createState() {
+        return new SceneState(slots[0].getActorCount());
+    }
+
+    /**
+     * Begin writing the next state (tick thread only)
+     *
+     * @return The slot to evaluate into
+     */
+    public SceneState beginWrite() {
+        sequence++;
+        VarHandle.storeStoreFence();
+        return slots[1 - current];
+    }
+
+    /**
+     * Publish the state returned by {@link #beginWrite()} (tick thread only)
+     */
+    public void publish() {
+        current = 1 - current;
+        sequence++;
+    }
+
+    /**
+     * Fill both slots with the same state, so the first frames don't
+     * interpolate from an empty buffer (tick thread only)
+     *
+     * @param state The initial state
+     */
+    public void reset(SceneState state) {
+        sequence++;
+        VarHandle.storeStoreFence();
+        slots[0].set(state);
+        slots[1].set(state);
+        sequence++;
+    }
+
+    /**
+     * Interpolate the published states at a render time
+     *
+     * The view trails the simulation by one tick: a render time equal to the
+     * current state's time maps to the previous state, and one full tick
+     * later maps to the current state.
+     *
+     * @param renderTime The playback time being rendered
+     * @param dest The state to write the result into
+     * @return true if dest holds the interpolated state, false if the tick
+     *         thread kept writing and dest holds the published state instead
+     */
+    public boolean read(double renderTime, SceneState dest) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int seq = sequence;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            int index = current;
+            SceneState to = slots[index];
+            SceneState from = slots[1 - index];
+
+            double span = to.getTime() - from.getTime();
+            float alpha = span > 0 ? (float) ((renderTime - to.getTime()) / span) : 1.0f;
+            dest.interpolate(from, to, Math.max(0.0f, Math.min(alpha, 1.0f)));
+
+            VarHandle.loadLoadFence();
+            if (sequence == seq) {
+                return true;
+            }
+        }
+
+        // The tick thread only writes the other slot until the next publish,
+        // a tick away, so the published one is safe to copy
+        dest.set(slots[current]);
+        return false;
+    }
+}
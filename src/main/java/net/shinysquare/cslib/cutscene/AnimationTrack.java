@@ -0,0 +1,217 @@
+package net.shinysquare.cslib.cutscene;
+
+import net.minecraft.resources.ResourceLocation;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+import software.bernie.geckolib.loading.object.BakedAnimations;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A GeckoLib animation baked into per-bone transform tracks
+ * 
+ * The animation is sampled once, at {@link #SAMPLE_RATE} poses per second,
+ * into one flat table. Playing it back is a lookup of the two poses around
+ * the requested time and a linear blend between them, so any time can be
+ * shown exactly and in any order (seeking costs the same as playing), and
+ * no keyframes are evaluated while rendering.
+ * 
+ * Bones are stored by name, so a track also drives other geometries with
+ * the same skeleton (atlas-remapped copies and levels of detail). Bones a
+ * geometry doesn't have are skipped.
+ * 
+ * @author ShinySquare
+ */
+public class AnimationTrack {
+    
+    /** Poses per second stored in a track */
+    public static final float SAMPLE_RATE = 60.0f;
+    
+    /** Floats per bone in a pose */
+    private static final int STRIDE = BonePoseSampler.STRIDE;
+    
+    /** Animation file the track was baked from */
+    private final ResourceLocation animationFile;
+    
+    /** Name of the baked animation */
+    private final String animationName;
+    
+    /** Loaded animations the track was baked from, to notice reloads */
+    private final BakedAnimations source;
+    
+    /** Bone of each pose slot */
+    private final String[] boneNames;
+    
+    /** Every sampled pose, back to back */
+    private final float[] samples;
+    
+    /** Number of sampled poses */
+    private final int frameCount;
+    
+    /** Length of the animation in seconds */
+    private final double length;
+    
+    /** Whether the animation loops */
+    private final boolean loop;
+    
+    /** Pose slots resolved against each geometry the track has driven */
+    private final Map<BakedGeoModel, GeoBone[]> bindings = new WeakHashMap<>();
+    
+    private AnimationTrack(ResourceLocation animationFile, String animationName, BakedAnimations source,
+                           String[] boneNames, float[] samples, int frameCount, double length, boolean loop) {
+        this.animationFile = animationFile;
+        this.animationName = animationName;
+        this.source = source;
+        this.boneNames = boneNames;
+        this.samples = samples;
+        this.frameCount = frameCount;
+        this.length = length;
+        this.loop = loop;
+    }
+    
+    /**
+     * Bake an animation of a model
+     * 
+     * @param model The baked model
+     * @param animationFile The model's animation file
+     * @param animationName The animation to bake
+     * @return The track, or null if the animation isn't loaded
+     */
+    public static AnimationTrack bake(BakedGeoModel model, ResourceLocation animationFile, String animationName) {
+        BonePoseSampler sampler = BonePoseSampler.create(model, animationFile, animationName);
+        if (sampler == null) {
+            return null;
+        }
+        
+        GeoBone[] bones = sampler.getBones();
+        String[] boneNames = new String[bones.length];
+        for (int i = 0; i < bones.length; i++) {
+            boneNames[i] = bones[i].getName();
+        }
+        
+        // One pose per sample, plus one landing exactly on the end
+        double length = sampler.getLength();
+        int frameCount = (int) Math.ceil(length * SAMPLE_RATE) + 1;
+        int poseSize = sampler.getPoseSize();
+        float[] samples = new float[frameCount * poseSize];
+        float[] pose = new float[poseSize];
+        for (int frame = 0; frame < frameCount; frame++) {
+            sampler.sample(Math.min(frame / (double) SAMPLE_RATE, length), pose);
+            System.arraycopy(pose, 0, samples, frame * poseSize, poseSize);
+        }
+        
+        // A looping sampler wraps its end back to the start; hold the true last pose instead
+        if (sampler.isLooping() && frameCount > 1) {
+            sampler.sample(Math.nextDown(length), pose);
+            System.arraycopy(pose, 0, samples, (frameCount - 1) * poseSize, poseSize);
+        }
+        
+        BakedAnimations source = GeckoLibCache.getBakedAnimations().get(animationFile);
+        return new AnimationTrack(animationFile, animationName, source, boneNames, samples, frameCount, length, sampler.isLooping());
+    }
+    
+    /**
+     * Check whether the track still matches an animation
+     * 
+     * @param animationName The animation that should be shown
+     * @return false if it's another animation or its file was reloaded
+     */
+    public boolean isCurrent(String animationName) {
+        return this.animationName.equals(animationName)
+                && GeckoLibCache.getBakedAnimations().get(animationFile) == source;
+    }
+    
+    /**
+     * Read the pose at a point in time
+     * 
+     * Looping animations wrap around; others hold their last pose.
+     * 
+     * @param seconds Time since the animation started
+     * @param dest The pose to write into, {@link #getPoseSize()} floats long
+     */
+    public void sample(double seconds, float[] dest) {
+        double time = seconds;
+        if (length > 0) {
+            time = loop ? ((time % length) + length) % length : Math.max(0.0, Math.min(time, length));
+        } else {
+            time = 0.0;
+        }
+        
+        double position = time * SAMPLE_RATE;
+        int from = Math.min((int) position, frameCount - 1);
+        int to = Math.min(from + 1, frameCount - 1);
+        float alpha = (float) (position - from);
+        
+        int poseSize = boneNames.length * STRIDE;
+        int a = from * poseSize;
+        int b = to * poseSize;
+        for (int i = 0; i < poseSize; i++) {
+            float start = samples[a + i];
+            dest[i] = start + (samples[b + i] - start) * alpha;
+        }
+    }
+    
+    /**
+     * Write a pose into a geometry's bones
+     * 
+     * @param pose The pose from {@link #sample(double, float[])}
+     * @param model The geometry to pose
+     */
+    public void apply(float[] pose, BakedGeoModel model) {
+        BonePoseSampler.apply(bindings.computeIfAbsent(model, this::bind), pose);
+    }
+    
+    /**
+     * Get the number of floats in a pose
+     */
+    public int getPoseSize() {
+        return boneNames.length * STRIDE;
+    }
+    
+    /**
+     * Get the bone of each pose slot
+     */
+    public String[] getBoneNames() {
+        return boneNames;
+    }
+    
+    /**
+     * Get the animation length in seconds
+     */
+    public double getLength() {
+        return length;
+    }
+    
+    /**
+     * Check whether the animation loops
+     */
+    public boolean isLooping() {
+        return loop;
+    }
+    
+    /**
+     * Find the bone of every pose slot in a geometry
+     */
+    private GeoBone[] bind(BakedGeoModel model) {
+        Map<String, GeoBone> byName = new HashMap<>();
+        for (GeoBone bone : model.topLevelBones()) {
+            collectBones(bone, byName);
+        }
+        
+        GeoBone[] bones = new GeoBone[boneNames.length];
+        for (int i = 0; i < bones.length; i++) {
+            bones[i] = byName.get(boneNames[i]);
+        }
+        return bones;
+    }
+    
+    private static void collectBones(GeoBone bone, Map<String, GeoBone> bones) {
+        bones.put(bone.getName(), bone);
+        for (GeoBone child : bone.getChildBones()) {
+            collectBones(child, bones);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package net.shinysquare.cslib.cutscene;
+
+import net.minecraft.resources.ResourceLocation;
+import software.bernie.geckolib.animation.Animation;
+import software.bernie.geckolib.animation.keyframe.AnimationPoint;
+import software.bernie.geckolib.animation.keyframe.BoneAnimation;
+import software.bernie.geckolib.animation.keyframe.Keyframe;
+import software.bernie.geckolib.animation.keyframe.KeyframeStack;
+import software.bernie.geckolib.animation.state.BoneSnapshot;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+import software.bernie.geckolib.loading.math.MathParser;
+import software.bernie.geckolib.loading.math.MathValue;
+import software.bernie.geckolib.loading.math.MolangQueries;
+import software.bernie.geckolib.loading.math.value.Variable;
+import software.bernie.geckolib.loading.object.BakedAnimations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Samples a GeckoLib animation at any point in time
+ * 
+ * A pose is a flat float array with {@link #STRIDE} values per bone
+ * (rotation, position, scale), with bones in depth-first order. Sampling
+ * doesn't touch the bones; {@link #apply(float[])} writes a pose into them,
+ * the same way GeckoLib's animation processor does (rotations are added
+ * to the rest rotation, positions and scales replace the rest values).
+ * 
+ * Because sampling has no state, any number of poses can be taken from one
+ * sampler, for any times, in any order. Keyframes written as MoLang
+ * expressions see query.anim_time as the sampled time; it is put back
+ * afterwards, so sampling must happen on the render thread like GeckoLib's
+ * own animation.
+ * 
+ * @author ShinySquare
+ */
+public class BonePoseSampler {
+    
+    /** Floats per bone in a pose */
+    public static final int STRIDE = 9;
+    
+    /** GeckoLib animation time is in ticks */
+    private static final double TICKS_PER_SECOND = 20.0;
+    
+    /** Every bone of the model, depth-first */
+    private final GeoBone[] bones;
+    
+    /** Animation of each bone, or null if it isn't animated */
+    private final BoneAnimation[] boneAnimations;
+    
+    /** Rest pose of every bone */
+    private final float[] rest;
+    
+    /** Length of the animation in ticks */
+    private final double length;
+    
+    /** Whether the animation loops */
+    private final boolean loop;
+    
+    private BonePoseSampler(GeoBone[] bones, BoneAnimation[] boneAnimations, float[] rest, double length, boolean loop) {
+        this.bones = bones;
+        this.boneAnimations = boneAnimations;
+        this.rest = rest;
+        this.length = length;
+        this.loop = loop;
+    }
+    
+    /**
+     * Create a sampler for one animation of a model
+     * 
+     * @param model The baked model
+     * @param animationFile The model's animation file
+     * @param animationName The animation to sample
+     * @return The sampler, or null if the animation isn't loaded
+     */
+    public static BonePoseSampler create(BakedGeoModel model, ResourceLocation animationFile, String animationName) {
+        BakedAnimations animations = GeckoLibCache.getBakedAnimations().get(animationFile);
+        Animation animation = animations != null ? animations.getAnimation(animationName) : null;
+        if (animation == null) {
+            return null;
+        }
+        
+        List<GeoBone> boneList = new ArrayList<>();
+        for (GeoBone bone : model.topLevelBones()) {
+            collectBones(bone, boneList);
+        }
+        GeoBone[] bones = boneList.toArray(new GeoBone[0]);
+        
+        Map<String, BoneAnimation> byName = new HashMap<>();
+        for (BoneAnimation boneAnimation : animation.boneAnimations()) {
+            byName.put(boneAnimation.boneName(), boneAnimation);
+        }
+        
+        BoneAnimation[] boneAnimations = new BoneAnimation[bones.length];
+        float[] rest = new float[bones.length * STRIDE];
+        for (int i = 0; i < bones.length; i++) {
+            GeoBone bone = bones[i];
+            boneAnimations[i] = byName.get(bone.getName());
+            
+            // The processor may be mid-animation, so read the saved rest pose
+            if (bone.getInitialSnapshot() == null) {
+                bone.saveInitialSnapshot();
+            }
+            BoneSnapshot snapshot = bone.getInitialSnapshot();
+            int o = i * STRIDE;
+            rest[o] = snapshot.getRotX();
+            rest[o + 1] = snapshot.getRotY();
+            rest[o + 2] = snapshot.getRotZ();
+            rest[o + 3] = snapshot.getOffsetX();
+            rest[o + 4] = snapshot.getOffsetY();
+            rest[o + 5] = snapshot.getOffsetZ();
+            rest[o + 6] = snapshot.getScaleX();
+            rest[o + 7] = snapshot.getScaleY();
+            rest[o + 8] = snapshot.getScaleZ();
+        }
+        
+        return new BonePoseSampler(bones, boneAnimations, rest, animation.length(), animation.loopType() == Animation.LoopType.LOOP);
+    }
+    
+    /**
+     * Sample the pose at a point in time
+     * 
+     * Looping animations wrap around; others hold their last frame.
+     * 
+     * @param seconds Time since the animation started
+     * @param dest The pose to write into, {@link #getPoseSize()} floats long
+     */
+    public void sample(double seconds, float[] dest) {
+        double tick = seconds * TICKS_PER_SECOND;
+        if (length > 0) {
+            tick = loop ? tick % length : Math.min(tick, length);
+            if (tick < 0) {
+                tick = loop ? tick + length : 0;
+            }
+        }
+        
+        // Expression keyframes (math.sin(query.anim_time * ...)) read the global variable
+        Variable animTime = MathParser.getVariableFor(MolangQueries.ANIM_TIME);
+        DoubleSupplier previous = animTime.value().get();
+        double animSeconds = tick / TICKS_PER_SECOND;
+        animTime.set(() -> animSeconds);
+        try {
+            sampleBones(tick, dest);
+        } finally {
+            animTime.set(previous);
+        }
+    }
+    
+    private void sampleBones(double tick, float[] dest) {
+        System.arraycopy(rest, 0, dest, 0, rest.length);
+        for (int i = 0; i < bones.length; i++) {
+            BoneAnimation animation = boneAnimations[i];
+            if (animation == null) {
+                continue;
+            }
+            
+            int o = i * STRIDE;
+            KeyframeStack<Keyframe<MathValue>> rotation = animation.rotationKeyFrames();
+            if (!rotation.xKeyframes().isEmpty()) {
+                dest[o] += sampleAxis(rotation.xKeyframes(), tick);
+                dest[o + 1] += sampleAxis(rotation.yKeyframes(), tick);
+                dest[o + 2] += sampleAxis(rotation.zKeyframes(), tick);
+            }
+            
+            KeyframeStack<Keyframe<MathValue>> position = animation.positionKeyFrames();
+            if (!position.xKeyframes().isEmpty()) {
+                dest[o + 3] = sampleAxis(position.xKeyframes(), tick);
+                dest[o + 4] = sampleAxis(position.yKeyframes(), tick);
+                dest[o + 5] = sampleAxis(position.zKeyframes(), tick);
+            }
+            
+            KeyframeStack<Keyframe<MathValue>> scale = animation.scaleKeyFrames();
+            if (!scale.xKeyframes().isEmpty()) {
+                dest[o + 6] = sampleAxis(scale.xKeyframes(), tick);
+                dest[o + 7] = sampleAxis(scale.yKeyframes(), tick);
+                dest[o + 8] = sampleAxis(scale.zKeyframes(), tick);
+            }
+        }
+    }
+    
+    /**
+     * Write a pose into the model's bones
+     */
+    public void apply(float[] pose) {
+        apply(bones, pose);
+    }
+    
+    /**
+     * Write a pose into bones
+     * 
+     * @param bones The bones, in pose order (null entries are skipped)
+     * @param pose The pose, {@link #STRIDE} floats per bone
+     */
+    public static void apply(GeoBone[] bones, float[] pose) {
+        for (int i = 0; i < bones.length; i++) {
+            GeoBone bone = bones[i];
+            if (bone == null) {
+                continue;
+            }
+            
+            int o = i * STRIDE;
+            bone.setRotX(pose[o]);
+            bone.setRotY(pose[o + 1]);
+            bone.setRotZ(pose[o + 2]);
+            bone.setPosX(pose[o + 3]);
+            bone.setPosY(pose[o + 4]);
+            bone.setPosZ(pose[o + 5]);
+            bone.setScaleX(pose[o + 6]);
+            bone.setScaleY(pose[o + 7]);
+            bone.setScaleZ(pose[o + 8]);
+            bone.markRotationAsChanged();
+            bone.markPositionAsChanged();
+            bone.markScaleAsChanged();
+        }
+    }
+    
+    /**
+     * Get the number of floats in a pose
+     */
+    public int getPoseSize() {
+        return rest.length;
+    }
+    
+    /**
+     * Get the bones a pose covers, depth-first
+     */
+    public GeoBone[] getBones() {
+        return bones;
+    }
+    
+    /**
+     * Get the animation length in seconds
+     */
+    public double getLength() {
+        return length / TICKS_PER_SECOND;
+    }
+    
+    /**
+     * Check whether the animation loops
+     */
+    public boolean isLooping() {
+        return loop;
+    }
+    
+    /**
+     * Sample one axis of a keyframe stack, easing within the current keyframe
+     */
+    private static float sampleAxis(List<Keyframe<MathValue>> keyframes, double tick) {
+        double start = 0;
+        for (int i = 0; i < keyframes.size(); i++) {
+            Keyframe<MathValue> keyframe = keyframes.get(i);
+            double end = start + keyframe.length();
+            
+            if (tick < end || i == keyframes.size() - 1) {
+                double from = keyframe.startValue().get();
+                double to = keyframe.endValue().get();
+                double elapsed = Math.max(0, Math.min(tick - start, keyframe.length()));
+                return (float) keyframe.easingType().apply(new AnimationPoint(keyframe, elapsed, keyframe.length(), from, to));
+            }
+            start = end;
+        }
+        return 0;
+    }
+    
+    private static void collectBones(GeoBone bone, List<GeoBone> bones) {
+        bones.add(bone);
+        for (GeoBone child : bone.getChildBones()) {
+            collectBones(child, bones);
+        }
+    }
+}
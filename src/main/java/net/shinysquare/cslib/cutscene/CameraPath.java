@@ -8,7 +8,8 @@ import java.util.List;
  * Represents the camera movement path during a cutscene
  * 
  * The camera path is defined by keyframes that specify position and rotation
- * at specific times. The camera smoothly interpolates between these keyframes.
+ * at specific times. The camera smoothly interpolates between these keyframes,
+ * shaped by each keyframe's {@link Easing}.
  * 
  * @author ShinySquare
  */
@@ -90,7 +91,7 @@ public class CameraPath {
         }
         
         // Interpolate between the two keyframes
-        float t = (time - before.getTime()) / (after.getTime() - before.getTime());
+        float t = before.getEasing().apply((time - before.getTime()) / (after.getTime() - before.getTime()));
         
         Vector3f position = new Vector3f();
         before.getPosition().lerp(after.getPosition(), t, position);
@@ -121,6 +122,9 @@ public class CameraPath {
         private Vector3f position;
         private Vector3f rotation; // pitch, yaw, roll
         
+        /** Shapes the move from this keyframe to the next */
+        private Easing easing = Easing.LINEAR;
+        
         public CameraKeyframe() {
             this.position = new Vector3f(0, 0, 0);
             this.rotation = new Vector3f(0, 0, 0);
@@ -155,6 +159,14 @@ public class CameraPath {
         public void setRotation(Vector3f rotation) {
             this.rotation = rotation;
         }
+        
+        public Easing getEasing() {
+            return easing;
+        }
+        
+        public void setEasing(Easing easing) {
+            this.easing = easing;
+        }
     }
     
     /**
@@ -0,0 +1,193 @@
+package net.shinysquare.cslib.cutscene;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Camera moves authored as a "camera" bone in a Gecko scene model
+ * 
+ * The bone's world-space position and rotation are computed once, when the
+ * cutscene loads, for the whole cutscene at {@link #SAMPLE_RATE} samples per
+ * second. Playback reads the two samples around the current time and blends
+ * them, so no bone hierarchy is walked while the cutscene runs.
+ * 
+ * The camera sits on the bone's pivot and looks down the bone's -Z axis,
+ * with its +Y axis up. Rotations are stored the way the renderer applies
+ * them (pitch, yaw, roll in degrees) and unwrapped between samples, so
+ * blending never spins the long way round.
+ * 
+ * @author ShinySquare
+ */
+public class CameraTrack {
+    
+    /** Name of the bone that drives the camera */
+    public static final String CAMERA_BONE = "camera";
+    
+    /** Samples per second of cutscene time */
+    public static final float SAMPLE_RATE = 60.0f;
+    
+    /** Floats per sample: position, then rotation */
+    private static final int STRIDE = 6;
+    
+    /** Every sample, back to back */
+    private final float[] samples;
+    
+    /** Number of samples */
+    private final int frameCount;
+    
+    private CameraTrack(float[] samples, int frameCount) {
+        this.samples = samples;
+        this.frameCount = frameCount;
+    }
+    
+    /**
+     * Bake the camera bone of a scene model
+     * 
+     * @param model The scene model
+     * @param duration The cutscene duration in seconds
+     * @return The track, or null if the model has no camera bone or isn't loaded
+     */
+    public static CameraTrack bake(GeckoSceneModel model, float duration) {
+        BakedGeoModel baked = GeckoLibCache.getBakedModels().get(model.getGeoPath());
+        if (baked == null) {
+            return null;
+        }
+        
+        List<GeoBone> chain = new ArrayList<>();
+        for (GeoBone bone : baked.topLevelBones()) {
+            if (findChain(bone, chain)) {
+                break;
+            }
+        }
+        if (chain.isEmpty()) {
+            return null;
+        }
+        
+        // Where each bone of the chain sits in the animation's poses (-1 = not animated)
+        AnimationTrack animation = model.getCurrentAnimation() != null ? model.getAnimationTrack() : null;
+        int[] poseSlots = new int[chain.size()];
+        Arrays.fill(poseSlots, -1);
+        if (animation != null) {
+            List<String> names = Arrays.asList(animation.getBoneNames());
+            for (int i = 0; i < chain.size(); i++) {
+                poseSlots[i] = names.indexOf(chain.get(i).getName());
+            }
+        }
+        
+        // The actor's static transform, as the renderer applies it
+        Matrix4f actor = new Matrix4f()
+                .translate(model.getPosition())
+                .rotateX((float) Math.toRadians(model.getRotation().x))
+                .rotateY((float) Math.toRadians(model.getRotation().y))
+                .rotateZ((float) Math.toRadians(model.getRotation().z))
+                .scale(model.getScale());
+        
+        int frameCount = animation != null ? Math.max(1, (int) Math.ceil(duration * SAMPLE_RATE) + 1) : 1;
+        float[] samples = new float[frameCount * STRIDE];
+        float[] pose = animation != null ? new float[animation.getPoseSize()] : null;
+        float[] values = new float[BonePoseSampler.STRIDE];
+        Matrix4f matrix = new Matrix4f();
+        Matrix3f orientation = new Matrix3f();
+        Vector3f position = new Vector3f();
+        Vector3f rotation = new Vector3f();
+        
+        for (int frame = 0; frame < frameCount; frame++) {
+            if (animation != null) {
+                animation.sample(Math.min(frame / (double) SAMPLE_RATE, duration), pose);
+            }
+            
+            matrix.set(actor);
+            for (int i = 0; i < chain.size(); i++) {
+                GeoBone bone = chain.get(i);
+                if (poseSlots[i] >= 0) {
+                    System.arraycopy(pose, poseSlots[i] * BonePoseSampler.STRIDE, values, 0, values.length);
+                } else {
+                    Skeleton.readRestPose(bone, values, 0);
+                }
+                Skeleton.applyBone(matrix, bone.getPivotX() / 16.0f, bone.getPivotY() / 16.0f, bone.getPivotZ() / 16.0f, values, 0);
+            }
+            
+            GeoBone camera = chain.get(chain.size() - 1);
+            matrix.transformPosition(camera.getPivotX() / 16.0f, camera.getPivotY() / 16.0f, camera.getPivotZ() / 16.0f, position);
+            
+            // The view rotation undoes the bone's orientation
+            matrix.get3x3(orientation).normalize().transpose().getEulerAnglesXYZ(rotation);
+            rotation.mul((float) (180.0 / Math.PI));
+            
+            int o = frame * STRIDE;
+            samples[o] = position.x;
+            samples[o + 1] = position.y;
+            samples[o + 2] = position.z;
+            for (int axis = 0; axis < 3; axis++) {
+                float angle = rotation.get(axis);
+                if (frame > 0) {
+                    angle = unwrap(samples[o - STRIDE + 3 + axis], angle);
+                }
+                samples[o + 3 + axis] = angle;
+            }
+        }
+        
+        return new CameraTrack(samples, frameCount);
+    }
+    
+    /**
+     * Read the camera at a point in time
+     * 
+     * @param seconds Playback time in seconds
+     * @param position Receives the camera position
+     * @param rotation Receives the camera rotation (pitch, yaw, roll in degrees)
+     */
+    public void getState(double seconds, Vector3f position, Vector3f rotation) {
+        double sample = Math.max(0.0, seconds * SAMPLE_RATE);
+        int from = Math.min((int) sample, frameCount - 1);
+        int to = Math.min(from + 1, frameCount - 1);
+        float alpha = from == to ? 0.0f : (float) (sample - from);
+        
+        int a = from * STRIDE;
+        int b = to * STRIDE;
+        position.set(lerp(a, b, alpha), lerp(a + 1, b + 1, alpha), lerp(a + 2, b + 2, alpha));
+        rotation.set(lerp(a + 3, b + 3, alpha), lerp(a + 4, b + 4, alpha), lerp(a + 5, b + 5, alpha));
+    }
+    
+    private float lerp(int a, int b, float alpha) {
+        return samples[a] + (samples[b] - samples[a]) * alpha;
+    }
+    
+    /**
+     * Find the path from a bone down to the camera bone
+     * 
+     * @param chain Receives the bones from the top level down to the camera
+     * @return true if the camera bone is below (or is) this bone
+     */
+    private static boolean findChain(GeoBone bone, List<GeoBone> chain) {
+        chain.add(bone);
+        if (CAMERA_BONE.equals(bone.getName())) {
+            return true;
+        }
+        
+        for (GeoBone child : bone.getChildBones()) {
+            if (findChain(child, chain)) {
+                return true;
+            }
+        }
+        
+        chain.remove(chain.size() - 1);
+        return false;
+    }
+    
+    /**
+     * Shift an angle by whole turns to be closest to the previous one
+     */
+    private static float unwrap(float previous, float angle) {
+        float delta = angle - previous;
+        return angle - 360.0f * Math.round(delta / 360.0f);
+    }
+}
@@ -0,0 +1,433 @@
+package net.shinysquare.cslib.cutscene;
+
+import net.minecraft.resources.ResourceLocation;
+import org.joml.Vector3f;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The frozen, playable form of a {@link Cutscene}
+ * 
+ * A cutscene is authored through mutable objects (keyframes, frame entities
+ * and scene models all hand out their Vector3fs). Compiling copies what
+ * playback reads into primitive arrays:
+ * - One transform per scene model
+ * - One transform per frame entity per keyframe, with whether it is present
+ * - The camera path keyframes
+ * - The {@link Easing} of each keyframe segment, resolved per entity
+ * 
+ * Transforms are nine floats (position, rotation, scale), back to back.
+ * Nothing in a compiled cutscene changes after it is built and nothing
+ * mutable is handed out; readers copy values into vectors they own. Any
+ * number of timelines, tick and render threads can share one without
+ * copying or locking.
+ * 
+ * Frame entity slots follow the scene models, in the order their IDs first
+ * appear in the keyframes, and streamed actors ({@link StreamedActor}) come
+ * last. For those only the track file is compiled in; the track itself is
+ * read while playing.
+ * 
+ * @author ShinySquare
+ */
+public final class CompiledCutscene {
+    
+    /** Floats per transform: position, rotation, scale */
+    public static final int TRANSFORM_SIZE = 9;
+    
+    /** Floats per camera keyframe: position, rotation */
+    private static final int CAMERA_SIZE = 6;
+    
+    private final ResourceLocation id;
+    private final String name;
+    private final float duration;
+    
+    /** Number of scene model slots (they come first) */
+    private final int modelCount;
+    
+    /** ID of every actor slot */
+    private final String[] actorIds;
+    
+    /** Animation of each scene model slot, or null */
+    private final String[] modelAnimations;
+    
+    /** Transform of each scene model slot */
+    private final float[] modelTransforms;
+    
+    /** Number of keyframed entity slots (streamed actors follow them) */
+    private final int frameEntityCount;
+    
+    /** Model name of each frame entity and streamed actor slot */
+    private final String[] entityModels;
+    
+    /** Whether each frame entity and streamed actor slot uses the player's skin */
+    private final boolean[] entitySkins;
+    
+    /** Track file of each streamed actor */
+    private final Path[] streamTracks;
+    
+    /** Time of each keyframe */
+    private final float[] frameTimes;
+    
+    /** Transform of each frame entity in each keyframe (keyframe-major) */
+    private final float[] frameTransforms;
+    
+    /** Whether each frame entity is in each keyframe (keyframe-major) */
+    private final boolean[] framePresence;
+    
+    /** Easing from each keyframe to the next for each frame entity (keyframe-major) */
+    private final Easing[] frameEasings;
+    
+    /** Time of each camera path keyframe, or null without a camera path */
+    private final float[] cameraTimes;
+    
+    /** Position and rotation of each camera path keyframe */
+    private final float[] cameraValues;
+    
+    /** Easing from each camera path keyframe to the next */
+    private final Easing[] cameraEasings;
+    
+    /** Camera baked from a model's camera bone (already immutable), or null */
+    private final CameraTrack cameraTrack;
+    
+    private CompiledCutscene(Cutscene cutscene) {
+        this.id = cutscene.getId();
+        this.name = cutscene.getName();
+        this.duration = cutscene.getDuration();
+        
+        List<SceneModel> models = List.copyOf(cutscene.getModels());
+        List<CutsceneFrame> frames = List.copyOf(cutscene.getFrames());
+        List<StreamedActor> streams = List.copyOf(cutscene.getStreams());
+        this.modelCount = models.size();
+        
+        // Frame entity slots, in order of first appearance
+        List<String> ids = new ArrayList<>();
+        List<CutsceneFrame.FrameEntity> firstSeen = new ArrayList<>();
+        for (CutsceneFrame frame : frames) {
+            for (CutsceneFrame.FrameEntity entity : frame.getEntities()) {
+                if (!ids.contains(entity.getId())) {
+                    ids.add(entity.getId());
+                    firstSeen.add(entity);
+                }
+            }
+        }
+        int entityCount = ids.size();
+        this.frameEntityCount = entityCount;
+        
+        this.actorIds = new String[modelCount + entityCount + streams.size()];
+        this.modelAnimations = new String[modelCount];
+        this.modelTransforms = new float[modelCount * TRANSFORM_SIZE];
+        for (int i = 0; i < modelCount; i++) {
+            SceneModel model = models.get(i);
+            actorIds[i] = model.getId();
+            modelAnimations[i] = model.getCurrentAnimation();
+            writeTransform(modelTransforms, i * TRANSFORM_SIZE, model.getPosition(), model.getRotation(), model.getScale());
+        }
+        
+        this.entityModels = new String[entityCount + streams.size()];
+        this.entitySkins = new boolean[entityCount + streams.size()];
+        for (int e = 0; e < entityCount; e++) {
+            actorIds[modelCount + e] = ids.get(e);
+            entityModels[e] = firstSeen.get(e).getModel();
+            entitySkins[e] = firstSeen.get(e).isUsePlayerSkin();
+        }
+        
+        this.streamTracks = new Path[streams.size()];
+        for (int i = 0; i < streams.size(); i++) {
+            StreamedActor stream = streams.get(i);
+            actorIds[modelCount + entityCount + i] = stream.getId();
+            entityModels[entityCount + i] = stream.getModel();
+            entitySkins[entityCount + i] = stream.isUsePlayerSkin();
+            streamTracks[i] = stream.getTrack();
+        }
+        
+        this.frameTimes = new float[frames.size()];
+        this.frameTransforms = new float[frames.size() * entityCount * TRANSFORM_SIZE];
+        this.framePresence = new boolean[frames.size() * entityCount];
+        this.frameEasings = new Easing[frames.size() * entityCount];
+        for (int f = 0; f < frames.size(); f++) {
+            CutsceneFrame frame = frames.get(f);
+            frameTimes[f] = frame.getTime();
+            Arrays.fill(frameEasings, f * entityCount, (f + 1) * entityCount, frame.getEasing());
+            for (CutsceneFrame.FrameEntity entity : frame.getEntities()) {
+                int slot = f * entityCount + ids.indexOf(entity.getId());
+                framePresence[slot] = true;
+                writeTransform(frameTransforms, slot * TRANSFORM_SIZE, entity.getPosition(), entity.getRotation(), entity.getScale());
+                if (entity.getEasing() != null) {
+                    frameEasings[slot] = entity.getEasing();
+                }
+            }
+        }
+        
+        CameraPath cameraPath = cutscene.getCameraPath();
+        if (cameraPath != null) {
+            List<CameraPath.CameraKeyframe> keyframes = List.copyOf(cameraPath.getKeyframes());
+            this.cameraTimes = new float[keyframes.size()];
+            this.cameraValues = new float[keyframes.size() * CAMERA_SIZE];
+            this.cameraEasings = new Easing[keyframes.size()];
+            for (int k = 0; k < keyframes.size(); k++) {
+                CameraPath.CameraKeyframe keyframe = keyframes.get(k);
+                cameraTimes[k] = keyframe.getTime();
+                cameraEasings[k] = keyframe.getEasing();
+                keyframe.getPosition().get(cameraValues, k * CAMERA_SIZE);
+                keyframe.getRotation().get(cameraValues, k * CAMERA_SIZE + 3);
+            }
+        } else {
+            this.cameraTimes = null;
+            this.cameraValues = null;
+            this.cameraEasings = null;
+        }
+        this.cameraTrack = cutscene.getCameraTrack();
+    }
+    
+    /**
+     * Compile the current state of a cutscene
+     * 
+     * Prefer {@link Cutscene#getCompiled()}, which reuses the last compile.
+     */
+    public static CompiledCutscene compile(Cutscene cutscene) {
+        return new CompiledCutscene(cutscene);
+    }
+    
+    private static void writeTransform(float[] dest, int offset, Vector3f position, Vector3f rotation, Vector3f scale) {
+        position.get(dest, offset);
+        rotation.get(dest, offset + 3);
+        scale.get(dest, offset + 6);
+    }
+    
+    public ResourceLocation getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public float getDuration() {
+        return duration;
+    }
+    
+    /**
+     * Get the total number of actor slots
+     */
+    public int getActorCount() {
+        return actorIds.length;
+    }
+    
+    /**
+     * Get the number of scene model slots
+     */
+    public int getModelCount() {
+        return modelCount;
+    }
+    
+    /**
+     * Get the number of frame entity and streamed actor slots
+     */
+    public int getEntityCount() {
+        return entityModels.length;
+    }
+    
+    /**
+     * Get the number of keyframed entity slots
+     */
+    public int getFrameEntityCount() {
+        return frameEntityCount;
+    }
+    
+    /**
+     * Get the number of streamed actor slots (after the frame entities)
+     */
+    public int getStreamCount() {
+        return streamTracks.length;
+    }
+    
+    /**
+     * Get the track file of a streamed actor
+     */
+    public Path getStreamTrack(int stream) {
+        return streamTracks[stream];
+    }
+    
+    /**
+     * Get the ID of an actor slot (scene model ID or frame entity ID)
+     */
+    public String getActorId(int actorIndex) {
+        return actorIds[actorIndex];
+    }
+    
+    /**
+     * Get the animation of a scene model slot, or null
+     */
+    public String getModelAnimation(int model) {
+        return modelAnimations[model];
+    }
+    
+    /**
+     * Get the model name of a frame entity or streamed actor
+     * 
+     * @param entity The entity, counted from the first frame entity slot
+     */
+    public String getEntityModel(int entity) {
+        return entityModels[entity];
+    }
+    
+    /**
+     * Check whether a frame entity or streamed actor uses the player's skin
+     * 
+     * @param entity The entity, counted from the first frame entity slot
+     */
+    public boolean usesPlayerSkin(int entity) {
+        return entitySkins[entity];
+    }
+    
+    /**
+     * Read a scene model's transform into vectors owned by the caller
+     */
+    public void getModelTransform(int model, Vector3f position, Vector3f rotation, Vector3f scale) {
+        readTransform(modelTransforms, model * TRANSFORM_SIZE, position, rotation, scale);
+    }
+    
+    public int getFrameCount() {
+        return frameTimes.length;
+    }
+    
+    public float getFrameTime(int frame) {
+        return frameTimes[frame];
+    }
+    
+    /**
+     * Check whether a frame entity is in a keyframe
+     */
+    public boolean hasEntity(int frame, int entity) {
+        return framePresence[frame * frameEntityCount + entity];
+    }
+    
+    /**
+     * Ease the blend of a frame entity from a keyframe to the next
+     * 
+     * @param alpha Linear progress from the keyframe to the next, 0 to 1
+     * @return Progress to pass to {@link #lerpTransform}
+     */
+    public float ease(int frame, int entity, float alpha) {
+        return frameEasings[frame * frameEntityCount + entity].apply(alpha);
+    }
+    
+    /**
+     * Get the offset of a frame entity's transform in a keyframe, for
+     * {@link #readTransform} and {@link #lerpTransform}
+     */
+    public int getEntityOffset(int frame, int entity) {
+        return (frame * frameEntityCount + entity) * TRANSFORM_SIZE;
+    }
+    
+    /**
+     * Read a frame entity transform into vectors owned by the caller
+     * 
+     * @param offset From {@link #getEntityOffset}
+     */
+    public void readTransform(int offset, Vector3f position, Vector3f rotation, Vector3f scale) {
+        readTransform(frameTransforms, offset, position, rotation, scale);
+    }
+    
+    /**
+     * Blend two frame entity transforms into vectors owned by the caller
+     * 
+     * @param from Offset of the first transform (from {@link #getEntityOffset})
+     * @param to Offset of the second transform
+     * @param alpha How far from the first to the second, already eased (see
+     *              {@link #ease}); overshooting 0 or 1 extrapolates
+     */
+    public void lerpTransform(int from, int to, float alpha, Vector3f position, Vector3f rotation, Vector3f scale) {
+        float[] t = frameTransforms;
+        position.set(lerp(t, from, to, alpha), lerp(t, from + 1, to + 1, alpha), lerp(t, from + 2, to + 2, alpha));
+        rotation.set(lerp(t, from + 3, to + 3, alpha), lerp(t, from + 4, to + 4, alpha), lerp(t, from + 5, to + 5, alpha));
+        scale.set(lerp(t, from + 6, to + 6, alpha), lerp(t, from + 7, to + 7, alpha), lerp(t, from + 8, to + 8, alpha));
+    }
+    
+    /**
+     * Find the first keyframe strictly after a time
+     * 
+     * @return The keyframe index, or the keyframe count if none is after it
+     */
+    public int findFrameAfter(float time) {
+        return findAfter(frameTimes, time);
+    }
+    
+    /**
+     * Check whether the cutscene has a camera path or camera track
+     */
+    public boolean hasCamera() {
+        return cameraTimes != null || cameraTrack != null;
+    }
+    
+    /**
+     * Read the camera at a point in time
+     * 
+     * An explicit camera path overrides a model's camera bone.
+     * 
+     * @param time Playback time in seconds
+     * @param position Receives the camera position
+     * @param rotation Receives the camera rotation (pitch, yaw, roll in degrees)
+     * @return false if the cutscene has no camera
+     */
+    public boolean getCamera(double time, Vector3f position, Vector3f rotation) {
+        if (cameraTimes == null) {
+            if (cameraTrack == null) {
+                return false;
+            }
+            cameraTrack.getState(time, position, rotation);
+            return true;
+        }
+        
+        if (cameraTimes.length == 0) {
+            position.zero();
+            rotation.zero();
+            return true;
+        }
+        
+        // Held at the first and last keyframes
+        int after = findAfter(cameraTimes, (float) time);
+        int before = Math.max(after - 1, 0);
+        if (after == cameraTimes.length || after == 0 || cameraTimes[before] == (float) time) {
+            int k = after == 0 ? 0 : before;
+            position.set(cameraValues, k * CAMERA_SIZE);
+            rotation.set(cameraValues, k * CAMERA_SIZE + 3);
+            return true;
+        }
+        
+        float alpha = cameraEasings[before].apply(((float) time - cameraTimes[before]) / (cameraTimes[after] - cameraTimes[before]));
+        int a = before * CAMERA_SIZE;
+        int b = after * CAMERA_SIZE;
+        float[] v = cameraValues;
+        position.set(lerp(v, a, b, alpha), lerp(v, a + 1, b + 1, alpha), lerp(v, a + 2, b + 2, alpha));
+        rotation.set(lerp(v, a + 3, b + 3, alpha), lerp(v, a + 4, b + 4, alpha), lerp(v, a + 5, b + 5, alpha));
+        return true;
+    }
+    
+    private static void readTransform(float[] values, int offset, Vector3f position, Vector3f rotation, Vector3f scale) {
+        position.set(values, offset);
+        rotation.set(values, offset + 3);
+        scale.set(values, offset + 6);
+    }
+    
+    private static float lerp(float[] values, int a, int b, float alpha) {
+        return values[a] + (values[b] - values[a]) * alpha;
+    }
+    
+    private static int findAfter(float[] times, float time) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,87 @@
+package net.shinysquare.cslib.cutscene;
+
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Many instances of one GeckoLib model, placed around a scene
+ * 
+ * Used for extras in battle or festival scenes. Every instance shares the
+ * crowd's geometry, texture and animation; only its transform and its
+ * offset into the animation differ. Instances are stored in primitive
+ * arrays (one entry per instance, three for positions) rather than as
+ * objects, so a crowd of hundreds is a handful of arrays.
+ * 
+ * @author ShinySquare
+ */
+public class CrowdActor {
+    
+    /** ID of the crowd in the scene */
+    private final String id;
+    
+    /** GeckoLib geometry shared by every instance */
+    private final ResourceLocation geometry;
+    
+    /** GeckoLib animation file */
+    private final ResourceLocation animationFile;
+    
+    /** Texture shared by every instance */
+    private final ResourceLocation texture;
+    
+    /** Animation every instance plays, or null to stand still */
+    private final String animation;
+    
+    /** Position of each instance (x, y, z) */
+    private final float[] positions;
+    
+    /** Yaw of each instance, in degrees */
+    private final float[] yaws;
+    
+    /** Uniform scale of each instance */
+    private final float[] scales;
+    
+    /** Offset of each instance into the animation, in seconds */
+    private final float[] timeOffsets;
+    
+    public CrowdActor(String id, ResourceLocation geometry, ResourceLocation animationFile, ResourceLocation texture, String animation,
+                      float[] positions, float[] yaws, float[] scales, float[] timeOffsets) {
+        if (positions.length != yaws.length * 3 || scales.length != yaws.length || timeOffsets.length != yaws.length) {
+            throw new IllegalArgumentException("Crowd " + id + " has mismatched instance arrays");
+        }
+        
+        this.id = id;
+        this.geometry = geometry;
+        this.animationFile = animationFile;
+        this.texture = texture;
+        this.animation = animation;
+        this.positions = positions;
+        this.yaws = yaws;
+        this.scales = scales;
+        this.timeOffsets = timeOffsets;
+    }
+    
+    /**
+     * Get the number of instances
+     */
+    public int getCount() {
+        return yaws.length;
+    }
+    
+    public float getX(int instance) { return positions[instance * 3]; }
+    public float getY(int instance) { return positions[instance * 3 + 1]; }
+    public float getZ(int instance) { return positions[instance * 3 + 2]; }
+    public float getYaw(int instance) { return yaws[instance]; }
+    public float getScale(int instance) { return scales[instance]; }
+    public float getTimeOffset(int instance) { return timeOffsets[instance]; }
+    
+    // Getters
+    
+    public String getId() { return id; }
+    
+    public ResourceLocation getGeometry() { return geometry; }
+    
+    public ResourceLocation getAnimationFile() { return animationFile; }
+    
+    public ResourceLocation getTexture() { return texture; }
+    
+    public String getAnimation() { return animation; }
+}
@@ -15,6 +15,11 @@ import java.util.List;
  * 
  * This class is loaded from JSON files in assets/[modid]/cutscenes/[name]/cutscene.json
  * 
+ * This is the authoring form; playback reads the frozen form from
+ * {@link #getCompiled()}. Adding or replacing models, frames or the camera
+ * recompiles it on next use, but changing a model's or keyframe's vectors
+ * in place doesn't: call {@link #compile()} after editing those.
+ * 
  * @author ShinySquare
  */
 public class Cutscene {
@@ -34,9 +39,24 @@ public class Cutscene {
     /** The camera path for this cutscene (can be loaded from external camera.json) */
     private CameraPath cameraPath;
     
+    /** Camera moves baked from a model's camera bone (used when there is no camera path) */
+    private CameraTrack cameraTrack;
+    
     /** List of models in this scene (Blockbench models) */
     private List<SceneModel> models;
     
+    /** Crowds of instanced extras in this scene */
+    private List<CrowdActor> crowds;
+    
+    /** Keyframes with entity transforms, in time order */
+    private List<CutsceneFrame> frames;
+    
+    /** Actors streamed from track files instead of keyframed */
+    private List<StreamedActor> streams;
+    
+    /** Player skin mapping configuration (optional) */
+    private SkinMapping skinMapping;
+    
     /** Resource location for external camera config */
     private ResourceLocation cameraConfigLocation;
 
@@ -49,11 +69,21 @@ public class Cutscene {
     private boolean isRecording = false;
     private String recordingPath;
     
+    // Start settings: how long to wait for assets, and the fade around the wait
+    private float prewarmTimeout = 5.0f;
+    private float fadeDuration = 0.5f;
+    
+    /** Frozen form for playback, or null to compile on next use */
+    private volatile CompiledCutscene compiled;
+    
     /**
      * Create a new cutscene
      */
     public Cutscene() {
         this.models = new ArrayList<>();
+        this.crowds = new ArrayList<>();
+        this.frames = new ArrayList<>();
+        this.streams = new ArrayList<>();
         this.pauseGame = true;
     }
 
@@ -63,6 +93,24 @@ public class Cutscene {
 
     public void addModel(SceneModel model) {
         this.models.add(model);
+        compiled = null;
+    }
+
+    public List<CrowdActor> getCrowds() {
+        return crowds;
+    }
+
+    public void addCrowd(CrowdActor crowd) {
+        this.crowds.add(crowd);
+    }
+
+    public List<StreamedActor> getStreams() {
+        return streams;
+    }
+
+    public void addStream(StreamedActor stream) {
+        this.streams.add(stream);
+        compiled = null;
     }
 
     public ResourceLocation getCameraConfigLocation() {
@@ -81,6 +129,7 @@ public class Cutscene {
     
     public void setId(ResourceLocation id) {
         this.id = id;
+        compiled = null;
     }
     
     public String getName() {
@@ -89,6 +138,7 @@ public class Cutscene {
     
     public void setName(String name) {
         this.name = name;
+        compiled = null;
     }
     
     public float getDuration() {
@@ -97,6 +147,7 @@ public class Cutscene {
     
     public void setDuration(float duration) {
         this.duration = duration;
+        compiled = null;
     }
     
     public boolean shouldPauseGame() {
@@ -113,6 +164,16 @@ public class Cutscene {
     
     public void setCameraPath(CameraPath cameraPath) {
         this.cameraPath = cameraPath;
+        compiled = null;
+    }
+    
+    public CameraTrack getCameraTrack() {
+        return cameraTrack;
+    }
+    
+    public void setCameraTrack(CameraTrack cameraTrack) {
+        this.cameraTrack = cameraTrack;
+        compiled = null;
     }
     
     public List<CutsceneFrame> getFrames() {
@@ -121,10 +182,12 @@ public class Cutscene {
     
     public void setFrames(List<CutsceneFrame> frames) {
         this.frames = frames;
+        compiled = null;
     }
     
     public void addFrame(CutsceneFrame frame) {
         this.frames.add(frame);
+        compiled = null;
     }
     
     public SkinMapping getSkinMapping() {
@@ -149,6 +212,33 @@ public class Cutscene {
     public String getRecordingPath() { return recordingPath; }
     public void setRecordingPath(String recordingPath) { this.recordingPath = recordingPath; }
     
+    // Start Getters/Setters
+    public float getPrewarmTimeout() { return prewarmTimeout; }
+    public void setPrewarmTimeout(float prewarmTimeout) { this.prewarmTimeout = prewarmTimeout; }
+    public float getFadeDuration() { return fadeDuration; }
+    public void setFadeDuration(float fadeDuration) { this.fadeDuration = fadeDuration; }
+    
+    /**
+     * Get the frozen form of this cutscene for playback
+     * 
+     * Compiled on first use and shared by every timeline after that.
+     */
+    public CompiledCutscene getCompiled() {
+        CompiledCutscene result = compiled;
+        return result != null ? result : compile();
+    }
+    
+    /**
+     * Compile the cutscene as it is now, replacing the previous compile
+     * 
+     * Timelines already running keep the form they started with.
+     */
+    public CompiledCutscene compile() {
+        CompiledCutscene result = CompiledCutscene.compile(this);
+        compiled = result;
+        return result;
+    }
+    
     /**
      * Get the frame at a specific time
      * 
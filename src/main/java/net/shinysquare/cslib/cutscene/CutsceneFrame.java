@@ -14,7 +14,9 @@ import java.util.List;
  * - List of entities/objects to render
  * - Their positions, rotations, and scales
  * 
- * Frames are interpolated during playback to create smooth animation
+ * Frames are interpolated during playback to create smooth animation. A
+ * frame's {@link Easing} shapes the blend from it to the next frame; an
+ * entity can set its own to override it.
  * 
  * @author ShinySquare
  */
@@ -26,6 +28,9 @@ public class CutsceneFrame {
     /** List of entities in this frame */
     private List<FrameEntity> entities;
     
+    /** Shapes the blend from this frame to the next */
+    private Easing easing = Easing.LINEAR;
+    
     /**
      * Create a new frame at the given time
      */
@@ -61,6 +66,14 @@ public class CutsceneFrame {
         this.entities.add(entity);
     }
     
+    public Easing getEasing() {
+        return easing;
+    }
+    
+    public void setEasing(Easing easing) {
+        this.easing = easing;
+    }
+    
     /**
      * Represents an entity/object in a frame
      */
@@ -83,6 +96,9 @@ public class CutsceneFrame {
         /** Whether this entity should use player skin mapping */
         private boolean usePlayerSkin;
         
+        /** Overrides the frame's easing for this entity, or null */
+        private Easing easing;
+        
         /**
          * Create a new entity
          */
@@ -158,5 +174,13 @@ public class CutsceneFrame {
         public void setUsePlayerSkin(boolean usePlayerSkin) {
             this.usePlayerSkin = usePlayerSkin;
         }
+        
+        public Easing getEasing() {
+            return easing;
+        }
+        
+        public void setEasing(Easing easing) {
+            this.easing = easing;
+        }
     }
 }
@@ -0,0 +1,262 @@
+package net.shinysquare.cslib.cutscene;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shapes the blend from one keyframe to the next
+ * 
+ * An easing maps how far playback is between two keyframes (0 to 1) to how
+ * far the values have moved. Curves are tabulated when they are created:
+ * cubic beziers are solved for {@link #TABLE_SIZE} evenly spaced inputs, and
+ * elastic and bounce curves are sampled the same way, so easing during
+ * playback is one table read and a lerp. Steps are computed directly, since
+ * a table would blur their jumps.
+ * 
+ * Easings are immutable and shared between keyframes and cutscenes. Named
+ * easings (see {@link #byName}) are created once; custom beziers are cached
+ * by their control points.
+ * 
+ * @author ShinySquare
+ */
+public final class Easing {
+    
+    /** Table segments per curve */
+    public static final int TABLE_SIZE = 64;
+    
+    /** Straight blend, the default */
+    public static final Easing LINEAR = new Easing("linear", null, 0, false);
+    
+    /** Newton steps tried before falling back to bisection when solving a bezier */
+    private static final int NEWTON_ITERATIONS = 8;
+    
+    private static final float ELASTIC_PERIOD = (float) (2.0 * Math.PI / 3.0);
+    private static final float ELASTIC_PERIOD_IN_OUT = (float) (2.0 * Math.PI / 4.5);
+    
+    private static final Map<String, Easing> NAMED = Map.ofEntries(
+            Map.entry("linear", LINEAR),
+            Map.entry("ease", cubicBezier("ease", 0.25f, 0.1f, 0.25f, 1.0f)),
+            Map.entry("ease-in", cubicBezier("ease-in", 0.42f, 0.0f, 1.0f, 1.0f)),
+            Map.entry("ease-out", cubicBezier("ease-out", 0.0f, 0.0f, 0.58f, 1.0f)),
+            Map.entry("ease-in-out", cubicBezier("ease-in-out", 0.42f, 0.0f, 0.58f, 1.0f)),
+            Map.entry("elastic-in", sampled("elastic-in", Easing::elasticIn)),
+            Map.entry("elastic-out", sampled("elastic-out", t -> 1.0f - elasticIn(1.0f - t))),
+            Map.entry("elastic-in-out", sampled("elastic-in-out", Easing::elasticInOut)),
+            Map.entry("bounce-in", sampled("bounce-in", t -> 1.0f - bounceOut(1.0f - t))),
+            Map.entry("bounce-out", sampled("bounce-out", Easing::bounceOut)),
+            Map.entry("bounce-in-out", sampled("bounce-in-out", t -> t < 0.5f
+                    ? (1.0f - bounceOut(1.0f - 2.0f * t)) / 2.0f
+                    : (1.0f + bounceOut(2.0f * t - 1.0f)) / 2.0f)),
+            Map.entry("step-start", steps(1, true)),
+            Map.entry("step-end", steps(1, false))
+    );
+    
+    private static final Map<BezierKey, Easing> BEZIERS = new ConcurrentHashMap<>();
+    
+    /** Name for logs and debugging */
+    private final String name;
+    
+    /** Output at each of TABLE_SIZE + 1 evenly spaced inputs, or null */
+    private final float[] table;
+    
+    /** Number of steps, or 0 for a continuous curve */
+    private final int steps;
+    
+    /** Whether steps jump at the start of each interval rather than the end */
+    private final boolean jumpStart;
+    
+    private Easing(String name, float[] table, int steps, boolean jumpStart) {
+        this.name = name;
+        this.table = table;
+        this.steps = steps;
+        this.jumpStart = jumpStart;
+    }
+    
+    /**
+     * Get a named easing
+     * 
+     * Names follow CSS: linear, ease, ease-in, ease-out, ease-in-out,
+     * step-start and step-end, plus elastic-in/out/in-out and
+     * bounce-in/out/in-out.
+     * 
+     * @return The easing, or null if there is none by that name
+     */
+    public static Easing byName(String name) {
+        return NAMED.get(name);
+    }
+    
+    /**
+     * Get a cubic bezier easing, as in CSS cubic-bezier()
+     * 
+     * The curve runs from (0, 0) to (1, 1) through the two control points.
+     * 
+     * @param x1 First control point time, 0 to 1
+     * @param y1 First control point value (may overshoot)
+     * @param x2 Second control point time, 0 to 1
+     * @param y2 Second control point value (may overshoot)
+     */
+    public static Easing cubicBezier(float x1, float y1, float x2, float y2) {
+        if (x1 < 0.0f || x1 > 1.0f || x2 < 0.0f || x2 > 1.0f) {
+            throw new IllegalArgumentException("Bezier control point times must be between 0 and 1");
+        }
+        
+        return BEZIERS.computeIfAbsent(new BezierKey(x1, y1, x2, y2),
+                key -> cubicBezier("cubic-bezier(" + x1 + ", " + y1 + ", " + x2 + ", " + y2 + ")", x1, y1, x2, y2));
+    }
+    
+    /**
+     * Get a stepped easing, as in CSS steps()
+     * 
+     * @param count Number of steps
+     * @param jumpStart Whether each step happens at the start of its interval
+     *                  rather than the end
+     */
+    public static Easing steps(int count, boolean jumpStart) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Steps must be at least 1");
+        }
+        return new Easing("steps(" + count + (jumpStart ? ", start)" : ", end)"), null, count, jumpStart);
+    }
+    
+    /**
+     * Ease the progress between two keyframes
+     * 
+     * @param t Progress from 0 to 1 (clamped)
+     * @return The eased progress (elastic curves overshoot 0 and 1)
+     */
+    public float apply(float t) {
+        if (t <= 0.0f) {
+            return jumpStart ? 1.0f / steps : 0.0f;
+        }
+        if (t >= 1.0f) {
+            return 1.0f;
+        }
+        
+        if (table != null) {
+            float x = t * TABLE_SIZE;
+            int i = Math.min((int) x, TABLE_SIZE - 1);
+            return table[i] + (table[i + 1] - table[i]) * (x - i);
+        }
+        if (steps > 0) {
+            int step = (int) (t * steps) + (jumpStart ? 1 : 0);
+            return Math.min(step, steps) / (float) steps;
+        }
+        return t;
+    }
+    
+    /**
+     * Check whether this is the straight blend
+     */
+    public boolean isLinear() {
+        return this == LINEAR;
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+    
+    private static Easing cubicBezier(String name, float x1, float y1, float x2, float y2) {
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            float u = solveBezier(i / (float) TABLE_SIZE, x1, x2);
+            table[i] = bezier(u, y1, y2);
+        }
+        return new Easing(name, table, 0, false);
+    }
+    
+    private static Easing sampled(String name, Curve curve) {
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = curve.apply(i / (float) TABLE_SIZE);
+        }
+        return new Easing(name, table, 0, false);
+    }
+    
+    /**
+     * Find the curve parameter whose time is x
+     * 
+     * Newton's method converges in a few steps for most curves; bisection
+     * covers the flat spots where it doesn't. Times grow with the parameter
+     * because both control times are within 0 to 1.
+     */
+    private static float solveBezier(float x, float x1, float x2) {
+        float u = x;
+        for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+            float error = bezier(u, x1, x2) - x;
+            if (Math.abs(error) < 1.0e-6f) {
+                return u;
+            }
+            float slope = bezierSlope(u, x1, x2);
+            if (Math.abs(slope) < 1.0e-6f) {
+                break;
+            }
+            u -= error / slope;
+        }
+        
+        float low = 0.0f;
+        float high = 1.0f;
+        u = x;
+        for (int i = 0; i < 32 && high - low > 1.0e-6f; i++) {
+            if (bezier(u, x1, x2) < x) {
+                low = u;
+            } else {
+                high = u;
+            }
+            u = (low + high) * 0.5f;
+        }
+        return u;
+    }
+    
+    /** One coordinate of a bezier from 0 to 1 with control values a and b */
+    private static float bezier(float u, float a, float b) {
+        float v = 1.0f - u;
+        return 3.0f * v * v * u * a + 3.0f * v * u * u * b + u * u * u;
+    }
+    
+    private static float bezierSlope(float u, float a, float b) {
+        float v = 1.0f - u;
+        return 3.0f * v * v * a + 6.0f * v * u * (b - a) + 3.0f * u * u * (1.0f - b);
+    }
+    
+    private static float elasticIn(float t) {
+        if (t <= 0.0f || t >= 1.0f) {
+            return t <= 0.0f ? 0.0f : 1.0f;
+        }
+        return (float) (-Math.pow(2.0, 10.0 * t - 10.0) * Math.sin((t * 10.0 - 10.75) * ELASTIC_PERIOD));
+    }
+    
+    private static float elasticInOut(float t) {
+        if (t <= 0.0f || t >= 1.0f) {
+            return t <= 0.0f ? 0.0f : 1.0f;
+        }
+        double wave = Math.sin((20.0 * t - 11.125) * ELASTIC_PERIOD_IN_OUT);
+        return t < 0.5f
+                ? (float) (-(Math.pow(2.0, 20.0 * t - 10.0) * wave) / 2.0)
+                : (float) (Math.pow(2.0, -20.0 * t + 10.0) * wave / 2.0 + 1.0);
+    }
+    
+    private static float bounceOut(float t) {
+        final float n = 7.5625f;
+        final float d = 2.75f;
+        if (t < 1.0f / d) {
+            return n * t * t;
+        } else if (t < 2.0f / d) {
+            t -= 1.5f / d;
+            return n * t * t + 0.75f;
+        } else if (t < 2.5f / d) {
+            t -= 2.25f / d;
+            return n * t * t + 0.9375f;
+        }
+        t -= 2.625f / d;
+        return n * t * t + 0.984375f;
+    }
+    
+    @FunctionalInterface
+    private interface Curve {
+        float apply(float t);
+    }
+    
+    private record BezierKey(float x1, float y1, float x2, float y2) {
+    }
+}
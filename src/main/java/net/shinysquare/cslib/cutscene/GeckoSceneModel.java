@@ -1,47 +1,76 @@
 package net.shinysquare.cslib.cutscene;
 
 import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.render.BoneTextureManager;
 import software.bernie.geckolib.animatable.GeoAnimatable;
-import software.bernie.geckolib.core.animatable.instance.AnimatableInstanceCache;
-import software.bernie.geckolib.core.animation.AnimatableManager;
-import software.bernie.geckolib.core.animation.AnimationController;
-import software.bernie.geckolib.core.animation.RawAnimation;
+import software.bernie.geckolib.animatable.instance.AnimatableInstanceCache;
+import software.bernie.geckolib.animation.AnimatableManager;
+import software.bernie.geckolib.animation.AnimationController;
+import software.bernie.geckolib.animation.RawAnimation;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
 import software.bernie.geckolib.util.GeckoLibUtil;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * A GeckoLib-powered model for cutscenes
+ * 
+ * The geometry is the scene model's model location and the base texture is
+ * its texture location, so Gecko models share the transform and animation
+ * state of every other {@link SceneModel}.
+ * 
+ * The model's animation runs on the cutscene clock. It is baked into an
+ * {@link AnimationTrack} when the cutscene loads (or when first shown, if
+ * GeckoLib hadn't loaded it yet), and rendering just looks the pose up at
+ * the cutscene time. GeckoLib's own animation controller is only used for
+ * animations that can't be baked.
  */
-public class GeckoSceneModel implements GeoAnimatable {
+public class GeckoSceneModel extends SceneModel implements GeoAnimatable {
     
     private final AnimatableInstanceCache cache = GeckoLibUtil.createInstanceCache(this);
-    private final String id;
-    private final ResourceLocation geoPath;
     private final ResourceLocation animPath;
-    private ResourceLocation texturePath;
     
-    /** Map of bone names to custom textures (Dynamic UV Mapping) */
-    private final Map<String, ResourceLocation> boneTextures = new HashMap<>();
+    /** Map of bone names to custom textures (Dynamic UV Mapping), copied on write */
+    private volatile Map<String, ResourceLocation> boneTextures = Map.of();
     
-    private String currentAnimation;
+    /** Bumped whenever the bone textures change, so render-side tables can rebuild */
+    private volatile int boneTextureVersion;
+    
+    /** The current animation, baked into bone tracks (null until baked) */
+    private AnimationTrack animationTrack;
+    
+    /** The current animation for GeckoLib's controller, rebuilt when it changes */
+    private RawAnimation rawAnimation;
+    
+    /** The animation rawAnimation was built for */
+    private String rawAnimationName;
+    
+    /** Cutscene time the model is being shown at, in seconds */
+    private double animationTime;
     
     public GeckoSceneModel(String id, ResourceLocation geoPath, ResourceLocation animPath, ResourceLocation texturePath) {
-        this.id = id;
-        this.geoPath = geoPath;
+        super(id, geoPath);
         this.animPath = animPath;
-        this.texturePath = texturePath;
+        setTextureLocation(texturePath);
     }
 
     @Override
     public void registerControllers(AnimatableManager.ControllerRegistrar controllers) {
-        controllers.add(new AnimationController<>(this, "controller", 0, state -> {
-            if (currentAnimation != null) {
-                return state.setAndContinue(RawAnimation.begin().thenPlay(currentAnimation));
-            }
-            return state.setAndContinue(RawAnimation.begin().thenLoop("idle"));
-        }));
+        controllers.add(new AnimationController<>(this, "controller", 0, state -> state.setAndContinue(getRawAnimation())));
+    }
+    
+    private RawAnimation getRawAnimation() {
+        String animation = getCurrentAnimation();
+        if (rawAnimation == null || !Objects.equals(animation, rawAnimationName)) {
+            rawAnimation = animation != null
+                    ? RawAnimation.begin().thenPlay(animation)
+                    : RawAnimation.begin().thenLoop("idle");
+            rawAnimationName = animation;
+        }
+        return rawAnimation;
     }
 
     @Override
@@ -49,27 +78,99 @@ public class GeckoSceneModel implements GeoAnimatable {
         return cache;
     }
 
+    /**
+     * Get the animation time in ticks, following the cutscene clock
+     */
     @Override
     public double getTick(Object o) {
-        return 0; // Handled by cutscene player
+        return animationTime * 20.0;
+    }
+    
+    // Cutscene-driven Animation
+    
+    /**
+     * Bake the current animation into bone tracks
+     * 
+     * @return true if the animation is baked, false if GeckoLib hasn't
+     *         loaded the model or animation
+     */
+    public boolean bakeAnimation() {
+        animationTrack = null;
+        
+        String animation = getCurrentAnimation();
+        BakedGeoModel model = GeckoLibCache.getBakedModels().get(getGeoPath());
+        if (animation == null || model == null) {
+            return false;
+        }
+        
+        animationTrack = AnimationTrack.bake(model, animPath, animation);
+        return animationTrack != null;
+    }
+    
+    /**
+     * Get the current animation's bone tracks, baking them if needed
+     * 
+     * @return The tracks, or null if the animation can't be baked
+     */
+    public AnimationTrack getAnimationTrack() {
+        String animation = getCurrentAnimation();
+        if (animation == null) {
+            return null;
+        }
+        if (animationTrack == null || !animationTrack.isCurrent(animation)) {
+            bakeAnimation();
+        }
+        return animationTrack;
+    }
+    
+    /**
+     * Set the cutscene time the model is shown at
+     * 
+     * @param seconds Playback time in seconds
+     */
+    public void setAnimationTime(double seconds) {
+        this.animationTime = seconds;
+    }
+    
+    public double getAnimationTime() {
+        return animationTime;
     }
     
     // Dynamic Texture Mapping API
     
-    public void mapTextureToBone(String boneName, ResourceLocation texture) {
-        this.boneTextures.put(boneName, texture);
+    public synchronized void mapTextureToBone(String boneName, ResourceLocation texture) {
+        Map<String, ResourceLocation> textures = new HashMap<>(boneTextures);
+        textures.put(boneName, texture);
+        this.boneTextures = Map.copyOf(textures);
+        this.boneTextureVersion++;
+    }
+    
+    /**
+     * Get this model's own bone mappings
+     * 
+     * @return An immutable snapshot (global mappings not included)
+     */
+    public Map<String, ResourceLocation> getBoneTextures() {
+        return boneTextures;
+    }
+    
+    public int getBoneTextureVersion() {
+        return boneTextureVersion;
     }
     
+    /**
+     * Resolve a bone's texture: this model's mapping, then the global
+     * mapping, then the model's own texture
+     */
     public ResourceLocation getTextureForBone(String boneName) {
-        return boneTextures.getOrDefault(boneName, texturePath);
+        ResourceLocation texture = boneTextures.get(boneName);
+        return texture != null ? texture : BoneTextureManager.getTextureForBone(boneName, getTextureLocation());
     }
     
     // Getters and Setters
     
-    public String getId() { return id; }
-    public ResourceLocation getGeoPath() { return geoPath; }
+    public ResourceLocation getGeoPath() { return getModelLocation(); }
     public ResourceLocation getAnimPath() { return animPath; }
-    public ResourceLocation getTexturePath() { return texturePath; }
-    public void setTexturePath(ResourceLocation texturePath) { this.texturePath = texturePath; }
-    public void setCurrentAnimation(String animation) { this.currentAnimation = animation; }
+    public ResourceLocation getTexturePath() { return getTextureLocation(); }
+    public void setTexturePath(ResourceLocation texturePath) { setTextureLocation(texturePath); }
 }
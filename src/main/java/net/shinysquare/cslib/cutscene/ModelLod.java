@@ -0,0 +1,46 @@
+package net.shinysquare.cslib.cutscene;
+
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.Set;
+
+/**
+ * A reduced level of detail for a scene model
+ * 
+ * A level is used once the model covers less than its screen size (the
+ * fraction of the screen height its bounds span). Each level can swap in
+ * simpler geometry, hide bones, and animate less often.
+ * 
+ * @author ShinySquare
+ */
+public class ModelLod {
+    
+    /** Used when the model's screen size is below this */
+    private final float screenSize;
+    
+    /** Geometry to draw instead of the model's own, or null to keep it */
+    private final ResourceLocation geometry;
+    
+    /** Bones (and their children) not drawn at this level */
+    private final Set<String> hiddenBones;
+    
+    /** Frames between animation updates (1 = every frame) */
+    private final int animationInterval;
+    
+    public ModelLod(float screenSize, ResourceLocation geometry, Set<String> hiddenBones, int animationInterval) {
+        this.screenSize = screenSize;
+        this.geometry = geometry;
+        this.hiddenBones = Set.copyOf(hiddenBones);
+        this.animationInterval = Math.max(1, animationInterval);
+    }
+    
+    // Getters
+    
+    public float getScreenSize() { return screenSize; }
+    
+    public ResourceLocation getGeometry() { return geometry; }
+    
+    public Set<String> getHiddenBones() { return hiddenBones; }
+    
+    public int getAnimationInterval() { return animationInterval; }
+}
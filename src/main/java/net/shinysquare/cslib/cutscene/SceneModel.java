@@ -3,6 +3,8 @@ package net.shinysquare.cslib.cutscene;
 import net.minecraft.resources.ResourceLocation;
 import org.joml.Vector3f;
 
+import java.util.List;
+
 /**
  * Represents a Blockbench model within a cutscene scene
  * 
@@ -11,6 +13,7 @@ import org.joml.Vector3f;
  * - A reference to its texture
  * - Initial position, rotation, and scale
  * - Animation state
+ * - Optional levels of detail, most detailed first
  * 
  * @author ShinySquare
  */
@@ -39,6 +42,9 @@ public class SceneModel {
     /** Current animation name from Blockbench */
     private String currentAnimation;
     
+    /** Reduced levels of detail, by descending screen size */
+    private List<ModelLod> lods = List.of();
+    
     public SceneModel(String id, ResourceLocation modelLocation) {
         this.id = id;
         this.modelLocation = modelLocation;
@@ -70,4 +76,7 @@ public class SceneModel {
     
     public String getCurrentAnimation() { return currentAnimation; }
     public void setCurrentAnimation(String currentAnimation) { this.currentAnimation = currentAnimation; }
+    
+    public List<ModelLod> getLods() { return lods; }
+    public void setLods(List<ModelLod> lods) { this.lods = List.copyOf(lods); }
 }
@@ -0,0 +1,243 @@
+package net.shinysquare.cslib.cutscene;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import software.bernie.geckolib.animation.state.BoneSnapshot;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The bone hierarchy of a geometry, copied out of its GeoBones
+ * 
+ * A skeleton turns a pose ({@link BonePoseSampler#STRIDE} floats per bone)
+ * into one model-space matrix per bone, the same matrices GeckoLib's
+ * renderer builds while walking the bones. Everything it needs (parents,
+ * pivots, the rest pose) is copied when the skeleton is created, so
+ * {@link #evaluate} never reads a GeoBone and can run on any thread, for
+ * any number of poses at once.
+ * 
+ * Skeletons are created on the render thread, one per geometry.
+ * 
+ * @author ShinySquare
+ */
+public class Skeleton {
+    
+    /** Floats per bone in a pose */
+    private static final int STRIDE = BonePoseSampler.STRIDE;
+    
+    /** Floats per bone matrix */
+    public static final int MATRIX_SIZE = 16;
+    
+    /** Floats per bone normal matrix */
+    public static final int NORMAL_SIZE = 9;
+    
+    /** Skeleton of each geometry, dropped with the geometry */
+    private static final Map<BakedGeoModel, Skeleton> SKELETONS = new WeakHashMap<>();
+    
+    /** The geometry the skeleton was copied from */
+    private final BakedGeoModel model;
+    
+    /** Every bone, depth-first (parents before their children) */
+    private final GeoBone[] bones;
+    
+    /** Index of each bone's parent, or -1 for top-level bones */
+    private final int[] parents;
+    
+    /** Pivot of every bone, in blocks */
+    private final float[] pivots;
+    
+    /** Rest pose of every bone */
+    private final float[] rest;
+    
+    /** Number of bones in each bone's subtree, itself included */
+    private final int[] subtreeSizes;
+    
+    /** Bone slots of each animation track that drove this skeleton */
+    private final Map<AnimationTrack, int[]> bindings = new WeakHashMap<>();
+    
+    private Skeleton(BakedGeoModel model) {
+        List<GeoBone> boneList = new ArrayList<>();
+        List<Integer> parentList = new ArrayList<>();
+        for (GeoBone bone : model.topLevelBones()) {
+            collectBones(bone, -1, boneList, parentList);
+        }
+        
+        this.model = model;
+        this.bones = boneList.toArray(new GeoBone[0]);
+        this.parents = new int[bones.length];
+        this.pivots = new float[bones.length * 3];
+        this.rest = new float[bones.length * STRIDE];
+        this.subtreeSizes = new int[bones.length];
+        
+        for (int i = bones.length - 1; i >= 0; i--) {
+            GeoBone bone = bones[i];
+            parents[i] = parentList.get(i);
+            pivots[i * 3] = bone.getPivotX() / 16.0f;
+            pivots[i * 3 + 1] = bone.getPivotY() / 16.0f;
+            pivots[i * 3 + 2] = bone.getPivotZ() / 16.0f;
+            readRestPose(bone, rest, i * STRIDE);
+            
+            // Children come after their parent, so their sizes are already known
+            subtreeSizes[i]++;
+            if (parents[i] >= 0) {
+                subtreeSizes[parents[i]] += subtreeSizes[i];
+            }
+        }
+    }
+    
+    /**
+     * Get the skeleton of a geometry, creating it on first use
+     * 
+     * Render thread only.
+     */
+    public static Skeleton of(BakedGeoModel model) {
+        return SKELETONS.computeIfAbsent(model, Skeleton::new);
+    }
+    
+    /**
+     * Find where each bone of this skeleton sits in a track's poses
+     * 
+     * Render thread only; the result is shared and must not be modified.
+     * 
+     * @return The pose slot of every bone (-1 = not in the track)
+     */
+    public int[] bind(AnimationTrack track) {
+        return bindings.computeIfAbsent(track, t -> {
+            Map<String, Integer> byName = new HashMap<>();
+            String[] names = t.getBoneNames();
+            for (int i = 0; i < names.length; i++) {
+                byName.put(names[i], i);
+            }
+            
+            int[] slots = new int[bones.length];
+            for (int i = 0; i < bones.length; i++) {
+                slots[i] = byName.getOrDefault(bones[i].getName(), -1);
+            }
+            return slots;
+        });
+    }
+    
+    /**
+     * Build the model-space matrix of every bone for a pose
+     * 
+     * Safe to call from any thread, as long as each call has its own
+     * output arrays and scratch matrices.
+     * 
+     * @param pose The pose, from {@link AnimationTrack#sample}
+     * @param slots The bones' pose slots, from {@link #bind}
+     * @param matrices Receives {@link #MATRIX_SIZE} floats per bone
+     * @param normals Receives {@link #NORMAL_SIZE} floats per bone
+     * @param matrix Scratch matrix
+     * @param normal Scratch normal matrix
+     */
+    public void evaluate(float[] pose, int[] slots, float[] matrices, float[] normals, Matrix4f matrix, Matrix3f normal) {
+        for (int i = 0; i < bones.length; i++) {
+            int parent = parents[i];
+            if (parent < 0) {
+                matrix.identity();
+            } else {
+                matrix.set(matrices, parent * MATRIX_SIZE);
+            }
+            
+            int slot = slots[i];
+            float[] values = slot >= 0 ? pose : rest;
+            int offset = slot >= 0 ? slot * STRIDE : i * STRIDE;
+            applyBone(matrix, pivots[i * 3], pivots[i * 3 + 1], pivots[i * 3 + 2], values, offset);
+            matrix.get(matrices, i * MATRIX_SIZE);
+            
+            // Like PoseStack, normals follow rotation and the sign of the scale only
+            matrix.get3x3(normal);
+            float scale = (float) Math.cbrt(Math.abs(normal.determinant()));
+            normal.normal();
+            if (scale > 0.0f) {
+                normal.scale(scale);
+            }
+            normal.get(normals, i * NORMAL_SIZE);
+        }
+    }
+    
+    /**
+     * Get a bone by index
+     * 
+     * Bones are indexed depth-first, the order GeckoLib's renderer walks
+     * them in, so a renderer can count its way through them.
+     */
+    public GeoBone getBone(int index) {
+        return bones[index];
+    }
+    
+    /**
+     * Get the number of bones in a bone's subtree, itself included
+     * 
+     * The bone after the subtree has index {@code index + getSubtreeSize(index)}.
+     */
+    public int getSubtreeSize(int index) {
+        return subtreeSizes[index];
+    }
+    
+    /**
+     * Get the geometry the skeleton was copied from
+     */
+    public BakedGeoModel getModel() {
+        return model;
+    }
+    
+    /**
+     * Get the number of bones
+     */
+    public int getBoneCount() {
+        return bones.length;
+    }
+    
+    /**
+     * Apply one bone's transform, the same way GeckoLib's renderer does
+     * 
+     * @param pivotX Bone pivot in blocks
+     * @param values Rotation (radians), position (pixels) and scale, from offset
+     */
+    static void applyBone(Matrix4f matrix, float pivotX, float pivotY, float pivotZ, float[] values, int offset) {
+        matrix.translate(-values[offset + 3] / 16.0f, values[offset + 4] / 16.0f, values[offset + 5] / 16.0f)
+                .translate(pivotX, pivotY, pivotZ)
+                .rotateZ(values[offset + 2])
+                .rotateY(values[offset + 1])
+                .rotateX(values[offset])
+                .scale(values[offset + 6], values[offset + 7], values[offset + 8])
+                .translate(-pivotX, -pivotY, -pivotZ);
+    }
+    
+    /**
+     * Read a bone's rest pose (its values before any animation)
+     */
+    static void readRestPose(GeoBone bone, float[] values, int offset) {
+        BoneSnapshot snapshot = bone.getInitialSnapshot();
+        if (snapshot == null) {
+            bone.saveInitialSnapshot();
+            snapshot = bone.getInitialSnapshot();
+        }
+        
+        values[offset] = snapshot.getRotX();
+        values[offset + 1] = snapshot.getRotY();
+        values[offset + 2] = snapshot.getRotZ();
+        values[offset + 3] = snapshot.getOffsetX();
+        values[offset + 4] = snapshot.getOffsetY();
+        values[offset + 5] = snapshot.getOffsetZ();
+        values[offset + 6] = snapshot.getScaleX();
+        values[offset + 7] = snapshot.getScaleY();
+        values[offset + 8] = snapshot.getScaleZ();
+    }
+    
+    private static void collectBones(GeoBone bone, int parent, List<GeoBone> bones, List<Integer> parents) {
+        int index = bones.size();
+        bones.add(bone);
+        parents.add(parent);
+        for (GeoBone child : bone.getChildBones()) {
+            collectBones(child, index, bones, parents);
+        }
+    }
+}
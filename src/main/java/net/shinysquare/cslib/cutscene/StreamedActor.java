@@ -0,0 +1,44 @@
+package net.shinysquare.cslib.cutscene;
+
+import java.nio.file.Path;
+
+/**
+ * An actor whose transforms are streamed from a track file on disk
+ * 
+ * Used for long recorded takes that would be too big as keyframes. The
+ * track is written by the recorder (see
+ * {@link net.shinysquare.cslib.loader.TrackStreamWriter}) and read a block
+ * at a time while the cutscene plays, so only a small window of it is ever
+ * in memory. Streamed actors are drawn like frame entities.
+ * 
+ * @author ShinySquare
+ */
+public class StreamedActor {
+    
+    /** ID of the actor in the scene */
+    private final String id;
+    
+    /** Model to render (like a frame entity's model) */
+    private final String model;
+    
+    /** The track file */
+    private final Path track;
+    
+    /** Whether this actor should use player skin mapping */
+    private final boolean usePlayerSkin;
+    
+    public StreamedActor(String id, String model, Path track, boolean usePlayerSkin) {
+        this.id = id;
+        this.model = model;
+        this.track = track;
+        this.usePlayerSkin = usePlayerSkin;
+    }
+    
+    public String getId() { return id; }
+    
+    public String getModel() { return model; }
+    
+    public Path getTrack() { return track; }
+    
+    public boolean isUsePlayerSkin() { return usePlayerSkin; }
+}
@@ -5,15 +5,19 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.packs.resources.Resource;
 import net.minecraft.server.packs.resources.ResourceManager;
 import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.RecordingManager;
 import net.shinysquare.cslib.cutscene.*;
 import org.joml.Vector3f;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Loads cutscenes from JSON files
@@ -28,13 +32,14 @@ import java.util.Optional;
  *   "camera": {
  *     "type": "path",
  *     "keyframes": [
- *       {"time": 0.0, "position": [0, 5, 10], "rotation": [0, 0, 0]},
+ *       {"time": 0.0, "position": [0, 5, 10], "rotation": [0, 0, 0], "easing": "ease-in-out"},
  *       {"time": 5.0, "position": [5, 5, 5], "rotation": [0, 45, 0]}
  *     ]
  *   },
  *   "frames": [
  *     {
  *       "time": 0.0,
+ *       "easing": {"bezier": [0.25, 0.1, 0.25, 1.0]},
  *       "entities": [
  *         {
  *           "id": "player1",
@@ -62,15 +67,33 @@ public class CutsceneLoader {
             .create();
     
     /**
-     * Load a cutscene from a resource location
+     * Load a cutscene from a resource location, baking its animations
+     * 
+     * Baking touches GeckoLib's shared bones, so call this on the client
+     * thread; elsewhere use {@link #loadCutscene(ResourceManager, ResourceLocation, boolean)}
+     * without baking.
      * 
      * @param resourceManager The resource manager to load from
      * @param location The resource location (e.g., "mymod:intro")
      * @return The loaded cutscene, or null if loading failed
      */
     public static Cutscene loadCutscene(ResourceManager resourceManager, ResourceLocation location) {
+        return loadCutscene(resourceManager, location, true);
+    }
+    
+    /**
+     * Load a cutscene from a resource location
+     * 
+     * @param resourceManager The resource manager to load from
+     * @param location The resource location (e.g., "mymod:intro")
+     * @param bake Whether to bake Gecko animations and the camera track now
+     *             (client thread only); otherwise call {@link #bakeAnimations}
+     *             on the client thread later
+     * @return The loaded cutscene, or null if loading failed
+     */
+    public static Cutscene loadCutscene(ResourceManager resourceManager, ResourceLocation location, boolean bake) {
         // Build the path: assets/[namespace]/cutscenes/[path]/cutscene.json
-        ResourceLocation filePath = new ResourceLocation(
+        ResourceLocation filePath = ResourceLocation.fromNamespaceAndPath(
                 location.getNamespace(),
                 "cutscenes/" + location.getPath() + "/cutscene.json"
         );
@@ -97,6 +120,19 @@ public class CutsceneLoader {
             // Parse the JSON into a Cutscene object
             Cutscene cutscene = parseCutscene(json, location);
             
+            // Resolve the external camera config now, so playback never
+            // has to load it from the tick or render thread
+            if (cutscene.getCameraConfigLocation() != null && cutscene.getCameraPath() == null) {
+                cutscene.setCameraPath(loadCameraConfig(resourceManager, cutscene.getCameraConfigLocation()));
+            }
+            
+            if (bake) {
+                bakeTracks(cutscene);
+            }
+            
+            // Compile now as well, so the first playback doesn't have to
+            cutscene.compile();
+            
             CutScenesLib.LOGGER.info("Successfully loaded cutscene: {}", location);
             return cutscene;
             
@@ -106,6 +142,127 @@ public class CutsceneLoader {
         }
     }
     
+    /**
+     * Bake a loaded cutscene's Gecko animations and Blockbench camera
+     * 
+     * Loading off the client thread leaves this out, since baking reads
+     * GeckoLib's shared bones and MoLang variables while the render thread
+     * animates them. Animations GeckoLib hasn't loaded yet are baked when
+     * the cutscene is prewarmed.
+     * 
+     * Client thread only.
+     * 
+     * @param cutscene The cutscene to bake
+     */
+    public static void bakeAnimations(Cutscene cutscene) {
+        // The compiled cutscene holds the camera track, so it's out of date once one is baked
+        if (bakeTracks(cutscene)) {
+            cutscene.compile();
+        }
+    }
+    
+    /**
+     * Bake every Gecko model's animation, then the first camera bone's moves
+     * 
+     * @return true if a camera track was baked
+     */
+    private static boolean bakeTracks(Cutscene cutscene) {
+        for (SceneModel model : cutscene.getModels()) {
+            // Not loaded yet; it's baked when first shown
+            if (model instanceof GeckoSceneModel geckoModel && geckoModel.getCurrentAnimation() != null && !geckoModel.bakeAnimation()) {
+                CutScenesLib.LOGGER.debug("Animation {} of {} not loaded yet, baking on first render", geckoModel.getCurrentAnimation(), geckoModel.getId());
+            }
+        }
+        
+        // Blockbench camera: precompute the first camera bone's moves
+        for (SceneModel model : cutscene.getModels()) {
+            if (model instanceof GeckoSceneModel geckoModel) {
+                CameraTrack cameraTrack = CameraTrack.bake(geckoModel, cutscene.getDuration());
+                if (cameraTrack != null) {
+                    cutscene.setCameraTrack(cameraTrack);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Compile a cutscene into a self-contained asset for sending to clients
+     * 
+     * The external camera config is inlined and the JSON is written without
+     * whitespace, so the client can parse it without the server's resources
+     * and the bytes hash the same every time the source is unchanged.
+     * 
+     * @param resourceManager The resource manager to load from
+     * @param location The resource location (e.g., "mymod:intro")
+     * @return The compiled asset, or null if loading failed
+     */
+    public static byte[] compileCutscene(ResourceManager resourceManager, ResourceLocation location) {
+        ResourceLocation filePath = ResourceLocation.fromNamespaceAndPath(
+                location.getNamespace(),
+                "cutscenes/" + location.getPath() + "/cutscene.json"
+        );
+        
+        try {
+            Optional<Resource> resourceOpt = resourceManager.getResource(filePath);
+            if (resourceOpt.isEmpty()) {
+                CutScenesLib.LOGGER.error("Cutscene file not found: {}", filePath);
+                return null;
+            }
+            
+            JsonObject json;
+            try (BufferedReader reader = resourceOpt.get().openAsReader()) {
+                json = JsonParser.parseReader(reader).getAsJsonObject();
+            }
+            
+            if (json.has("cameraConfig")) {
+                ResourceLocation cameraLocation = ResourceLocation.parse(json.remove("cameraConfig").getAsString());
+                Optional<Resource> cameraOpt = resourceManager.getResource(cameraLocation);
+                if (cameraOpt.isPresent()) {
+                    try (BufferedReader reader = cameraOpt.get().openAsReader()) {
+                        json.add("camera", JsonParser.parseReader(reader));
+                    }
+                } else {
+                    CutScenesLib.LOGGER.warn("Camera config {} for cutscene {} not found", cameraLocation, location);
+                }
+            }
+            
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            CutScenesLib.LOGGER.error("Failed to compile cutscene: {}", location, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Load a cutscene from a compiled asset
+     * 
+     * Safe off the client thread: nothing is baked, so call
+     * {@link #bakeAnimations} on the client thread before playing it.
+     * 
+     * @param data The asset produced by {@link #compileCutscene}
+     * @param id The ID of the cutscene
+     * @return The loaded cutscene, or null if parsing failed
+     */
+    public static Cutscene loadCompiledCutscene(byte[] data, ResourceLocation id) {
+        try {
+            JsonObject json = JsonParser.parseString(new String(data, StandardCharsets.UTF_8)).getAsJsonObject();
+            Cutscene cutscene = parseCutscene(json, id);
+            
+            // Tracks aren't distributed, only recorded, so streams play only where the track is
+            for (StreamedActor stream : cutscene.getStreams()) {
+                if (!Files.isRegularFile(stream.getTrack())) {
+                    CutScenesLib.LOGGER.warn("Streamed actor {} of {} won't show: track {} isn't on this client", stream.getId(), id, stream.getTrack());
+                }
+            }
+            return cutscene;
+        } catch (Exception e) {
+            CutScenesLib.LOGGER.error("Failed to load compiled cutscene: {}", id, e);
+            return null;
+        }
+    }
+    
     /**
      * Parse a JSON object into a Cutscene
      */
@@ -138,6 +295,17 @@ public class CutsceneLoader {
             }
         }
         
+        // Start settings
+        if (json.has("start")) {
+            JsonObject start = json.getAsJsonObject("start");
+            if (start.has("timeout")) {
+                cutscene.setPrewarmTimeout(start.get("timeout").getAsFloat());
+            }
+            if (start.has("fade")) {
+                cutscene.setFadeDuration(start.get("fade").getAsFloat());
+            }
+        }
+        
         // Recording settings
         if (json.has("recording")) {
             cutscene.setRecording(true);
@@ -146,7 +314,7 @@ public class CutsceneLoader {
         
         // External Camera Config Support
         if (json.has("cameraConfig")) {
-            cutscene.setCameraConfigLocation(new ResourceLocation(json.get("cameraConfig").getAsString()));
+            cutscene.setCameraConfigLocation(ResourceLocation.parse(json.get("cameraConfig").getAsString()));
         } else if (json.has("camera")) {
             cutscene.setCameraPath(parseCameraPath(json.getAsJsonObject("camera")));
         }
@@ -159,14 +327,131 @@ public class CutsceneLoader {
             }
         }
         
+        // Instanced crowds of extras
+        if (json.has("crowds")) {
+            for (JsonElement crowdElement : json.getAsJsonArray("crowds")) {
+                cutscene.addCrowd(parseCrowd(crowdElement.getAsJsonObject()));
+            }
+        }
+        
+        // Actors streamed from recorded tracks
+        if (json.has("streams")) {
+            for (JsonElement streamElement : json.getAsJsonArray("streams")) {
+                StreamedActor stream = parseStream(streamElement.getAsJsonObject());
+                if (stream != null) {
+                    cutscene.addStream(stream);
+                }
+            }
+        }
+        
+        // Entity keyframes
+        if (json.has("frames")) {
+            JsonArray framesArray = json.getAsJsonArray("frames");
+            for (JsonElement frameElement : framesArray) {
+                cutscene.addFrame(parseFrame(frameElement.getAsJsonObject()));
+            }
+        }
+        
+        // Player skin mapping
+        if (json.has("skinMapping")) {
+            cutscene.setSkinMapping(parseSkinMapping(json.getAsJsonObject("skinMapping")));
+        }
+        
         return cutscene;
     }
+    
+    /**
+     * Parse a scene model from JSON
+     * 
+     * Entries with a "geometry" are GeckoLib models, anything else is a
+     * plain Blockbench model referenced by "model".
+     */
+    private static SceneModel parseSceneModel(JsonObject json) {
+        SceneModel model;
+        if (json.has("geometry")) {
+            model = parseGeckoModel(json);
+        } else {
+            model = new SceneModel(json.get("id").getAsString(), ResourceLocation.parse(json.get("model").getAsString()));
+            if (json.has("texture")) {
+                model.setTextureLocation(ResourceLocation.parse(json.get("texture").getAsString()));
+            }
+            if (json.has("animation")) {
+                model.setCurrentAnimation(json.get("animation").getAsString());
+            }
+        }
+        
+        if (json.has("position")) {
+            model.setPosition(parseVector3f(json.getAsJsonArray("position")));
+        }
+        
+        if (json.has("rotation")) {
+            model.setRotation(parseVector3f(json.getAsJsonArray("rotation")));
+        }
+        
+        if (json.has("scale")) {
+            JsonElement scaleElement = json.get("scale");
+            if (scaleElement.isJsonArray()) {
+                model.setScale(parseVector3f(scaleElement.getAsJsonArray()));
+            } else {
+                float scale = scaleElement.getAsFloat();
+                model.setScale(new Vector3f(scale, scale, scale));
+            }
+        }
+        
+        if (json.has("usePlayerSkin")) {
+            model.setUsePlayerSkin(json.get("usePlayerSkin").getAsBoolean());
+        }
+        
+        if (json.has("skinTextureName")) {
+            model.setSkinTextureName(json.get("skinTextureName").getAsString());
+        }
+        
+        if (json.has("lod")) {
+            List<ModelLod> lods = new ArrayList<>();
+            JsonArray lodArray = json.getAsJsonArray("lod");
+            for (int i = 0; i < lodArray.size(); i++) {
+                lods.add(parseModelLod(lodArray.get(i).getAsJsonObject(), i));
+            }
+            lods.sort((a, b) -> Float.compare(b.getScreenSize(), a.getScreenSize()));
+            model.setLods(lods);
+        }
+        
+        return model;
+    }
+    
+    /**
+     * Parse a level of detail
+     * 
+     * Levels without an "animationInterval" animate every 2nd, 4th, 8th...
+     * frame, going by their position in the list.
+     */
+    private static ModelLod parseModelLod(JsonObject json, int index) {
+        float screenSize = json.get("screenSize").getAsFloat();
+        
+        ResourceLocation geometry = null;
+        if (json.has("geometry")) {
+            geometry = ResourceLocation.parse(json.get("geometry").getAsString());
+        }
+        
+        Set<String> hiddenBones = new HashSet<>();
+        if (json.has("hideBones")) {
+            for (JsonElement bone : json.getAsJsonArray("hideBones")) {
+                hiddenBones.add(bone.getAsString());
+            }
+        }
+        
+        int animationInterval = json.has("animationInterval")
+                ? json.get("animationInterval").getAsInt()
+                : 2 << Math.min(index, 3);
+        
+        return new ModelLod(screenSize, geometry, hiddenBones, animationInterval);
+    }
 
     private static GeckoSceneModel parseGeckoModel(JsonObject json) {
         String id = json.get("id").getAsString();
-        ResourceLocation geo = new ResourceLocation(json.get("geometry").getAsString());
-        ResourceLocation anim = new ResourceLocation(json.get("animation_file").getAsString());
-        ResourceLocation tex = new ResourceLocation(json.get("texture").getAsString());
+        ResourceLocation geo = ResourceLocation.parse(json.get("geometry").getAsString());
+        ResourceLocation anim = ResourceLocation.parse(json.get("animation_file").getAsString());
+        ResourceLocation tex = ResourceLocation.parse(json.get("texture").getAsString());
         
         GeckoSceneModel model = new GeckoSceneModel(id, geo, anim, tex);
         
@@ -178,13 +463,68 @@ public class CutsceneLoader {
         if (json.has("bone_mappings")) {
             JsonObject mappings = json.getAsJsonObject("bone_mappings");
             for (String boneName : mappings.keySet()) {
-                model.mapTextureToBone(boneName, new ResourceLocation(mappings.get(boneName).getAsString()));
+                model.mapTextureToBone(boneName, ResourceLocation.parse(mappings.get(boneName).getAsString()));
             }
         }
         
         return model;
     }
     
+    /**
+     * Parse a crowd of instanced GeckoLib models
+     * 
+     * Each instance has a "position" and optionally a "yaw", "scale" and
+     * "timeOffset" into the crowd's animation.
+     */
+    private static CrowdActor parseCrowd(JsonObject json) {
+        JsonArray instances = json.getAsJsonArray("instances");
+        int count = instances.size();
+        float[] positions = new float[count * 3];
+        float[] yaws = new float[count];
+        float[] scales = new float[count];
+        float[] timeOffsets = new float[count];
+        
+        for (int i = 0; i < count; i++) {
+            JsonObject instance = instances.get(i).getAsJsonObject();
+            JsonArray position = instance.getAsJsonArray("position");
+            positions[i * 3] = position.get(0).getAsFloat();
+            positions[i * 3 + 1] = position.get(1).getAsFloat();
+            positions[i * 3 + 2] = position.get(2).getAsFloat();
+            yaws[i] = instance.has("yaw") ? instance.get("yaw").getAsFloat() : 0.0f;
+            scales[i] = instance.has("scale") ? instance.get("scale").getAsFloat() : 1.0f;
+            timeOffsets[i] = instance.has("timeOffset") ? instance.get("timeOffset").getAsFloat() : 0.0f;
+        }
+        
+        return new CrowdActor(
+                json.get("id").getAsString(),
+                ResourceLocation.parse(json.get("geometry").getAsString()),
+                ResourceLocation.parse(json.get("animation_file").getAsString()),
+                ResourceLocation.parse(json.get("texture").getAsString()),
+                json.has("animation") ? json.get("animation").getAsString() : null,
+                positions, yaws, scales, timeOffsets);
+    }
+    
+    /**
+     * Parse an actor streamed from a recorded track
+     * 
+     * "track" names a file in the recordings folder, as written by
+     * {@code /cslib record}.
+     */
+    private static StreamedActor parseStream(JsonObject json) {
+        String id = json.get("id").getAsString();
+        String track = json.get("track").getAsString();
+        if (!RecordingManager.isValidName(track)) {
+            CutScenesLib.LOGGER.warn("Skipping stream {}: invalid track name {}", id, track);
+            return null;
+        }
+        
+        return new StreamedActor(
+                id,
+                json.has("model") ? json.get("model").getAsString() : "player",
+                RecordingManager.getTrackPath(track),
+                json.has("usePlayerSkin") && json.get("usePlayerSkin").getAsBoolean());
+    }
+    
     /**
      * Load an external camera configuration
      */
@@ -224,7 +564,11 @@ public class CutsceneLoader {
                 Vector3f position = parseVector3f(kf.getAsJsonArray("position"));
                 Vector3f rotation = parseVector3f(kf.getAsJsonArray("rotation"));
                 
-                path.addKeyframe(new CameraPath.CameraKeyframe(time, position, rotation));
+                CameraPath.CameraKeyframe keyframe = new CameraPath.CameraKeyframe(time, position, rotation);
+                if (kf.has("easing")) {
+                    keyframe.setEasing(parseEasing(kf.get("easing")));
+                }
+                path.addKeyframe(keyframe);
             }
         }
         
@@ -238,6 +582,10 @@ public class CutsceneLoader {
         float time = json.get("time").getAsFloat();
         CutsceneFrame frame = new CutsceneFrame(time);
         
+        if (json.has("easing")) {
+            frame.setEasing(parseEasing(json.get("easing")));
+        }
+        
         if (json.has("entities")) {
             JsonArray entitiesArray = json.getAsJsonArray("entities");
             for (JsonElement entityElement : entitiesArray) {
@@ -285,9 +633,43 @@ public class CutsceneLoader {
             entity.setUsePlayerSkin(json.get("usePlayerSkin").getAsBoolean());
         }
         
+        if (json.has("easing")) {
+            entity.setEasing(parseEasing(json.get("easing")));
+        }
+        
         return entity;
     }
     
+    /**
+     * Parse an easing from JSON
+     * 
+     * Either a name ("ease-in-out", "bounce-out", ...; see {@link Easing#byName}),
+     * {"bezier": [x1, y1, x2, y2]} or {"steps": n, "jump": "start" | "end"}.
+     * Curves are tabulated here, so nothing is solved during playback.
+     */
+    private static Easing parseEasing(JsonElement element) {
+        if (element.isJsonPrimitive()) {
+            String name = element.getAsString();
+            Easing easing = Easing.byName(name);
+            if (easing == null) {
+                throw new JsonParseException("Unknown easing: " + name);
+            }
+            return easing;
+        }
+        
+        JsonObject json = element.getAsJsonObject();
+        if (json.has("bezier")) {
+            JsonArray points = json.getAsJsonArray("bezier");
+            return Easing.cubicBezier(points.get(0).getAsFloat(), points.get(1).getAsFloat(),
+                    points.get(2).getAsFloat(), points.get(3).getAsFloat());
+        }
+        if (json.has("steps")) {
+            boolean jumpStart = json.has("jump") && json.get("jump").getAsString().equals("start");
+            return Easing.steps(json.get("steps").getAsInt(), jumpStart);
+        }
+        throw new JsonParseException("Easing needs a name, \"bezier\" or \"steps\"");
+    }
+    
     /**
      * Parse skin mapping from JSON
      */
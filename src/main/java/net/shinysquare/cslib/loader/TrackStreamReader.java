@@ -0,0 +1,243 @@
+package net.shinysquare.cslib.loader;
+
+import net.minecraft.Util;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Plays back a transform track written by {@link TrackStreamWriter}
+ * without loading all of it
+ * 
+ * Only a window of two blocks is resident: the block under the playhead and
+ * the one after it, which is read on a background thread as soon as the
+ * playhead enters a block. Memory is the same however long the track is.
+ * Moving to a block that isn't resident (a seek, or a prefetch that hasn't
+ * finished) reads just that block, on the calling thread.
+ * 
+ * The file is opened on first use and can be closed and reopened at any
+ * time. Owned by one thread (the tick thread of its timeline), apart from
+ * the prefetch, which only writes to a buffer that thread isn't reading.
+ * 
+ * @author ShinySquare
+ */
+public class TrackStreamReader implements AutoCloseable {
+    
+    static final int MAGIC = 0x4353544B; // "CSTK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 6 * Integer.BYTES;
+    
+    /** Floats per sample: position, then rotation */
+    public static final int CHANNELS = 6;
+    
+    private final Path path;
+    
+    private FileChannel channel;
+    private float sampleRate;
+    private int blockSamples;
+    private int sampleCount;
+    private int blockCount;
+    
+    // The window: two buffers and the block each holds (-1 = none)
+    private final float[][] buffers = new float[2][];
+    private final ByteBuffer[] byteBuffers = new ByteBuffer[2];
+    private final int[] blocks = {-1, -1};
+    
+    /** Background read in flight, and the buffer it fills */
+    private CompletableFuture<Void> prefetch;
+    private int prefetchSlot = -1;
+    
+    /** Whether opening already failed (logged once, not retried) */
+    private boolean failed;
+    
+    public TrackStreamReader(Path path) {
+        this.path = path;
+    }
+    
+    /**
+     * Read the track at a point in time
+     * 
+     * @param time Playback time in seconds
+     * @param dest Receives {@link #CHANNELS} floats
+     * @return false if the track is empty or couldn't be read
+     */
+    public boolean sample(double time, float[] dest) {
+        if (!open() || sampleCount == 0) {
+            return false;
+        }
+        
+        double position = Math.max(0.0, time * sampleRate);
+        int index = Math.min((int) position, sampleCount - 1);
+        float alpha = index == sampleCount - 1 ? 0.0f : (float) (position - index);
+        
+        // The last sample may be the overlap at the end of the last block
+        int block = Math.min(index / blockSamples, blockCount - 1);
+        float[] data = acquire(block);
+        if (data == null) {
+            return false;
+        }
+        
+        // Blocks overlap by one sample, so the next sample is always here
+        int a = (index - block * blockSamples) * CHANNELS;
+        int b = alpha > 0.0f ? a + CHANNELS : a;
+        for (int c = 0; c < CHANNELS; c++) {
+            dest[c] = data[a + c] + (data[b + c] - data[a + c]) * alpha;
+        }
+        return true;
+    }
+    
+    /**
+     * Release the file and the window (reopened on the next sample)
+     */
+    @Override
+    public void close() {
+        awaitPrefetch();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                CutScenesLib.LOGGER.warn("Failed to close track stream {}", path, e);
+            }
+            channel = null;
+        }
+        buffers[0] = buffers[1] = null;
+        byteBuffers[0] = byteBuffers[1] = null;
+        blocks[0] = blocks[1] = -1;
+    }
+    
+    private boolean open() {
+        if (channel != null) {
+            return true;
+        }
+        if (failed) {
+            return false;
+        }
+        
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0L);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a track stream");
+            }
+            sampleRate = header.getFloat();
+            if (header.getInt() != CHANNELS) {
+                throw new IOException("Unsupported channel count");
+            }
+            blockSamples = header.getInt();
+            sampleCount = header.getInt();
+            blockCount = sampleCount <= 1 ? sampleCount : (sampleCount - 2) / blockSamples + 1;
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.error("Failed to open track stream {}", path, e);
+            failed = true;
+            close();
+            return false;
+        }
+        
+        int floats = (blockSamples + 1) * CHANNELS;
+        for (int i = 0; i < 2; i++) {
+            buffers[i] = new float[floats];
+            byteBuffers[i] = ByteBuffer.allocate(floats * Float.BYTES);
+        }
+        return true;
+    }
+    
+    /**
+     * Get a block's samples, reading it if it isn't in the window
+     */
+    private float[] acquire(int block) {
+        int slot = blocks[0] == block ? 0 : blocks[1] == block ? 1 : -1;
+        if (slot >= 0 && slot == prefetchSlot) {
+            awaitPrefetch();
+            slot = blocks[slot] == block ? slot : -1;
+        }
+        
+        if (slot < 0) {
+            // Off the window (a seek): read just this block, keeping its successor if resident
+            awaitPrefetch();
+            slot = blocks[0] == block + 1 ? 1 : 0;
+            try {
+                readBlock(block, slot);
+                blocks[slot] = block;
+            } catch (IOException e) {
+                CutScenesLib.LOGGER.error("Failed to read block {} of track stream {}", block, path, e);
+                blocks[slot] = -1;
+                return null;
+            }
+        }
+        
+        prefetchNext(block, slot);
+        return buffers[slot];
+    }
+    
+    /**
+     * Start reading the block after the current one into the other buffer
+     */
+    private void prefetchNext(int block, int slot) {
+        int next = block + 1;
+        int other = 1 - slot;
+        if (next >= blockCount || blocks[other] == next || prefetch != null) {
+            return;
+        }
+        
+        // Marked before the read starts; a failed read unmarks it when awaited
+        blocks[other] = next;
+        prefetchSlot = other;
+        prefetch = CompletableFuture.runAsync(() -> {
+            try {
+                readBlock(next, other);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, Util.ioPool());
+    }
+    
+    private void awaitPrefetch() {
+        if (prefetch == null) {
+            return;
+        }
+        
+        try {
+            prefetch.join();
+        } catch (CompletionException e) {
+            CutScenesLib.LOGGER.warn("Failed to prefetch block {} of track stream {}", blocks[prefetchSlot], path, e.getCause());
+            blocks[prefetchSlot] = -1;
+        } finally {
+            prefetch = null;
+            prefetchSlot = -1;
+        }
+    }
+    
+    private void readBlock(int block, int slot) throws IOException {
+        int samples = Math.min(blockSamples + 1, sampleCount - block * blockSamples);
+        ByteBuffer bytes = byteBuffers[slot];
+        bytes.clear().limit(samples * CHANNELS * Float.BYTES);
+        readFully(bytes, blockOffset(block, blockSamples));
+        bytes.flip();
+        bytes.asFloatBuffer().get(buffers[slot], 0, samples * CHANNELS);
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Track stream ended early");
+            }
+            position += read;
+        }
+    }
+    
+    /**
+     * Get where a block starts in the file
+     */
+    static long blockOffset(int block, int blockSamples) {
+        return HEADER_SIZE + (long) block * (blockSamples + 1) * CHANNELS * Float.BYTES;
+    }
+}
@@ -0,0 +1,140 @@
+package net.shinysquare.cslib.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a transform track to disk in time-ordered blocks
+ * 
+ * File layout (big-endian):
+ * - Header: magic, version, sample rate, channels, samples per block,
+ *   sample count ({@link TrackStreamReader#HEADER_SIZE} bytes)
+ * - Blocks of {@code samplesPerBlock + 1} samples each, at fixed offsets.
+ *   Block k holds samples k * samplesPerBlock up to and including the first
+ *   sample of block k + 1, so any two neighbouring samples are in the same
+ *   block. The last block stops at the last sample.
+ * 
+ * A sample is {@link TrackStreamReader#CHANNELS} floats: position, then
+ * rotation (pitch, yaw, roll in degrees).
+ * 
+ * Samples are written a block at a time as they are appended, so recording
+ * holds one block in memory however long it runs. The sample count is
+ * written into the header on {@link #close()}.
+ * 
+ * @author ShinySquare
+ */
+public class TrackStreamWriter implements AutoCloseable {
+    
+    /** Samples per block when not given */
+    public static final int DEFAULT_BLOCK_SAMPLES = 256;
+    
+    private final FileChannel channel;
+    private final float sampleRate;
+    private final int blockSamples;
+    
+    /** The block being filled */
+    private final float[] block;
+    private final ByteBuffer bytes;
+    
+    /** Samples in the block being filled (the first is the last block's overlap) */
+    private int count;
+    
+    /** Blocks written so far */
+    private int blocksWritten;
+    
+    /** Samples appended so far */
+    private int sampleCount;
+    
+    /**
+     * Create a track file, replacing any existing one
+     * 
+     * @param path The file to write
+     * @param sampleRate Samples per second of cutscene time
+     * @param blockSamples Samples per block
+     */
+    public TrackStreamWriter(Path path, float sampleRate, int blockSamples) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.sampleRate = sampleRate;
+        this.blockSamples = blockSamples;
+        this.block = new float[(blockSamples + 1) * TrackStreamReader.CHANNELS];
+        this.bytes = ByteBuffer.allocate(block.length * Float.BYTES);
+        writeHeader();
+    }
+    
+    /**
+     * Append the next sample
+     */
+    public void append(float x, float y, float z, float pitch, float yaw, float roll) throws IOException {
+        int o = count * TrackStreamReader.CHANNELS;
+        block[o] = x;
+        block[o + 1] = y;
+        block[o + 2] = z;
+        block[o + 3] = pitch;
+        block[o + 4] = yaw;
+        block[o + 5] = roll;
+        count++;
+        sampleCount++;
+        
+        if (count == blockSamples + 1) {
+            writeBlock();
+            
+            // The last sample also starts the next block
+            System.arraycopy(block, blockSamples * TrackStreamReader.CHANNELS, block, 0, TrackStreamReader.CHANNELS);
+            count = 1;
+        }
+    }
+    
+    /**
+     * Get the number of samples appended so far
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+    
+    /**
+     * Write what is left of the last block and the final header
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            // A lone carried-over sample was already written as the end of the last block
+            if (count > 1 || (blocksWritten == 0 && count > 0)) {
+                writeBlock();
+            }
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TrackStreamReader.HEADER_SIZE);
+        header.putInt(TrackStreamReader.MAGIC)
+                .putInt(TrackStreamReader.VERSION)
+                .putFloat(sampleRate)
+                .putInt(TrackStreamReader.CHANNELS)
+                .putInt(blockSamples)
+                .putInt(sampleCount)
+                .flip();
+        writeFully(header, 0L);
+    }
+    
+    private void writeBlock() throws IOException {
+        bytes.clear();
+        bytes.asFloatBuffer().put(block, 0, count * TrackStreamReader.CHANNELS);
+        bytes.limit(count * TrackStreamReader.CHANNELS * Float.BYTES);
+        writeFully(bytes, TrackStreamReader.blockOffset(blocksWritten, blockSamples));
+        blocksWritten++;
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Server to client: one chunk of a compiled cutscene asset
+ * 
+ * Chunks of an asset are sent in order. The client assembles them and
+ * checks the result against the hash from the manifest. Each chunk carries
+ * that hash too, so chunks of an asset the server has since replaced are
+ * never mixed into a download of the new one.
+ * 
+ * @param cutsceneId The cutscene the chunk belongs to
+ * @param hash SHA-1 of the whole asset
+ * @param totalSize Size of the whole asset in bytes
+ * @param offset Offset of this chunk in the asset
+ * @param data The chunk's bytes
+ * 
+ * @author ShinySquare
+ */
+public record AssetChunkPayload(ResourceLocation cutsceneId, byte[] hash, int totalSize, int offset, byte[] data) implements CustomPacketPayload {
+    
+    /** Largest chunk the server sends */
+    public static final int MAX_CHUNK_SIZE = 32 * 1024;
+    
+    /** Largest asset the server sends or the client accepts */
+    public static final int MAX_ASSET_SIZE = 8 * 1024 * 1024;
+    
+    public static final CustomPacketPayload.Type<AssetChunkPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "asset_chunk"));
+    
+    public static final StreamCodec<ByteBuf, AssetChunkPayload> STREAM_CODEC = StreamCodec.composite(
+            ResourceLocation.STREAM_CODEC, AssetChunkPayload::cutsceneId,
+            ByteBufCodecs.byteArray(AssetHash.LENGTH), AssetChunkPayload::hash,
+            ByteBufCodecs.VAR_INT, AssetChunkPayload::totalSize,
+            ByteBufCodecs.VAR_INT, AssetChunkPayload::offset,
+            ByteBufCodecs.byteArray(MAX_CHUNK_SIZE), AssetChunkPayload::data,
+            AssetChunkPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,41 @@
+package net.shinysquare.cslib.network;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hashes for cutscene assets
+ * 
+ * @author ShinySquare
+ */
+public final class AssetHash {
+    
+    /** Length of a hash in bytes (SHA-1) */
+    public static final int LENGTH = 20;
+    
+    private AssetHash() {
+    }
+    
+    /**
+     * Hash an asset
+     * 
+     * @param data The asset's bytes
+     * @return The SHA-1 of the data
+     */
+    public static byte[] of(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Format a hash as lowercase hex, used as the cache file name
+     */
+    public static String toHex(byte[] hash) {
+        return HexFormat.of().formatHex(hash);
+    }
+}
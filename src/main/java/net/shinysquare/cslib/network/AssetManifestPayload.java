@@ -0,0 +1,53 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.util.List;
+
+/**
+ * Server to client: every cutscene the server provides and its content hash
+ * 
+ * Sent at login and after a reload. The client compares the hashes with
+ * its disk cache and only asks for what it doesn't have.
+ * 
+ * @param entries The cutscenes the server provides
+ * 
+ * @author ShinySquare
+ */
+public record AssetManifestPayload(List<Entry> entries) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<AssetManifestPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "asset_manifest"));
+    
+    public static final StreamCodec<ByteBuf, AssetManifestPayload> STREAM_CODEC = StreamCodec.composite(
+            Entry.STREAM_CODEC.apply(ByteBufCodecs.list()), AssetManifestPayload::entries,
+            AssetManifestPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+    
+    /**
+     * A cutscene the server provides
+     * 
+     * @param cutsceneId The cutscene ID
+     * @param hash SHA-1 of the compiled asset
+     * @param size Size of the compiled asset in bytes
+     */
+    public record Entry(ResourceLocation cutsceneId, byte[] hash, int size) {
+        
+        public static final StreamCodec<ByteBuf, Entry> STREAM_CODEC = StreamCodec.composite(
+                ResourceLocation.STREAM_CODEC, Entry::cutsceneId,
+                ByteBufCodecs.byteArray(AssetHash.LENGTH), Entry::hash,
+                ByteBufCodecs.VAR_INT, Entry::size,
+                Entry::new
+        );
+    }
+}
@@ -0,0 +1,305 @@
+package net.shinysquare.cslib.network;
+
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutsceneManager;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.loader.CutsceneLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client side of cutscene asset distribution
+ * 
+ * Assets are cached on disk by content hash (.minecraft/cslib/cache/[sha1]),
+ * so the cache is shared between servers and survives restarts. When the
+ * manifest arrives, cached assets are read and parsed on the IO pool and
+ * only missing or stale ones are requested. Downloads run in the background
+ * while the player plays; finished cutscenes are registered on the main
+ * thread as soon as they arrive.
+ * 
+ * Chunks are checked against the manifest before they are used: they must
+ * carry the hash being downloaded and arrive in order within the size the
+ * manifest gave, or the download is dropped. A download that fails its hash
+ * check is requested again, up to {@link #MAX_ATTEMPTS} times.
+ * 
+ * @author ShinySquare
+ */
+public final class ClientAssetCache {
+    
+    /** Times an asset is requested before giving up on it */
+    private static final int MAX_ATTEMPTS = 3;
+    
+    /** Downloads in progress, by cutscene ID (main thread only) */
+    private static final Map<ResourceLocation, Download> downloads = new HashMap<>();
+    
+    /** Hash of the asset each server cutscene was last loaded from (main thread only) */
+    private static final Map<ResourceLocation, String> loadedHashes = new HashMap<>();
+    
+    /** Locally loaded cutscenes a server cutscene replaced, put back on logout (main thread only) */
+    private static final Map<ResourceLocation, Cutscene> shadowed = new HashMap<>();
+    
+    private ClientAssetCache() {
+    }
+    
+    /**
+     * Load what the cache has and request the rest
+     */
+    public static void handleManifest(AssetManifestPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            List<AssetManifestPayload.Entry> changed = new ArrayList<>();
+            for (AssetManifestPayload.Entry entry : payload.entries()) {
+                if (!AssetHash.toHex(entry.hash()).equals(loadedHashes.get(entry.cutsceneId()))) {
+                    changed.add(entry);
+                }
+            }
+            
+            if (changed.isEmpty()) {
+                return;
+            }
+            
+            // Disk reads and parsing stay off the main thread
+            CompletableFuture.supplyAsync(() -> loadCached(changed), Util.ioPool())
+                    .thenAcceptAsync(loaded -> {
+                        List<ResourceLocation> missing = new ArrayList<>();
+                        for (AssetManifestPayload.Entry entry : changed) {
+                            Cutscene cutscene = loaded.get(entry.cutsceneId());
+                            Download current = downloads.get(entry.cutsceneId());
+                            if (cutscene != null) {
+                                downloads.remove(entry.cutsceneId());
+                                register(entry.cutsceneId(), entry.hash(), cutscene);
+                            } else if (current != null && Arrays.equals(current.hash, entry.hash())) {
+                                // Already on its way
+                                continue;
+                            } else if (entry.size() <= 0 || entry.size() > AssetChunkPayload.MAX_ASSET_SIZE) {
+                                CutScenesLib.LOGGER.warn("Not downloading cutscene {}: size {} is out of range", entry.cutsceneId(), entry.size());
+                                downloads.remove(entry.cutsceneId());
+                            } else {
+                                downloads.put(entry.cutsceneId(), new Download(entry.hash(), entry.size()));
+                                missing.add(entry.cutsceneId());
+                            }
+                        }
+                        
+                        CutScenesLib.LOGGER.info("Loaded {} cutscenes from cache, downloading {}", loaded.size(), missing.size());
+                        for (int i = 0; i < missing.size(); i += RequestAssetsPayload.MAX_IDS) {
+                            PacketDistributor.sendToServer(new RequestAssetsPayload(
+                                    List.copyOf(missing.subList(i, Math.min(i + RequestAssetsPayload.MAX_IDS, missing.size())))));
+                        }
+                    }, Minecraft.getInstance());
+        });
+    }
+    
+    /**
+     * Add a downloaded chunk, finishing the asset once all of it arrived
+     */
+    public static void handleChunk(AssetChunkPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            ResourceLocation id = payload.cutsceneId();
+            Download download = downloads.get(id);
+            
+            // Chunks of another version of the asset, or arriving while the last one is verified
+            if (download == null || download.verifying || !Arrays.equals(download.hash, payload.hash())) {
+                return;
+            }
+            
+            int length = payload.data().length;
+            if (payload.totalSize() != download.size || payload.offset() != download.received
+                    || length == 0 || length > download.size - download.received) {
+                CutScenesLib.LOGGER.error("Dropping download of cutscene {}: bad chunk (size {}, offset {}, length {})", id, payload.totalSize(), payload.offset(), length);
+                downloads.remove(id);
+                return;
+            }
+            
+            if (download.data == null) {
+                download.data = new byte[download.size];
+            }
+            System.arraycopy(payload.data(), 0, download.data, payload.offset(), length);
+            download.received += length;
+            
+            if (download.received < download.size) {
+                return;
+            }
+            
+            // Kept in the map while verifying, so it still counts as downloading
+            download.verifying = true;
+            byte[] data = download.data;
+            byte[] hash = download.hash;
+            
+            CompletableFuture.supplyAsync(() -> AssetHash.of(data), Util.ioPool())
+                    .thenAcceptAsync(actual -> {
+                        // Replaced by a newer manifest in the meantime
+                        if (downloads.get(id) != download) {
+                            return;
+                        }
+                        if (!Arrays.equals(actual, hash)) {
+                            CutScenesLib.LOGGER.warn("Downloaded cutscene {} doesn't match its hash", id);
+                            retry(id, download);
+                            return;
+                        }
+                        
+                        downloads.remove(id);
+                        CompletableFuture.supplyAsync(() -> store(id, hash, data), Util.ioPool())
+                                .thenAcceptAsync(cutscene -> {
+                                    if (cutscene != null) {
+                                        register(id, hash, cutscene);
+                                    }
+                                }, Minecraft.getInstance());
+                    }, Minecraft.getInstance());
+        });
+    }
+    
+    /**
+     * Start a download over, or give up on it after {@link #MAX_ATTEMPTS}
+     */
+    private static void retry(ResourceLocation id, Download download) {
+        if (download.attempts >= MAX_ATTEMPTS) {
+            CutScenesLib.LOGGER.error("Giving up on downloading cutscene {} after {} attempts", id, download.attempts);
+            downloads.remove(id);
+            return;
+        }
+        
+        download.attempts++;
+        download.data = null;
+        download.received = 0;
+        download.verifying = false;
+        PacketDistributor.sendToServer(new RequestAssetsPayload(List.of(id)));
+    }
+    
+    /**
+     * Check if a cutscene is still being downloaded
+     * 
+     * @param id The cutscene ID
+     */
+    public static boolean isDownloading(ResourceLocation id) {
+        return downloads.containsKey(id);
+    }
+    
+    /**
+     * Forget the server's cutscenes when leaving it
+     * 
+     * Each one is unregistered, and any local cutscene it replaced is
+     * registered again, so the next world or server sees the client's own
+     * definitions.
+     */
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+        for (ResourceLocation id : loadedHashes.keySet()) {
+            Cutscene local = shadowed.get(id);
+            if (local != null) {
+                manager.registerCutscene(id, local);
+            } else {
+                manager.unregisterCutscene(id);
+            }
+        }
+        
+        downloads.clear();
+        loadedHashes.clear();
+        shadowed.clear();
+    }
+    
+    private static void register(ResourceLocation id, byte[] hash, Cutscene cutscene) {
+        CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+        
+        // Only the first server cutscene under an ID replaces a local one
+        if (!loadedHashes.containsKey(id)) {
+            Cutscene local = manager.getCutscene(id);
+            if (local != null) {
+                shadowed.put(id, local);
+            }
+        }
+        
+        // Parsed on the IO pool, which can't touch GeckoLib's bones
+        CutsceneLoader.bakeAnimations(cutscene);
+        manager.registerCutscene(id, cutscene);
+        loadedHashes.put(id, AssetHash.toHex(hash));
+    }
+    
+    /**
+     * Load every cached asset in the list (IO pool)
+     */
+    private static Map<ResourceLocation, Cutscene> loadCached(List<AssetManifestPayload.Entry> entries) {
+        Map<ResourceLocation, Cutscene> loaded = new HashMap<>();
+        
+        for (AssetManifestPayload.Entry entry : entries) {
+            Path file = getCacheDir().resolve(AssetHash.toHex(entry.hash()));
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            
+            try {
+                byte[] data = Files.readAllBytes(file);
+                
+                // A damaged cache file is downloaded again
+                if (!Arrays.equals(AssetHash.of(data), entry.hash())) {
+                    CutScenesLib.LOGGER.warn("Discarding corrupt cached cutscene: {}", file);
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                
+                Cutscene cutscene = CutsceneLoader.loadCompiledCutscene(data, entry.cutsceneId());
+                if (cutscene != null) {
+                    loaded.put(entry.cutsceneId(), cutscene);
+                }
+            } catch (IOException e) {
+                CutScenesLib.LOGGER.warn("Failed to read cached cutscene: {}", file, e);
+            }
+        }
+        
+        return loaded;
+    }
+    
+    /**
+     * Cache and parse a verified download (IO pool)
+     */
+    private static Cutscene store(ResourceLocation id, byte[] hash, byte[] data) {
+        try {
+            Path dir = getCacheDir();
+            Files.createDirectories(dir);
+            
+            // Write then move, so a crash never leaves a half-written file under a valid hash
+            Path temp = Files.createTempFile(dir, "download", ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, dir.resolve(AssetHash.toHex(hash)), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.warn("Failed to cache cutscene: {}", id, e);
+        }
+        
+        return CutsceneLoader.loadCompiledCutscene(data, id);
+    }
+    
+    private static Path getCacheDir() {
+        return FMLPaths.GAMEDIR.get().resolve(CutScenesLib.MOD_ID).resolve("cache");
+    }
+    
+    /**
+     * An asset being downloaded
+     */
+    private static final class Download {
+        private final byte[] hash;
+        private final int size;
+        private byte[] data;
+        private int received;
+        private boolean verifying;
+        private int attempts = 1;
+        
+        private Download(byte[] hash, int size) {
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutsceneTimeline;
+import net.shinysquare.cslib.core.LiveTrack;
+import org.joml.Quaternionf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client side of live puppeteering streams
+ * 
+ * Decodes live frames against the acknowledged baseline, writes the result
+ * into the playback's {@link LiveTrack} and acknowledges the frame so the
+ * server can encode the next one against it.
+ * 
+ * @author ShinySquare
+ */
+public final class ClientLiveStreams {
+    
+    /** Frames kept as baselines, must match the server */
+    private static final int HISTORY = 32;
+    
+    /** Ints per actor, must match the server */
+    private static final int STRIDE = 6;
+    
+    /** Running streams by stream ID (main thread only) */
+    private static final Map<Integer, Stream> streams = new HashMap<>();
+    
+    private ClientLiveStreams() {
+    }
+    
+    /**
+     * Put the playback's timeline into live-track mode
+     */
+    public static void handleStart(LiveStartPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            streams.values().removeIf(stream -> stream.timeline.isFinished());
+            
+            CutsceneTimeline timeline = ClientPlaybackHandler.getTimeline(payload.playbackId());
+            if (timeline == null) {
+                CutScenesLib.LOGGER.warn("Live stream {} is for unknown playback {}", payload.streamId(), payload.playbackId());
+                return;
+            }
+            
+            LiveTrack track = timeline.startLiveTrack(payload.actorIds());
+            streams.put(payload.streamId(), new Stream(timeline, track, payload.actorIds().size()));
+        });
+    }
+    
+    /**
+     * Decode and apply a frame, then acknowledge it
+     */
+    public static void handleFrame(LiveFramePayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            Stream stream = streams.get(payload.streamId());
+            if (stream == null || payload.sequence() <= stream.latest) {
+                return;
+            }
+            
+            int[] base;
+            if (payload.baseline() == LiveFramePayload.NO_BASELINE) {
+                base = stream.empty;
+            } else if (stream.historySequence[payload.baseline() % HISTORY] == payload.baseline()) {
+                base = stream.history[payload.baseline() % HISTORY];
+            } else {
+                // Baseline already dropped; wait for a frame we can decode
+                return;
+            }
+            
+            int slot = payload.sequence() % HISTORY;
+            int[] state = stream.history[slot];
+            decode(payload.body(), base, state);
+            stream.historySequence[slot] = payload.sequence();
+            stream.latest = payload.sequence();
+            
+            stream.apply(state);
+            PacketDistributor.sendToServer(new LiveAckPayload(payload.streamId(), payload.sequence()));
+        });
+    }
+    
+    /**
+     * Forget all streams when leaving a world
+     */
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        streams.clear();
+    }
+    
+    /**
+     * Decode a frame body on top of a copy of its baseline
+     */
+    private static void decode(byte[] body, int[] base, int[] dest) {
+        System.arraycopy(base, 0, dest, 0, base.length);
+        
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(body));
+        while (buf.isReadable()) {
+            int offset = buf.readVarInt() * STRIDE;
+            int mask = buf.readByte();
+            
+            dest[offset] = 1;
+            for (int axis = 0; axis < 3; axis++) {
+                if ((mask & (LiveFramePayload.CHANGED_X << axis)) != 0) {
+                    dest[offset + 1 + axis] = base[offset + 1 + axis] + LiveTransformCodec.unZigZag(buf.readVarInt());
+                }
+            }
+            if ((mask & LiveFramePayload.CHANGED_ROTATION) != 0) {
+                dest[offset + 4] = buf.readInt();
+            }
+            if ((mask & LiveFramePayload.CHANGED_SCALE) != 0) {
+                dest[offset + 5] = base[offset + 5] + LiveTransformCodec.unZigZag(buf.readVarInt());
+            }
+        }
+    }
+    
+    /**
+     * A live stream being received
+     */
+    private static final class Stream {
+        private final CutsceneTimeline timeline;
+        private final LiveTrack track;
+        private final int[][] history;
+        private final int[] historySequence;
+        private final int[] empty;
+        private final Quaternionf rotation = new Quaternionf();
+        private int latest = LiveFramePayload.NO_BASELINE;
+        
+        private Stream(CutsceneTimeline timeline, LiveTrack track, int actorCount) {
+            this.timeline = timeline;
+            this.track = track;
+            this.history = new int[HISTORY][actorCount * STRIDE];
+            this.historySequence = new int[HISTORY];
+            this.empty = new int[actorCount * STRIDE];
+            Arrays.fill(historySequence, LiveFramePayload.NO_BASELINE);
+        }
+        
+        private void apply(int[] state) {
+            for (int actor = 0; actor < track.getActorCount(); actor++) {
+                int offset = actor * STRIDE;
+                if (state[offset] == 0) {
+                    continue;
+                }
+                track.set(actor,
+                        LiveTransformCodec.dequantizePosition(state[offset + 1]),
+                        LiveTransformCodec.dequantizePosition(state[offset + 2]),
+                        LiveTransformCodec.dequantizePosition(state[offset + 3]),
+                        LiveTransformCodec.unpackRotation(state[offset + 4], rotation),
+                        LiveTransformCodec.dequantizeScale(state[offset + 5]));
+            }
+        }
+    }
+}
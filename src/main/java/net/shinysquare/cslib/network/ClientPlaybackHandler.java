@@ -0,0 +1,173 @@
+package net.shinysquare.cslib.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.entity.player.Player;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutsceneManager;
+import net.shinysquare.cslib.core.CutscenePlayer;
+import net.shinysquare.cslib.core.CutsceneTimeline;
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client side of server-authoritative playback
+ * 
+ * Turns start, sync and stop payloads into local timelines, and tells the
+ * server when a playback ends here. Handlers run on the main client thread
+ * through {@link IPayloadContext#enqueueWork}.
+ * 
+ * @author ShinySquare
+ */
+public final class ClientPlaybackHandler {
+    
+    /** How far the local clock may drift from the server before it is corrected, in seconds */
+    private static final double MAX_DRIFT = 0.1;
+    
+    /** Playbacks started by the server, by playback ID */
+    private static final Map<Integer, RemotePlayback> playbacks = new HashMap<>();
+    
+    private ClientPlaybackHandler() {
+    }
+    
+    /**
+     * Start every playback in the payload
+     */
+    public static void handleStart(StartPlaybackPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            Player player = Minecraft.getInstance().player;
+            if (player == null) {
+                return;
+            }
+            
+            CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+            pruneFinished();
+            
+            for (StartPlaybackPayload.Entry entry : payload.entries()) {
+                Cutscene cutscene = manager.getCutscene(entry.cutsceneId());
+                if (cutscene == null && ClientAssetCache.isDownloading(entry.cutsceneId())) {
+                    CutScenesLib.LOGGER.warn("Server started cutscene {} before it finished downloading", entry.cutsceneId());
+                    PacketDistributor.sendToServer(new PlaybackFinishedPayload(entry.playbackId()));
+                    continue;
+                }
+                if (cutscene == null) {
+                    cutscene = manager.loadCutscene(entry.cutsceneId());
+                }
+                if (cutscene == null) {
+                    CutScenesLib.LOGGER.warn("Server started unknown cutscene: {}", entry.cutsceneId());
+                    PacketDistributor.sendToServer(new PlaybackFinishedPayload(entry.playbackId()));
+                    continue;
+                }
+                
+                CutsceneTimeline timeline = new CutsceneTimeline(cutscene, entry.seed());
+                manager.joinTimeline(player, timeline);
+                playbacks.put(entry.playbackId(), new RemotePlayback(entry.startTick(), timeline));
+                
+                // Catch up if the payload was sent after the start tick. The viewer is
+                // still loading assets, so the timeline starts from here once it is ready
+                if (payload.serverTick() > entry.startTick()) {
+                    timeline.seek((payload.serverTick() - entry.startTick()) / (double) getTickRate());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Correct the clocks of running playbacks against the server
+     */
+    public static void handleSync(SyncPlaybackPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            pruneFinished();
+            
+            for (RemotePlayback playback : playbacks.values()) {
+                CutsceneTimeline timeline = playback.timeline();
+                
+                // Paused cutscenes run on the local clock while the server waits
+                if (timeline.getCutscene().shouldPauseGame()) {
+                    continue;
+                }
+                
+                double expected = (payload.serverTick() - playback.startTick()) / (double) payload.tickRate();
+                if (Math.abs(expected - timeline.getCurrentTime()) > MAX_DRIFT) {
+                    timeline.seek(expected);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Stop a playback the server ended early
+     */
+    public static void handleStop(StopPlaybackPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            RemotePlayback playback = playbacks.remove(payload.playbackId());
+            Player player = Minecraft.getInstance().player;
+            if (playback == null || player == null) {
+                return;
+            }
+            
+            CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+            CutscenePlayer viewer = manager.getCutscenePlayer(player);
+            if (viewer != null && viewer.getTimeline() == playback.timeline()) {
+                manager.stopCutscene(player);
+            }
+        });
+    }
+    
+    /**
+     * Get the local timeline of a server playback
+     * 
+     * @param playbackId The server's playback ID
+     * @return The timeline, or null if it isn't playing
+     */
+    public static CutsceneTimeline getTimeline(int playbackId) {
+        RemotePlayback playback = playbacks.get(playbackId);
+        return playback != null && !playback.timeline().isFinished() ? playback.timeline() : null;
+    }
+    
+    /**
+     * Report playbacks that ended here (called once per client tick, after
+     * the cutscene manager)
+     */
+    public static void tick() {
+        if (!playbacks.isEmpty()) {
+            pruneFinished();
+        }
+    }
+    
+    /**
+     * Forget all server playbacks when leaving a world
+     */
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        playbacks.clear();
+    }
+    
+    private static void pruneFinished() {
+        playbacks.entrySet().removeIf(entry -> {
+            CutsceneTimeline timeline = entry.getValue().timeline();
+            if (!timeline.isFinished() && timeline.getViewerCount() > 0) {
+                return false;
+            }
+            PacketDistributor.sendToServer(new PlaybackFinishedPayload(entry.getKey()));
+            return true;
+        });
+    }
+    
+    private static float getTickRate() {
+        Minecraft minecraft = Minecraft.getInstance();
+        return minecraft.level != null ? minecraft.level.tickRateManager().tickrate() : 20.0f;
+    }
+    
+    /**
+     * A playback started by the server
+     * 
+     * @param startTick The server tick it started on
+     * @param timeline The local timeline playing it
+     */
+    private record RemotePlayback(long startTick, CutsceneTimeline timeline) {
+    }
+}
@@ -0,0 +1,42 @@
+package net.shinysquare.cslib.network;
+
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
+import net.neoforged.neoforge.network.registration.PayloadRegistrar;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Registers the cutscene payloads
+ * 
+ * @author ShinySquare
+ */
+public final class CutsceneNetwork {
+    
+    /** Protocol version, bump when a payload's layout changes */
+    public static final String PROTOCOL_VERSION = "2";
+    
+    private CutsceneNetwork() {
+    }
+    
+    /**
+     * Register all payloads (mod event bus)
+     */
+    public static void register(RegisterPayloadHandlersEvent event) {
+        PayloadRegistrar registrar = event.registrar(PROTOCOL_VERSION);
+        
+        registrar.playToClient(StartPlaybackPayload.TYPE, StartPlaybackPayload.STREAM_CODEC, ClientPlaybackHandler::handleStart);
+        registrar.playToClient(SyncPlaybackPayload.TYPE, SyncPlaybackPayload.STREAM_CODEC, ClientPlaybackHandler::handleSync);
+        registrar.playToClient(StopPlaybackPayload.TYPE, StopPlaybackPayload.STREAM_CODEC, ClientPlaybackHandler::handleStop);
+        registrar.playToServer(PlaybackFinishedPayload.TYPE, PlaybackFinishedPayload.STREAM_CODEC,
+                (payload, context) -> CutScenesLib.getInstance().getPlaybackTracker().handleFinished(payload, context));
+        
+        registrar.playToClient(LiveStartPayload.TYPE, LiveStartPayload.STREAM_CODEC, ClientLiveStreams::handleStart);
+        registrar.playToClient(LiveFramePayload.TYPE, LiveFramePayload.STREAM_CODEC, ClientLiveStreams::handleFrame);
+        registrar.playToServer(LiveAckPayload.TYPE, LiveAckPayload.STREAM_CODEC,
+                (payload, context) -> CutScenesLib.getInstance().getPlaybackTracker().handleLiveAck(payload, context));
+        
+        registrar.playToClient(AssetManifestPayload.TYPE, AssetManifestPayload.STREAM_CODEC, ClientAssetCache::handleManifest);
+        registrar.playToClient(AssetChunkPayload.TYPE, AssetChunkPayload.STREAM_CODEC, ClientAssetCache::handleChunk);
+        registrar.playToServer(RequestAssetsPayload.TYPE, RequestAssetsPayload.STREAM_CODEC,
+                (payload, context) -> CutScenesLib.getInstance().getAssetDistributor().handleRequest(payload, context));
+    }
+}
@@ -0,0 +1,33 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Client to server: the latest live frame the client applied
+ * 
+ * @param streamId The stream
+ * @param sequence Sequence number of the frame
+ * 
+ * @author ShinySquare
+ */
+public record LiveAckPayload(int streamId, int sequence) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<LiveAckPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "live_ack"));
+    
+    public static final StreamCodec<ByteBuf, LiveAckPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, LiveAckPayload::streamId,
+            ByteBufCodecs.VAR_INT, LiveAckPayload::sequence,
+            LiveAckPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,55 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Server to client: one tick of live actor transforms
+ * 
+ * The body is delta-encoded against the frame the client last acknowledged
+ * (or against an empty state when {@code baseline} is {@link #NO_BASELINE}).
+ * It is a sequence of changed actors, each written as:
+ * - VarInt actor index
+ * - Byte mask of changed fields (see the {@code CHANGED_} constants)
+ * - ZigZag VarInt delta of each changed position component
+ * - Int packed rotation, if changed
+ * - ZigZag VarInt delta of the scale, if changed
+ * 
+ * @param streamId The stream the frame belongs to
+ * @param sequence Sequence number of the frame
+ * @param baseline Sequence number of the frame it is encoded against
+ * @param body The encoded actors
+ * 
+ * @author ShinySquare
+ */
+public record LiveFramePayload(int streamId, int sequence, int baseline, byte[] body) implements CustomPacketPayload {
+    
+    /** Baseline of a frame encoded against the empty state */
+    public static final int NO_BASELINE = -1;
+    
+    public static final int CHANGED_X = 1;
+    public static final int CHANGED_Y = 1 << 1;
+    public static final int CHANGED_Z = 1 << 2;
+    public static final int CHANGED_ROTATION = 1 << 3;
+    public static final int CHANGED_SCALE = 1 << 4;
+    
+    public static final CustomPacketPayload.Type<LiveFramePayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "live_frame"));
+    
+    public static final StreamCodec<ByteBuf, LiveFramePayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, LiveFramePayload::streamId,
+            ByteBufCodecs.VAR_INT, LiveFramePayload::sequence,
+            ByteBufCodecs.VAR_INT, LiveFramePayload::baseline,
+            ByteBufCodecs.BYTE_ARRAY, LiveFramePayload::body,
+            LiveFramePayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
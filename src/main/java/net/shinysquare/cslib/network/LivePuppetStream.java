@@ -0,0 +1,207 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.network.PacketDistributor;
+import org.joml.Quaternionf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A live stream of actor transforms for a server-started playback
+ * 
+ * Lets an operator drive actors of a running cutscene in real time. Set
+ * transforms as often as you like; once per tick the latest state is
+ * quantized with {@link LiveTransformCodec}, delta-encoded against the
+ * frame each viewer last acknowledged and sent as one payload per viewer.
+ * Viewers usually share a baseline, so a frame is encoded once per
+ * distinct baseline rather than once per viewer, and only actors that
+ * changed take up space. Nothing is sent on ticks where nothing changed.
+ * 
+ * Server thread only. Create streams with
+ * {@link ServerPlaybackTracker#startLiveStream}.
+ * 
+ * @author ShinySquare
+ */
+public class LivePuppetStream {
+    
+    /** Frames kept for use as delta baselines */
+    private static final int HISTORY = 32;
+    
+    /** Ints per actor: present flag, position xyz, packed rotation, scale */
+    private static final int STRIDE = 6;
+    
+    private final int streamId;
+    private final int playbackId;
+    private final List<String> actorIds;
+    private final List<ServerPlayer> viewers;
+    
+    /** Scene origin in world coordinates */
+    private final Vec3 origin;
+    
+    /** Latest quantized state */
+    private final int[] current;
+    
+    /** Recently sent states, indexed by sequence modulo {@link #HISTORY} */
+    private final int[][] history;
+    private final int[] historySequence;
+    
+    /** Empty state, the baseline for viewers without a usable ack */
+    private final int[] empty;
+    
+    /** Last acknowledged frame of each viewer */
+    private final Map<UUID, Integer> acks;
+    
+    private int sequence;
+    private boolean dirty;
+    private boolean announced;
+    
+    LivePuppetStream(int streamId, int playbackId, Collection<ServerPlayer> viewers, Vec3 origin, List<String> actorIds) {
+        this.streamId = streamId;
+        this.playbackId = playbackId;
+        this.actorIds = List.copyOf(actorIds);
+        this.viewers = new ArrayList<>(viewers);
+        this.origin = origin;
+        this.current = new int[actorIds.size() * STRIDE];
+        this.history = new int[HISTORY][actorIds.size() * STRIDE];
+        this.historySequence = new int[HISTORY];
+        this.empty = new int[actorIds.size() * STRIDE];
+        this.acks = new HashMap<>();
+        Arrays.fill(historySequence, LiveFramePayload.NO_BASELINE);
+    }
+    
+    /**
+     * Set an actor's transform
+     * 
+     * @param actorId The actor, one of the IDs the stream was created with
+     * @param position Position in world coordinates
+     * @param rotation Rotation of the actor
+     * @param scale Uniform scale of the actor
+     */
+    public void setActor(String actorId, Vec3 position, Quaternionf rotation, float scale) {
+        int actor = actorIds.indexOf(actorId);
+        if (actor < 0) {
+            throw new IllegalArgumentException("Actor " + actorId + " is not part of this stream");
+        }
+        
+        int offset = actor * STRIDE;
+        current[offset] = 1;
+        current[offset + 1] = LiveTransformCodec.quantizePosition(position.x - origin.x);
+        current[offset + 2] = LiveTransformCodec.quantizePosition(position.y - origin.y);
+        current[offset + 3] = LiveTransformCodec.quantizePosition(position.z - origin.z);
+        current[offset + 4] = LiveTransformCodec.packRotation(rotation);
+        current[offset + 5] = LiveTransformCodec.quantizeScale(scale);
+        dirty = true;
+    }
+    
+    /**
+     * Get the ID of the playback this stream drives
+     */
+    public int getPlaybackId() {
+        return playbackId;
+    }
+    
+    List<ServerPlayer> getViewers() {
+        return viewers;
+    }
+    
+    /**
+     * Record a viewer's acknowledgement
+     */
+    void acknowledge(ServerPlayer player, int acked) {
+        if (acked <= sequence && acked > acks.getOrDefault(player.getUUID(), LiveFramePayload.NO_BASELINE)) {
+            acks.put(player.getUUID(), acked);
+        }
+    }
+    
+    /**
+     * Send this tick's frame (called once per server tick)
+     */
+    void flush() {
+        if (!announced) {
+            LiveStartPayload start = new LiveStartPayload(streamId, playbackId, actorIds);
+            viewers.forEach(viewer -> PacketDistributor.sendToPlayer(viewer, start));
+            announced = true;
+        }
+        
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        
+        sequence++;
+        int slot = sequence % HISTORY;
+        System.arraycopy(current, 0, history[slot], 0, current.length);
+        historySequence[slot] = sequence;
+        
+        // Encode once per distinct baseline
+        Map<Integer, List<ServerPlayer>> byBaseline = new HashMap<>();
+        for (ServerPlayer viewer : viewers) {
+            int baseline = acks.getOrDefault(viewer.getUUID(), LiveFramePayload.NO_BASELINE);
+            if (baseline != LiveFramePayload.NO_BASELINE && historySequence[baseline % HISTORY] != baseline) {
+                baseline = LiveFramePayload.NO_BASELINE;
+            }
+            byBaseline.computeIfAbsent(baseline, b -> new ArrayList<>()).add(viewer);
+        }
+        
+        byBaseline.forEach((baseline, group) -> {
+            int[] base = baseline == LiveFramePayload.NO_BASELINE ? empty : history[baseline % HISTORY];
+            LiveFramePayload frame = new LiveFramePayload(streamId, sequence, baseline, encode(base, current));
+            group.forEach(viewer -> PacketDistributor.sendToPlayer(viewer, frame));
+        });
+    }
+    
+    /**
+     * Encode the actors that differ from a baseline
+     */
+    private static byte[] encode(int[] base, int[] state) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            for (int offset = 0; offset < state.length; offset += STRIDE) {
+                if (state[offset] == 0) {
+                    continue;
+                }
+                
+                int mask = 0;
+                if (state[offset + 1] != base[offset + 1]) mask |= LiveFramePayload.CHANGED_X;
+                if (state[offset + 2] != base[offset + 2]) mask |= LiveFramePayload.CHANGED_Y;
+                if (state[offset + 3] != base[offset + 3]) mask |= LiveFramePayload.CHANGED_Z;
+                if (state[offset + 4] != base[offset + 4]) mask |= LiveFramePayload.CHANGED_ROTATION;
+                if (state[offset + 5] != base[offset + 5]) mask |= LiveFramePayload.CHANGED_SCALE;
+                
+                // Actors new since the baseline are always written, even if nothing differs
+                if (mask == 0 && base[offset] != 0) {
+                    continue;
+                }
+                
+                buf.writeVarInt(offset / STRIDE);
+                buf.writeByte(mask);
+                for (int axis = 0; axis < 3; axis++) {
+                    if ((mask & (LiveFramePayload.CHANGED_X << axis)) != 0) {
+                        buf.writeVarInt(LiveTransformCodec.zigZag(state[offset + 1 + axis] - base[offset + 1 + axis]));
+                    }
+                }
+                if ((mask & LiveFramePayload.CHANGED_ROTATION) != 0) {
+                    buf.writeInt(state[offset + 4]);
+                }
+                if ((mask & LiveFramePayload.CHANGED_SCALE) != 0) {
+                    buf.writeVarInt(LiveTransformCodec.zigZag(state[offset + 5] - base[offset + 5]));
+                }
+            }
+            
+            byte[] body = new byte[buf.readableBytes()];
+            buf.readBytes(body);
+            return body;
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.util.List;
+
+/**
+ * Server to client: a live stream starts driving actors of a playback
+ * 
+ * @param streamId Server-assigned stream ID used by frame payloads
+ * @param playbackId The playback whose actors the stream drives
+ * @param actorIds The driven actors; frames refer to them by index
+ * 
+ * @author ShinySquare
+ */
+public record LiveStartPayload(int streamId, int playbackId, List<String> actorIds) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<LiveStartPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "live_start"));
+    
+    public static final StreamCodec<ByteBuf, LiveStartPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, LiveStartPayload::streamId,
+            ByteBufCodecs.VAR_INT, LiveStartPayload::playbackId,
+            ByteBufCodecs.STRING_UTF8.apply(ByteBufCodecs.list()), LiveStartPayload::actorIds,
+            LiveStartPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,113 @@
+package net.shinysquare.cslib.network;
+
+import org.joml.Quaternionf;
+
+/**
+ * Quantization of live actor transforms
+ * 
+ * - Positions are fixed-point with 1/256 block resolution, relative to the
+ *   scene origin, so they stay small and delta-encode to one or two bytes
+ * - Rotations use smallest-three quaternion packing: the largest component
+ *   is dropped (it follows from the others) and its index is stored in 2
+ *   bits, the other three in 10 bits each, 32 bits in total
+ * - Scale is fixed-point like positions
+ * 
+ * @author ShinySquare
+ */
+public final class LiveTransformCodec {
+    
+    /** Fixed-point units per block */
+    public static final float POSITION_SCALE = 256.0f;
+    
+    /** Fixed-point units per unit of scale */
+    public static final float SCALE_SCALE = 256.0f;
+    
+    /** Range of the three smallest components: [-1/sqrt(2), 1/sqrt(2)] */
+    private static final float COMPONENT_RANGE = (float) (1.0 / Math.sqrt(2.0));
+    
+    /** Largest 10-bit value */
+    private static final int COMPONENT_MAX = 1023;
+    
+    private LiveTransformCodec() {
+    }
+    
+    public static int quantizePosition(double value) {
+        return (int) Math.round(value * POSITION_SCALE);
+    }
+    
+    public static float dequantizePosition(int value) {
+        return value / POSITION_SCALE;
+    }
+    
+    public static int quantizeScale(float value) {
+        return Math.round(value * SCALE_SCALE);
+    }
+    
+    public static float dequantizeScale(int value) {
+        return value / SCALE_SCALE;
+    }
+    
+    /**
+     * Pack a unit quaternion into 32 bits
+     */
+    public static int packRotation(Quaternionf rotation) {
+        float[] q = {rotation.x, rotation.y, rotation.z, rotation.w};
+        
+        int largest = 0;
+        for (int i = 1; i < 4; i++) {
+            if (Math.abs(q[i]) > Math.abs(q[largest])) {
+                largest = i;
+            }
+        }
+        
+        // q and -q are the same rotation, so make the dropped component positive
+        float sign = q[largest] < 0 ? -1.0f : 1.0f;
+        
+        int packed = largest << 30;
+        int shift = 20;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            float normalized = (q[i] * sign / COMPONENT_RANGE) * 0.5f + 0.5f;
+            int bits = Math.round(Math.max(0.0f, Math.min(normalized, 1.0f)) * COMPONENT_MAX);
+            packed |= bits << shift;
+            shift -= 10;
+        }
+        return packed;
+    }
+    
+    /**
+     * Unpack a quaternion written by {@link #packRotation}
+     */
+    public static Quaternionf unpackRotation(int packed, Quaternionf dest) {
+        int largest = packed >>> 30;
+        float[] q = new float[4];
+        
+        float sumSquares = 0.0f;
+        int shift = 20;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            int bits = (packed >>> shift) & COMPONENT_MAX;
+            q[i] = ((bits / (float) COMPONENT_MAX) - 0.5f) * 2.0f * COMPONENT_RANGE;
+            sumSquares += q[i] * q[i];
+            shift -= 10;
+        }
+        q[largest] = (float) Math.sqrt(Math.max(0.0f, 1.0f - sumSquares));
+        
+        return dest.set(q[0], q[1], q[2], q[3]).normalize();
+    }
+    
+    /**
+     * Map a signed delta to an unsigned one so small negatives stay small as VarInts
+     */
+    public static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    public static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,35 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Client to server: a playback ended on the client
+ * 
+ * Sent when the cutscene reached its end, was stopped locally or couldn't
+ * be played at all. The server can't work out the end of playbacks whose
+ * duration it doesn't know, so this is how it learns they are over.
+ * 
+ * @param playbackId The playback that ended
+ * 
+ * @author ShinySquare
+ */
+public record PlaybackFinishedPayload(int playbackId) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<PlaybackFinishedPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "playback_finished"));
+    
+    public static final StreamCodec<ByteBuf, PlaybackFinishedPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, PlaybackFinishedPayload::playbackId,
+            PlaybackFinishedPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,36 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.util.List;
+
+/**
+ * Client to server: ask for cutscene assets missing from the client's cache
+ * 
+ * @param cutsceneIds The cutscenes to send
+ * 
+ * @author ShinySquare
+ */
+public record RequestAssetsPayload(List<ResourceLocation> cutsceneIds) implements CustomPacketPayload {
+    
+    /** Most cutscenes one request may ask for */
+    public static final int MAX_IDS = 256;
+    
+    public static final CustomPacketPayload.Type<RequestAssetsPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "request_assets"));
+    
+    public static final StreamCodec<ByteBuf, RequestAssetsPayload> STREAM_CODEC = StreamCodec.composite(
+            ResourceLocation.STREAM_CODEC.apply(ByteBufCodecs.list(MAX_IDS)), RequestAssetsPayload::cutsceneIds,
+            RequestAssetsPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,248 @@
+package net.shinysquare.cslib.network;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimplePreparableReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.AddReloadListenerEvent;
+import net.neoforged.neoforge.event.OnDatapackSyncEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.loader.CutsceneLoader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Distributes server-defined cutscenes to clients
+ * 
+ * Cutscenes in data packs (data/[namespace]/cutscenes/[path]/cutscene.json)
+ * are compiled into self-contained assets and hashed when the server loads
+ * its resources. Clients get a manifest of IDs and hashes at login, load
+ * whatever they already have from their disk cache and request the rest.
+ * Requested assets are sent in chunks, a few per tick per player, so a
+ * large download never stalls the connection.
+ * 
+ * Requests are untrusted: an asset already queued for a player is not
+ * queued again, each asset is sent at most {@link #MAX_SENDS} times per
+ * manifest (the client re-requests one that failed its hash check), and a
+ * player gets at most {@link #MAX_REQUESTS} requests per manifest.
+ * 
+ * Only the cutscene JSON (with its camera config inlined) is distributed.
+ * The geometry, animations, textures and track files it references have to
+ * reach clients some other way, usually a server resource pack.
+ * 
+ * @author ShinySquare
+ */
+public class ServerAssetDistributor {
+    
+    /** Chunks sent to each player per tick */
+    private static final int CHUNKS_PER_TICK = 4;
+    
+    /** Times an asset is sent to a player per manifest */
+    private static final int MAX_SENDS = 3;
+    
+    /** Requests accepted from a player per manifest */
+    private static final int MAX_REQUESTS = 16;
+    
+    /** Compiled assets by cutscene ID, replaced as a whole on reload */
+    private volatile Map<ResourceLocation, Asset> assets;
+    
+    /** Download state by player */
+    private final Map<UUID, Client> clients;
+    
+    /**
+     * Create a new asset distributor
+     */
+    public ServerAssetDistributor() {
+        this.assets = Map.of();
+        this.clients = new HashMap<>();
+    }
+    
+    /**
+     * Compile and hash the server's cutscenes on every resource reload
+     */
+    @SubscribeEvent
+    public void onAddReloadListener(AddReloadListenerEvent event) {
+        event.addListener(new SimplePreparableReloadListener<Map<ResourceLocation, Asset>>() {
+            @Override
+            protected Map<ResourceLocation, Asset> prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
+                return compileAll(resourceManager);
+            }
+            
+            @Override
+            protected void apply(Map<ResourceLocation, Asset> compiled, ResourceManager resourceManager, ProfilerFiller profiler) {
+                assets = compiled;
+                CutScenesLib.LOGGER.info("Prepared {} cutscene assets for clients", compiled.size());
+            }
+        });
+    }
+    
+    /**
+     * Send the manifest to joining players, and to everyone after a reload
+     */
+    @SubscribeEvent
+    public void onDatapackSync(OnDatapackSyncEvent event) {
+        Map<ResourceLocation, Asset> current = assets;
+        if (current.isEmpty()) {
+            return;
+        }
+        
+        List<AssetManifestPayload.Entry> entries = new ArrayList<>(current.size());
+        current.forEach((id, asset) -> entries.add(new AssetManifestPayload.Entry(id, asset.hash(), asset.data().length)));
+        AssetManifestPayload manifest = new AssetManifestPayload(entries);
+        
+        event.getRelevantPlayers().forEach(player -> {
+            // A new manifest starts the player's limits over; queued transfers of replaced assets are dropped
+            Client client = clients.computeIfAbsent(player.getUUID(), id -> new Client());
+            client.queue.removeIf(transfer -> current.get(transfer.id) != transfer.asset);
+            client.queued.clear();
+            client.queue.forEach(transfer -> client.queued.add(transfer.id));
+            client.sends.clear();
+            client.requests = 0;
+            
+            PacketDistributor.sendToPlayer(player, manifest);
+        });
+    }
+    
+    /**
+     * Queue the assets a client asked for
+     */
+    public void handleRequest(RequestAssetsPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            UUID playerId = context.player().getUUID();
+            Client client = clients.computeIfAbsent(playerId, id -> new Client());
+            if (++client.requests > MAX_REQUESTS) {
+                if (client.requests == MAX_REQUESTS + 1) {
+                    CutScenesLib.LOGGER.warn("Ignoring further cutscene asset requests from {}", context.player().getName().getString());
+                }
+                return;
+            }
+            
+            Map<ResourceLocation, Asset> current = assets;
+            for (ResourceLocation id : payload.cutsceneIds()) {
+                Asset asset = current.get(id);
+                if (asset == null || client.queued.contains(id) || client.sends.getOrDefault(id, 0) >= MAX_SENDS) {
+                    continue;
+                }
+                client.queue.add(new Transfer(id, asset));
+                client.queued.add(id);
+                client.sends.merge(id, 1, Integer::sum);
+            }
+        });
+    }
+    
+    /**
+     * Send the next few chunks to every player with a download in progress
+     */
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent.Post event) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        
+        clients.entrySet().removeIf(entry -> {
+            ServerPlayer player = event.getServer().getPlayerList().getPlayer(entry.getKey());
+            if (player == null) {
+                return true;
+            }
+            
+            Client client = entry.getValue();
+            for (int sent = 0; sent < CHUNKS_PER_TICK && !client.queue.isEmpty(); sent++) {
+                Transfer transfer = client.queue.peek();
+                byte[] data = transfer.asset.data();
+                int length = Math.min(AssetChunkPayload.MAX_CHUNK_SIZE, data.length - transfer.offset);
+                byte[] chunk = Arrays.copyOfRange(data, transfer.offset, transfer.offset + length);
+                
+                PacketDistributor.sendToPlayer(player, new AssetChunkPayload(transfer.id, transfer.asset.hash(), data.length, transfer.offset, chunk));
+                
+                transfer.offset += length;
+                if (transfer.offset >= data.length) {
+                    client.queue.poll();
+                    client.queued.remove(transfer.id);
+                }
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Drop downloads of players who left
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        clients.remove(event.getEntity().getUUID());
+    }
+    
+    /**
+     * Compile every cutscene in the server's resources
+     */
+    private static Map<ResourceLocation, Asset> compileAll(ResourceManager resourceManager) {
+        Map<ResourceLocation, Asset> compiled = new HashMap<>();
+        
+        resourceManager.listResources("cutscenes", path -> path.getPath().endsWith("/cutscene.json")).keySet().forEach(file -> {
+            String path = file.getPath();
+            ResourceLocation id = ResourceLocation.fromNamespaceAndPath(file.getNamespace(),
+                    path.substring("cutscenes/".length(), path.length() - "/cutscene.json".length()));
+            
+            byte[] data = CutsceneLoader.compileCutscene(resourceManager, id);
+            if (data != null && data.length > AssetChunkPayload.MAX_ASSET_SIZE) {
+                CutScenesLib.LOGGER.warn("Not sending cutscene {} to clients: {} bytes is over the {} byte limit", id, data.length, AssetChunkPayload.MAX_ASSET_SIZE);
+            } else if (data != null) {
+                compiled.put(id, new Asset(data, AssetHash.of(data)));
+            }
+        });
+        
+        return Map.copyOf(compiled);
+    }
+    
+    /**
+     * A compiled cutscene and its hash
+     */
+    private record Asset(byte[] data, byte[] hash) {
+    }
+    
+    /**
+     * A player's downloads and request limits
+     */
+    private static final class Client {
+        /** Assets waiting to be sent, the first one in progress */
+        private final Deque<Transfer> queue = new ArrayDeque<>();
+        
+        /** IDs in the queue */
+        private final Set<ResourceLocation> queued = new HashSet<>();
+        
+        /** Times each asset was queued since the last manifest */
+        private final Map<ResourceLocation, Integer> sends = new HashMap<>();
+        
+        /** Requests since the last manifest */
+        private int requests;
+    }
+    
+    /**
+     * An asset being sent to a player
+     */
+    private static final class Transfer {
+        private final ResourceLocation id;
+        private final Asset asset;
+        private int offset;
+        
+        private Transfer(ResourceLocation id, Asset asset) {
+            this.id = id;
+            this.asset = asset;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package net.shinysquare.cslib.network;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Server-authoritative cutscene playback
+ * 
+ * The server decides when a cutscene starts and keeps the clock; clients
+ * only receive the cutscene ID, the start tick and a seed, and play the
+ * cutscene from their own copy of the asset. This keeps the traffic to a
+ * few bytes per playback:
+ * - Starts queued during a tick are batched into one payload per player,
+ *   so a group start costs one packet per viewer
+ * - Every {@link #SYNC_INTERVAL} ticks, players watching something get a
+ *   tiny time-sync payload so their clocks don't drift from the server's
+ * - Stops are only sent when a playback ends early; normal ends are
+ *   worked out by the client from the cutscene duration
+ * - Clients report when a playback ends on their side, which is the only
+ *   way the server learns the end of one whose duration it doesn't know.
+ *   Those are also dropped after {@link #MAX_OPEN_SECONDS}, in case the
+ *   report never comes.
+ * 
+ * Live puppeteering streams are tied to a playback and flushed right after
+ * the starts each tick, so clients always know the playback first.
+ * 
+ * Runs on the server thread only, so it works the same on a dedicated and
+ * an integrated server.
+ * 
+ * @author ShinySquare
+ */
+public class ServerPlaybackTracker {
+    
+    /** Ticks between time-sync payloads */
+    public static final int SYNC_INTERVAL = 40;
+    
+    /** Longest a playback without a known duration is tracked, in seconds */
+    public static final int MAX_OPEN_SECONDS = 30 * 60;
+    
+    /** Playbacks currently running, by player UUID */
+    private final Map<UUID, Playback> playbacks;
+    
+    /** Starts waiting to be sent at the end of the tick, by player */
+    private final Map<ServerPlayer, List<StartPlaybackPayload.Entry>> pendingStarts;
+    
+    /** Live streams by stream ID */
+    private final Map<Integer, LivePuppetStream> liveStreams;
+    
+    /** Next playback ID to hand out */
+    private int nextPlaybackId;
+    
+    /** Next live stream ID to hand out */
+    private int nextStreamId;
+    
+    /**
+     * Create a new playback tracker
+     */
+    public ServerPlaybackTracker() {
+        this.playbacks = new HashMap<>();
+        this.pendingStarts = new HashMap<>();
+        this.liveStreams = new HashMap<>();
+        this.nextPlaybackId = 1;
+        this.nextStreamId = 1;
+    }
+    
+    /**
+     * Start a cutscene for a player
+     * 
+     * @param player The player to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @return The playback ID, or -1 if it couldn't be started
+     */
+    public int start(ServerPlayer player, Cutscene cutscene) {
+        return startGroup(List.of(player), cutscene);
+    }
+    
+    /**
+     * Start one cutscene for a group of players
+     * 
+     * Every viewer gets the same playback ID, start tick and seed, so they
+     * all see exactly the same thing.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @return The playback ID, or -1 if it couldn't be started
+     */
+    public int startGroup(Collection<ServerPlayer> viewers, Cutscene cutscene) {
+        if (cutscene.getId() == null) {
+            CutScenesLib.LOGGER.warn("Cannot send cutscene {} to clients: it has no ID", cutscene.getName());
+            return -1;
+        }
+        
+        // Paused cutscenes run on the client's clock, so they never expire here
+        return startGroup(viewers, cutscene.getId(), cutscene.shouldPauseGame() ? -1 : cutscene.getDuration());
+    }
+    
+    /**
+     * Start a cutscene the server only knows by ID for a group of players
+     * 
+     * Cutscenes are client assets, so a dedicated server usually hasn't
+     * loaded them. Without a duration the server can't tell when the
+     * playback ends; it is forgotten when the client reports the end, when
+     * stopped, when the player leaves or after {@link #MAX_OPEN_SECONDS}.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutsceneId The ID of the cutscene to play
+     * @param duration The cutscene duration in seconds, or -1 if unknown
+     * @return The playback ID, or -1 if there were no viewers
+     */
+    public int startGroup(Collection<ServerPlayer> viewers, ResourceLocation cutsceneId, float duration) {
+        if (viewers.isEmpty()) {
+            return -1;
+        }
+        
+        ServerPlayer first = viewers.iterator().next();
+        MinecraftServer server = first.getServer();
+        
+        int playbackId = nextPlaybackId++;
+        long startTick = server.getTickCount();
+        long seed = first.getRandom().nextLong();
+        long endTick = startTick + (long) Math.ceil((duration < 0 ? MAX_OPEN_SECONDS : duration) * server.tickRateManager().tickrate());
+        
+        StartPlaybackPayload.Entry entry = new StartPlaybackPayload.Entry(playbackId, cutsceneId, startTick, seed);
+        for (ServerPlayer viewer : viewers) {
+            playbacks.put(viewer.getUUID(), new Playback(playbackId, endTick));
+            pendingStarts.computeIfAbsent(viewer, p -> new ArrayList<>()).add(entry);
+        }
+        
+        CutScenesLib.LOGGER.debug("Queued playback {} of {} for {} viewers", playbackId, cutsceneId, viewers.size());
+        return playbackId;
+    }
+    
+    /**
+     * Start a cutscene for a group of players with some actors driven live
+     * 
+     * The returned stream stays open while any viewer is still watching the
+     * playback.
+     * 
+     * @param viewers The players to show the cutscene to
+     * @param cutscene The cutscene to play
+     * @param origin The scene origin in world coordinates
+     * @param actorIds The actors to drive live
+     * @return The stream to set actor transforms on, or null if the cutscene
+     *         couldn't be started
+     */
+    public LivePuppetStream startLiveStream(Collection<ServerPlayer> viewers, Cutscene cutscene, Vec3 origin, List<String> actorIds) {
+        int playbackId = startGroup(viewers, cutscene);
+        if (playbackId < 0) {
+            return null;
+        }
+        
+        int streamId = nextStreamId++;
+        LivePuppetStream stream = new LivePuppetStream(streamId, playbackId, viewers, origin, actorIds);
+        liveStreams.put(streamId, stream);
+        return stream;
+    }
+    
+    /**
+     * Record a client's acknowledgement of a live frame
+     */
+    public void handleLiveAck(LiveAckPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            LivePuppetStream stream = liveStreams.get(payload.streamId());
+            if (stream != null && context.player() instanceof ServerPlayer player) {
+                stream.acknowledge(player, payload.sequence());
+            }
+        });
+    }
+    
+    /**
+     * Forget a playback the client reports as ended
+     */
+    public void handleFinished(PlaybackFinishedPayload payload, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            if (context.player() instanceof ServerPlayer player) {
+                playbacks.computeIfPresent(player.getUUID(), (id, playback) -> playback.id() == payload.playbackId() ? null : playback);
+            }
+        });
+    }
+    
+    /**
+     * Stop a player's cutscene early
+     * 
+     * @param player The player to stop the cutscene for
+     */
+    public void stop(ServerPlayer player) {
+        Playback playback = playbacks.remove(player.getUUID());
+        if (playback == null) {
+            return;
+        }
+        
+        // Never sent, so there's nothing to stop on the client
+        List<StartPlaybackPayload.Entry> pending = pendingStarts.get(player);
+        if (pending != null && pending.removeIf(entry -> entry.playbackId() == playback.id())) {
+            return;
+        }
+        
+        PacketDistributor.sendToPlayer(player, new StopPlaybackPayload(playback.id()));
+    }
+    
+    /**
+     * Check if a player is watching a server-started cutscene
+     * 
+     * @param player The player to check
+     */
+    public boolean isPlaying(ServerPlayer player) {
+        return playbacks.containsKey(player.getUUID());
+    }
+    
+    private boolean isWatching(ServerPlayer player, int playbackId) {
+        Playback playback = playbacks.get(player.getUUID());
+        return playback != null && playback.id() == playbackId && !player.hasDisconnected();
+    }
+    
+    /**
+     * Flush batched starts, send time syncs and expire finished playbacks
+     */
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent.Post event) {
+        MinecraftServer server = event.getServer();
+        long tick = server.getTickCount();
+        
+        // One start payload per player, however many playbacks it carries
+        if (!pendingStarts.isEmpty()) {
+            pendingStarts.forEach((player, entries) -> {
+                if (!entries.isEmpty() && !player.hasDisconnected()) {
+                    PacketDistributor.sendToPlayer(player, new StartPlaybackPayload(tick, List.copyOf(entries)));
+                }
+            });
+            pendingStarts.clear();
+        }
+        
+        if (playbacks.isEmpty()) {
+            liveStreams.clear();
+            return;
+        }
+        
+        playbacks.values().removeIf(playback -> tick >= playback.endTick());
+        
+        // Live frames for everyone still watching the stream's playback
+        if (!liveStreams.isEmpty()) {
+            liveStreams.values().removeIf(stream -> {
+                stream.getViewers().removeIf(viewer -> !isWatching(viewer, stream.getPlaybackId()));
+                if (stream.getViewers().isEmpty()) {
+                    return true;
+                }
+                stream.flush();
+                return false;
+            });
+        }
+        
+        if (tick % SYNC_INTERVAL == 0) {
+            SyncPlaybackPayload sync = new SyncPlaybackPayload(tick, server.tickRateManager().tickrate());
+            for (UUID playerId : playbacks.keySet()) {
+                ServerPlayer player = server.getPlayerList().getPlayer(playerId);
+                if (player != null) {
+                    PacketDistributor.sendToPlayer(player, sync);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Forget playbacks of players who left
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        playbacks.remove(event.getEntity().getUUID());
+        pendingStarts.keySet().removeIf(player -> player.getUUID().equals(event.getEntity().getUUID()));
+    }
+    
+    /**
+     * A running playback
+     * 
+     * @param id The playback ID sent to clients
+     * @param endTick The server tick it ends on
+     */
+    private record Playback(int id, long endTick) {
+    }
+}
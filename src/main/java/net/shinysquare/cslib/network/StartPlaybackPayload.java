@@ -0,0 +1,58 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.util.List;
+
+/**
+ * Server to client: start one or more cutscene playbacks
+ * 
+ * Every playback the server started for a player during a tick is batched
+ * into a single payload. Only the cutscene ID, start tick and seed are sent;
+ * the client plays the cutscene from its own copy of the asset.
+ * 
+ * @param serverTick The server tick the payload was sent on
+ * @param entries The playbacks to start
+ * 
+ * @author ShinySquare
+ */
+public record StartPlaybackPayload(long serverTick, List<Entry> entries) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<StartPlaybackPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "start_playback"));
+    
+    public static final StreamCodec<ByteBuf, StartPlaybackPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_LONG, StartPlaybackPayload::serverTick,
+            Entry.STREAM_CODEC.apply(ByteBufCodecs.list()), StartPlaybackPayload::entries,
+            StartPlaybackPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+    
+    /**
+     * A single playback to start
+     * 
+     * @param playbackId Server-assigned ID used by later sync and stop payloads
+     * @param cutsceneId The cutscene to play
+     * @param startTick The server tick the playback started on
+     * @param seed Seed for anything random in the cutscene
+     */
+    public record Entry(int playbackId, ResourceLocation cutsceneId, long startTick, long seed) {
+        
+        public static final StreamCodec<ByteBuf, Entry> STREAM_CODEC = StreamCodec.composite(
+                ByteBufCodecs.VAR_INT, Entry::playbackId,
+                ResourceLocation.STREAM_CODEC, Entry::cutsceneId,
+                ByteBufCodecs.VAR_LONG, Entry::startTick,
+                ByteBufCodecs.LONG, Entry::seed,
+                Entry::new
+        );
+    }
+}
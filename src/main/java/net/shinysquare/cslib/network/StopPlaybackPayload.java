@@ -0,0 +1,31 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Server to client: stop a playback before it ends on its own
+ * 
+ * @param playbackId The playback to stop
+ * 
+ * @author ShinySquare
+ */
+public record StopPlaybackPayload(int playbackId) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<StopPlaybackPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "stop_playback"));
+    
+    public static final StreamCodec<ByteBuf, StopPlaybackPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, StopPlaybackPayload::playbackId,
+            StopPlaybackPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
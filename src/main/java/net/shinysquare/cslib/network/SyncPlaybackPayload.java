@@ -0,0 +1,37 @@
+package net.shinysquare.cslib.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+
+/**
+ * Server to client: periodic time sync for running playbacks
+ * 
+ * Carries only the current server tick and tick rate. The client already
+ * knows each playback's start tick, so this is enough to correct drift on
+ * every playback the player is watching.
+ * 
+ * @param serverTick The current server tick
+ * @param tickRate The server's tick rate
+ * 
+ * @author ShinySquare
+ */
+public record SyncPlaybackPayload(long serverTick, float tickRate) implements CustomPacketPayload {
+    
+    public static final CustomPacketPayload.Type<SyncPlaybackPayload> TYPE =
+            new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "sync_playback"));
+    
+    public static final StreamCodec<ByteBuf, SyncPlaybackPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_LONG, SyncPlaybackPayload::serverTick,
+            ByteBufCodecs.FLOAT, SyncPlaybackPayload::tickRate,
+            SyncPlaybackPayload::new
+    );
+    
+    @Override
+    public CustomPacketPayload.Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,171 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.TextureManager;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutscenePlayer;
+import net.shinysquare.cslib.core.SceneEvaluator;
+import net.shinysquare.cslib.cutscene.CrowdActor;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.ModelLod;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import net.shinysquare.cslib.cutscene.Skeleton;
+import net.shinysquare.cslib.loader.CutsceneLoader;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads everything a cutscene shows before its first frame
+ * 
+ * Walks the cutscene's dependencies once, when a viewer starts:
+ * - Gecko models: animations baked, renderers and skeletons created
+ * - Textures: base, bone and crowd textures loaded in the background
+ * - The cutscene's texture atlas
+ * - Player skins of every skinned actor, with their skin zones composited
+ * - The external camera config, if it wasn't resolved at load
+ * 
+ * The viewer then polls {@link #isReady()} every tick and starts playback
+ * once everything is in place (or its timeout passes), so nothing is loaded
+ * lazily on the first frames. Assets already loaded for an earlier playback
+ * are ready straight away.
+ * 
+ * Client thread only.
+ */
+public class AssetPrewarmer {
+    
+    private final CutscenePlayer viewer;
+    private final Cutscene cutscene;
+    
+    /** Loads running in the background (textures, camera config) */
+    private final List<CompletableFuture<Void>> loads = new ArrayList<>();
+    
+    /** Actors that show a player's skin */
+    private final List<String> skinnedActors = new ArrayList<>();
+    
+    /** Whether everything was ready at the last poll */
+    private boolean ready;
+    
+    private AssetPrewarmer(CutscenePlayer viewer) {
+        this.viewer = viewer;
+        this.cutscene = viewer.getCutscene();
+    }
+    
+    /**
+     * Start loading a viewer's cutscene
+     * 
+     * @param viewer The viewer about to start
+     * @return The prewarmer to poll
+     */
+    public static AssetPrewarmer start(CutscenePlayer viewer) {
+        AssetPrewarmer prewarmer = new AssetPrewarmer(viewer);
+        prewarmer.begin();
+        return prewarmer;
+    }
+    
+    private void begin() {
+        Minecraft minecraft = Minecraft.getInstance();
+        Set<ResourceLocation> textures = new LinkedHashSet<>();
+        
+        for (SceneModel model : cutscene.getModels()) {
+            if (model.getTextureLocation() != null) {
+                textures.add(model.getTextureLocation());
+            }
+            if (model instanceof GeckoSceneModel geckoModel) {
+                prewarmGeckoModel(geckoModel, textures);
+            }
+        }
+        
+        for (CrowdActor crowd : cutscene.getCrowds()) {
+            textures.add(crowd.getTexture());
+        }
+        
+        // Upload happens on the client thread once each image is read
+        TextureManager textureManager = minecraft.getTextureManager();
+        for (ResourceLocation texture : textures) {
+            loads.add(textureManager.preload(texture, Util.backgroundExecutor()));
+        }
+        
+        CutsceneAtlasManager.getInstance().prepare(cutscene);
+        
+        // Skins are polled per actor, which also composites their skin zones
+        SceneEvaluator layout = viewer.getSnapshot().evaluator();
+        for (int i = 0; i < layout.getActorCount(); i++) {
+            if (layout.usesPlayerSkin(i)) {
+                skinnedActors.add(layout.getActorId(i));
+            }
+        }
+        
+        if (cutscene.getCameraConfigLocation() != null && cutscene.getCameraPath() == null) {
+            ResourceManager resourceManager = minecraft.getResourceManager();
+            ResourceLocation location = cutscene.getCameraConfigLocation();
+            loads.add(CompletableFuture.supplyAsync(() -> CutsceneLoader.loadCameraConfig(resourceManager, location), Util.backgroundExecutor())
+                    .thenAcceptAsync(cutscene::setCameraPath, minecraft));
+        }
+    }
+    
+    private static void prewarmGeckoModel(GeckoSceneModel model, Set<ResourceLocation> textures) {
+        BakedGeoModel baked = GeckoLibCache.getBakedModels().get(model.getGeoPath());
+        if (baked == null) {
+            CutScenesLib.LOGGER.warn("Gecko model {} isn't loaded, it will be skipped", model.getGeoPath());
+            return;
+        }
+        
+        // Bake the animation if it changed or was reloaded since the cutscene loaded
+        model.getAnimationTrack();
+        GeckoRendererCache.getInstance().get(model.getGeoPath());
+        
+        Skeleton skeleton = Skeleton.of(baked);
+        for (int i = 0; i < skeleton.getBoneCount(); i++) {
+            textures.add(model.getTextureForBone(skeleton.getBone(i).getName()));
+        }
+        
+        for (ModelLod lod : model.getLods()) {
+            BakedGeoModel lodModel = lod.getGeometry() != null ? GeckoLibCache.getBakedModels().get(lod.getGeometry()) : null;
+            if (lodModel != null) {
+                Skeleton.of(lodModel);
+            }
+        }
+    }
+    
+    /**
+     * Check whether everything has loaded
+     * 
+     * Failed loads count as done; they fall back the same way they would
+     * have during playback.
+     */
+    public boolean isReady() {
+        if (ready) {
+            return true;
+        }
+        
+        for (CompletableFuture<Void> load : loads) {
+            if (!load.isDone()) {
+                return false;
+            }
+        }
+        
+        if (CutsceneAtlasManager.getInstance().isBuilding(cutscene)) {
+            return false;
+        }
+        
+        // Check every actor, so all their skins load at once
+        SkinTextureMapper skinMapper = CutsceneRenderer.getInstance().getSkinMapper();
+        boolean skinsReady = true;
+        for (String actorId : skinnedActors) {
+            skinsReady &= skinMapper.isSkinReady(cutscene, actorId, viewer.getSkinOwner(actorId));
+        }
+        
+        ready = skinsReady;
+        return ready;
+    }
+}
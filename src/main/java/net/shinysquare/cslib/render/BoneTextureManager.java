@@ -6,10 +6,25 @@ import java.util.Map;
 
 /**
  * Manages dynamic texture mapping for GeckoLib bones
+ * 
+ * The global mappings are an immutable snapshot, replaced as a whole
+ * whenever a mapping changes. Mods may map bones from any thread, while
+ * readers (the render thread, the atlas builder) always see a complete,
+ * consistent set of mappings and its version without locking.
  */
 public class BoneTextureManager {
     
-    private static final Map<String, ResourceLocation> globalBoneMappings = new HashMap<>();
+    /** The current mappings, copied on write */
+    private static volatile Mappings mappings = new Mappings(Map.of(), 0);
+    
+    /**
+     * An immutable set of global mappings
+     * 
+     * @param textures Bone name to texture
+     * @param version Changes whenever a mapping is added or cleared
+     */
+    public record Mappings(Map<String, ResourceLocation> textures, int version) {
+    }
     
     /**
      * Map a specific bone name to a texture globally
@@ -17,8 +32,10 @@ public class BoneTextureManager {
      * @param boneName The name of the bone in Blockbench
      * @param texture The texture to apply to this bone
      */
-    public static void mapTextureToBone(String boneName, ResourceLocation texture) {
-        globalBoneMappings.put(boneName, texture);
+    public static synchronized void mapTextureToBone(String boneName, ResourceLocation texture) {
+        Map<String, ResourceLocation> textures = new HashMap<>(mappings.textures());
+        textures.put(boneName, texture);
+        mappings = new Mappings(Map.copyOf(textures), mappings.version() + 1);
     }
     
     /**
@@ -29,13 +46,31 @@ public class BoneTextureManager {
      * @return The texture to use
      */
     public static ResourceLocation getTextureForBone(String boneName, ResourceLocation defaultTexture) {
-        return globalBoneMappings.getOrDefault(boneName, defaultTexture);
+        return mappings.textures().getOrDefault(boneName, defaultTexture);
     }
     
     /**
      * Clear all global mappings
      */
-    public static void clearMappings() {
-        globalBoneMappings.clear();
+    public static synchronized void clearMappings() {
+        mappings = new Mappings(Map.of(), mappings.version() + 1);
+    }
+    
+    /**
+     * Get the current mappings
+     * 
+     * @return A snapshot that never changes, with its version
+     */
+    public static Mappings getMappings() {
+        return mappings;
+    }
+    
+    /**
+     * Get the current version of the mappings
+     * 
+     * @return A number that changes whenever a mapping is added or cleared
+     */
+    public static int getVersion() {
+        return mappings.version();
     }
 }
@@ -4,33 +4,152 @@ import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
-import net.minecraft.resources.ResourceLocation;
 import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
 import software.bernie.geckolib.cache.object.GeoBone;
-import software.bernie.geckolib.renderer.GeoRenderer;
 import software.bernie.geckolib.renderer.layer.GeoRenderLayer;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * A native GeckoLib RenderLayer that swaps textures for specific bones
+ * 
+ * Mapped bones are skipped in the main pass and their poses recorded (see
+ * {@link GeckoSceneRenderer#renderCubesOfBone}); the layer's post pass then
+ * draws them grouped by texture, so every bone is drawn exactly once and
+ * each texture costs one buffer switch.
  */
 public class BoneTextureRenderLayer extends GeoRenderLayer<GeckoSceneModel> {
     
-    public BoneTextureRenderLayer(GeoRenderer<GeckoSceneModel> entityRenderer) {
+    private final GeckoSceneRenderer sceneRenderer;
+    
+    /** Bone texture tables by model, dropped with the model */
+    private final Map<GeckoSceneModel, BoneTextureTable> tables = new WeakHashMap<>();
+    
+    /** Scratch stack used to replay recorded poses */
+    private final PoseStack replayStack = new PoseStack();
+    
+    /** Table of the model being rendered, or null if it has no mappings */
+    private BoneTextureTable activeTable;
+    
+    /** Whether the main pass is recording mapped bones */
+    private boolean recording;
+    
+    // Poses recorded by the main pass, by texture group (grown as needed, reused every frame)
+    private GeoBone[][] recordedBones = new GeoBone[0][];
+    private Matrix4f[][] recordedPoses = new Matrix4f[0][];
+    private Matrix3f[][] recordedNormals = new Matrix3f[0][];
+    private int[] recordedCounts = new int[0];
+    
+    public BoneTextureRenderLayer(GeckoSceneRenderer entityRenderer) {
         super(entityRenderer);
+        this.sceneRenderer = entityRenderer;
     }
-
+    
+    /**
+     * Get the model's table ready for a new frame (before the main pass)
+     */
+    void prepare(GeckoSceneModel animatable, BakedGeoModel bakedModel) {
+        // Atlas geometry already has every bone's texture baked into its UVs
+        if (CutsceneAtlasManager.getInstance().getEntry(animatable) != null) {
+            activeTable = null;
+            recording = false;
+            return;
+        }
+        
+        BoneTextureTable table = tables.get(animatable);
+        if (table == null || !table.isValidFor(animatable, bakedModel)) {
+            table = BoneTextureTable.build(animatable, bakedModel);
+            tables.put(animatable, table);
+        }
+        
+        activeTable = table.hasMappings() ? table : null;
+        recording = activeTable != null;
+        if (recording) {
+            reserve(table);
+        }
+    }
+    
+    /**
+     * Make room for every mapped bone of a table, and forget the last frame's poses
+     */
+    private void reserve(BoneTextureTable table) {
+        int groupCount = table.getGroupCount();
+        if (recordedCounts.length < groupCount) {
+            recordedBones = Arrays.copyOf(recordedBones, groupCount);
+            recordedPoses = Arrays.copyOf(recordedPoses, groupCount);
+            recordedNormals = Arrays.copyOf(recordedNormals, groupCount);
+            recordedCounts = new int[groupCount];
+        }
+        
+        for (int group = 0; group < groupCount; group++) {
+            int size = table.getGroupSize(group);
+            if (recordedBones[group] == null || recordedBones[group].length < size) {
+                int old = recordedBones[group] == null ? 0 : recordedBones[group].length;
+                recordedBones[group] = new GeoBone[size];
+                recordedPoses[group] = recordedPoses[group] == null ? new Matrix4f[size] : Arrays.copyOf(recordedPoses[group], size);
+                recordedNormals[group] = recordedNormals[group] == null ? new Matrix3f[size] : Arrays.copyOf(recordedNormals[group], size);
+                for (int i = old; i < size; i++) {
+                    recordedPoses[group][i] = new Matrix4f();
+                    recordedNormals[group][i] = new Matrix3f();
+                }
+            }
+        }
+        Arrays.fill(recordedCounts, 0);
+    }
+    
+    /**
+     * Check whether a bone is drawn by this layer instead of the main pass,
+     * recording its pose if so
+     * 
+     * @param boneIndex The bone's depth-first index in the geometry
+     */
+    boolean deferBone(GeoBone bone, int boneIndex, PoseStack poseStack) {
+        if (activeTable == null) {
+            return false;
+        }
+        
+        int group = activeTable.getGroup(boneIndex);
+        if (group < 0) {
+            return false;
+        }
+        
+        int index = recordedCounts[group];
+        if (recording && index < activeTable.getGroupSize(group)) {
+            PoseStack.Pose pose = poseStack.last();
+            recordedBones[group][index] = bone;
+            recordedPoses[group][index].set(pose.pose());
+            recordedNormals[group][index].set(pose.normal());
+            recordedCounts[group] = index + 1;
+        }
+        return true;
+    }
+    
     @Override
-    public void renderForBone(PoseStack poseStack, GeckoSceneModel animatable, GeoBone bone, RenderType renderType, MultiBufferSource bufferSource, VertexConsumer buffer, float partialTick, int packedLight, int packedOverlay) {
-        // Check if this bone has a custom texture mapping
-        ResourceLocation customTexture = animatable.getTextureForBone(bone.getName());
+    public void render(PoseStack poseStack, GeckoSceneModel animatable, BakedGeoModel bakedModel, RenderType renderType, MultiBufferSource bufferSource, VertexConsumer buffer, float partialTick, int packedLight, int packedOverlay) {
+        recording = false;
+        if (activeTable == null) {
+            return;
+        }
         
-        // If it's different from the main model texture, we re-render this bone with the custom texture
-        if (customTexture != null && !customTexture.equals(animatable.getTexturePath())) {
-            RenderType customRenderType = RenderType.entityCutoutNoCull(customTexture);
-            VertexConsumer customBuffer = bufferSource.getBuffer(customRenderType);
+        // One buffer per texture, every bone in the group drawn into it
+        for (int group = 0; group < activeTable.getGroupCount(); group++) {
+            int count = recordedCounts[group];
+            if (count == 0) {
+                continue;
+            }
             
-            // Call the renderer's internal bone rendering logic with our new texture
-            this.getRenderer().renderChildBones(poseStack, animatable, bone, customRenderType, bufferSource, customBuffer, false, partialTick, packedLight, packedOverlay, 1, 1, 1, 1);
+            VertexConsumer groupBuffer = bufferSource.getBuffer(activeTable.getRenderType(group));
+            for (int i = 0; i < count; i++) {
+                PoseStack.Pose pose = replayStack.last();
+                pose.pose().set(recordedPoses[group][i]);
+                pose.normal().set(recordedNormals[group][i]);
+                sceneRenderer.renderDeferredCubes(replayStack, recordedBones[group][i], groupBuffer, packedLight, packedOverlay);
+            }
         }
     }
 }
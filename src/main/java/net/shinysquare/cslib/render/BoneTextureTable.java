@@ -0,0 +1,129 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.Skeleton;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable bone to texture table for one model
+ * 
+ * Resolved once from snapshots of the model's bone mappings and the global
+ * {@link BoneTextureManager} mappings, and replaced by a new table only when
+ * either changes or the baked geometry is reloaded. Bones that use a texture
+ * other than the base texture are grouped by texture, each group with its
+ * RenderType created up front.
+ * 
+ * Bones are looked up by their depth-first index in the geometry (see
+ * {@link Skeleton}), so resolving a bone while drawing is one array read.
+ * Nothing in a table changes after it is built, so tables can be shared and
+ * read without locking.
+ */
+public final class BoneTextureTable {
+    
+    private final BakedGeoModel bakedModel;
+    private final int modelVersion;
+    private final int globalVersion;
+    private final ResourceLocation baseTexture;
+    
+    /** Texture group of each bone by index, or -1 for the base texture */
+    private final int[] groups;
+    
+    private final RenderType[] renderTypes;
+    
+    /** Number of bones in each group */
+    private final int[] groupSizes;
+    
+    private BoneTextureTable(GeckoSceneModel model, BakedGeoModel bakedModel) {
+        // Versions first: a mapping added meanwhile makes the table stale, never wrong
+        this.bakedModel = bakedModel;
+        this.modelVersion = model.getBoneTextureVersion();
+        BoneTextureManager.Mappings global = BoneTextureManager.getMappings();
+        this.globalVersion = global.version();
+        this.baseTexture = model.getTexturePath();
+        Map<String, ResourceLocation> own = model.getBoneTextures();
+        
+        // Resolve every bone once, per-model mappings taking priority over global ones
+        Skeleton skeleton = Skeleton.of(bakedModel);
+        Map<ResourceLocation, List<Integer>> byTexture = new LinkedHashMap<>();
+        for (int i = 0; i < skeleton.getBoneCount(); i++) {
+            String name = skeleton.getBone(i).getName();
+            ResourceLocation texture = own.get(name);
+            if (texture == null) {
+                texture = global.textures().get(name);
+            }
+            if (texture != null && !texture.equals(baseTexture)) {
+                byTexture.computeIfAbsent(texture, t -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        int groupCount = byTexture.size();
+        this.groups = new int[skeleton.getBoneCount()];
+        this.renderTypes = new RenderType[groupCount];
+        this.groupSizes = new int[groupCount];
+        Arrays.fill(groups, -1);
+        
+        int group = 0;
+        for (Map.Entry<ResourceLocation, List<Integer>> entry : byTexture.entrySet()) {
+            renderTypes[group] = RenderType.entityCutoutNoCull(entry.getKey());
+            groupSizes[group] = entry.getValue().size();
+            for (int bone : entry.getValue()) {
+                groups[bone] = group;
+            }
+            group++;
+        }
+    }
+    
+    /**
+     * Build the table for a model
+     */
+    public static BoneTextureTable build(GeckoSceneModel model, BakedGeoModel bakedModel) {
+        return new BoneTextureTable(model, bakedModel);
+    }
+    
+    /**
+     * Check whether the table still matches the model's mappings and geometry
+     */
+    public boolean isValidFor(GeckoSceneModel model, BakedGeoModel bakedModel) {
+        return this.bakedModel == bakedModel
+                && this.modelVersion == model.getBoneTextureVersion()
+                && this.globalVersion == BoneTextureManager.getVersion()
+                && this.baseTexture.equals(model.getTexturePath());
+    }
+    
+    /**
+     * Check whether any bone uses a texture other than the base texture
+     */
+    public boolean hasMappings() {
+        return renderTypes.length > 0;
+    }
+    
+    /**
+     * Get the texture group of a bone
+     * 
+     * @param bone The bone's depth-first index
+     * @return The group, or -1 if the bone uses the base texture
+     */
+    public int getGroup(int bone) {
+        return groups[bone];
+    }
+    
+    public int getGroupCount() {
+        return renderTypes.length;
+    }
+    
+    public RenderType getRenderType(int group) {
+        return renderTypes[group];
+    }
+    
+    public int getGroupSize(int group) {
+        return groupSizes[group];
+    }
+}
@@ -0,0 +1,351 @@
+package net.shinysquare.cslib.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.BonePoseSampler;
+import net.shinysquare.cslib.cutscene.CrowdActor;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+import software.bernie.geckolib.cache.object.GeoCube;
+import software.bernie.geckolib.cache.object.GeoQuad;
+import software.bernie.geckolib.cache.object.GeoVertex;
+import software.bernie.geckolib.util.RenderUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders crowds of instanced Gecko models
+ * 
+ * Each instance's animation time is quantized to {@link #POSE_RATE} poses
+ * per second, or fewer for animations too long to fit {@link #MAX_POSES}
+ * poses at that rate, so every pose a crowd can show stays cached. The first time a crowd needs a pose, the pose is sampled once
+ * and the posed geometry is baked into a vertex buffer on the GPU; from
+ * then on every instance at that phase draws the same buffer with its own
+ * transform. Visible instances are sorted by pose so each buffer is bound
+ * once per frame.
+ * 
+ * The cost of a crowd therefore grows with the number of distinct poses it
+ * shows rather than with the number of instances. Once a looping animation
+ * has played through, no posing happens at all.
+ * 
+ * Crowds draw with their own texture only (no bone textures or atlas).
+ * 
+ * Render thread only.
+ */
+public class CrowdRenderer implements ResourceManagerReloadListener {
+    
+    private static final CrowdRenderer INSTANCE = new CrowdRenderer();
+    
+    /** Distinct poses per second of animation */
+    private static final float POSE_RATE = 20.0f;
+    
+    /** Most poses kept on the GPU per crowd (longer animations get coarser poses) */
+    private static final int MAX_POSES = 128;
+    
+    /** Render state of each crowd of the current cutscene */
+    private final Map<CrowdActor, Crowd> crowds = new HashMap<>();
+    
+    /** The cutscene the crowds belong to */
+    private Cutscene currentCutscene;
+    
+    /** Scratch buffer posed geometry is built in */
+    private ByteBufferBuilder meshBuffer;
+    
+    // Scratch state reused every frame
+    private long[] sortKeys = new long[64];
+    private final Matrix4f modelView = new Matrix4f();
+    
+    /**
+     * Get the shared crowd renderer
+     */
+    public static CrowdRenderer getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Render every crowd of a cutscene
+     * 
+     * @param cutscene The cutscene being played
+     * @param time The playback time in seconds
+     * @param view The cutscene camera's view matrix
+     * @param projection The cutscene camera's projection matrix
+     * @param frustum The cutscene camera's frustum
+     * @param camera The camera position
+     * @param projectionScale The projection's vertical scale (1 / tan(fov / 2))
+     */
+    public void render(Cutscene cutscene, float time, Matrix4f view, Matrix4f projection, FrustumIntersection frustum,
+                       Vector3f camera, float projectionScale) {
+        // Poses of another cutscene's crowds won't be needed again
+        if (cutscene != currentCutscene) {
+            clear();
+            currentCutscene = cutscene;
+        }
+        
+        for (CrowdActor actor : cutscene.getCrowds()) {
+            Crowd crowd = crowds.computeIfAbsent(actor, Crowd::new);
+            if (crowd.model != null) {
+                renderCrowd(crowd, time, view, projection, frustum, camera, projectionScale);
+            }
+        }
+    }
+    
+    private void renderCrowd(Crowd crowd, float time, Matrix4f view, Matrix4f projection, FrustumIntersection frustum,
+                             Vector3f camera, float projectionScale) {
+        CrowdActor actor = crowd.actor;
+        int count = actor.getCount();
+        if (sortKeys.length < count) {
+            sortKeys = new long[Integer.highestOneBit(count) << 1];
+        }
+        
+        // Cull, then key each visible instance by its pose
+        LodController lod = LodController.getInstance();
+        int visible = 0;
+        for (int i = 0; i < count; i++) {
+            float x = actor.getX(i);
+            float y = actor.getY(i);
+            float z = actor.getZ(i);
+            float radius = crowd.radius * Math.abs(actor.getScale(i));
+            if (!frustum.testSphere(x, y, z, radius)) {
+                continue;
+            }
+            
+            float distance = camera.distance(x, y, z);
+            if (!lod.isVisible(radius * projectionScale / Math.max(distance, radius))) {
+                continue;
+            }
+            
+            sortKeys[visible++] = ((long) crowd.getPoseIndex(time + actor.getTimeOffset(i)) << 32) | i;
+        }
+        if (visible == 0) {
+            return;
+        }
+        Arrays.sort(sortKeys, 0, visible);
+        
+        crowd.renderType.setupRenderState();
+        ShaderInstance shader = RenderSystem.getShader();
+        
+        int run = 0;
+        while (run < visible) {
+            int poseIndex = (int) (sortKeys[run] >>> 32);
+            VertexBuffer buffer = crowd.getPose(poseIndex);
+            
+            int end = run;
+            while (end < visible && (int) (sortKeys[end] >>> 32) == poseIndex) {
+                end++;
+            }
+            
+            if (buffer != null) {
+                buffer.bind();
+                for (int k = run; k < end; k++) {
+                    int i = (int) sortKeys[k];
+                    float scale = actor.getScale(i);
+                    modelView.set(view)
+                            .translate(actor.getX(i), actor.getY(i), actor.getZ(i))
+                            .rotateY((float) Math.toRadians(actor.getYaw(i)))
+                            .scale(scale);
+                    buffer.drawWithShader(modelView, projection, shader);
+                }
+            }
+            run = end;
+        }
+        
+        VertexBuffer.unbind();
+        crowd.renderType.clearRenderState();
+    }
+    
+    /**
+     * Release every pose on the GPU
+     */
+    public void clear() {
+        for (Crowd crowd : crowds.values()) {
+            crowd.poses.values().forEach(VertexBuffer::close);
+        }
+        crowds.clear();
+        currentCutscene = null;
+    }
+    
+    @Override
+    public void onResourceManagerReload(ResourceManager resourceManager) {
+        if (!crowds.isEmpty()) {
+            CutScenesLib.LOGGER.debug("Dropping {} crowd pose caches after resource reload", crowds.size());
+            clear();
+        }
+    }
+    
+    /**
+     * Build the geometry of the model in its current pose
+     */
+    private VertexBuffer buildMesh(BakedGeoModel model) {
+        if (meshBuffer == null) {
+            meshBuffer = new ByteBufferBuilder(256 * 1024);
+        }
+        
+        BufferBuilder builder = new BufferBuilder(meshBuffer, VertexFormat.Mode.QUADS, DefaultVertexFormat.NEW_ENTITY);
+        PoseStack poseStack = new PoseStack();
+        for (GeoBone bone : model.topLevelBones()) {
+            addBone(poseStack, bone, builder);
+        }
+        
+        MeshData mesh = builder.build();
+        if (mesh == null) {
+            return null;
+        }
+        
+        VertexBuffer buffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+        buffer.bind();
+        buffer.upload(mesh);
+        VertexBuffer.unbind();
+        return buffer;
+    }
+    
+    /**
+     * Add a bone and its children, the same way GeckoLib's renderer walks them
+     */
+    private static void addBone(PoseStack poseStack, GeoBone bone, VertexConsumer buffer) {
+        poseStack.pushPose();
+        RenderUtils.prepMatrixForBone(poseStack, bone);
+        
+        if (!bone.isHidden()) {
+            for (GeoCube cube : bone.getCubes()) {
+                poseStack.pushPose();
+                RenderUtils.translateToPivotPoint(poseStack, cube);
+                RenderUtils.rotateMatrixAroundCube(poseStack, cube);
+                RenderUtils.translateAwayFromPivotPoint(poseStack, cube);
+                addCube(poseStack.last(), cube, buffer);
+                poseStack.popPose();
+            }
+        }
+        
+        if (!bone.isHidingChildren()) {
+            for (GeoBone child : bone.getChildBones()) {
+                addBone(poseStack, child, buffer);
+            }
+        }
+        
+        poseStack.popPose();
+    }
+    
+    private static void addCube(PoseStack.Pose pose, GeoCube cube, VertexConsumer buffer) {
+        Matrix4f poseMatrix = pose.pose();
+        Matrix3f normalMatrix = pose.normal();
+        Vector3f normal = new Vector3f();
+        Vector4f position = new Vector4f();
+        
+        for (GeoQuad quad : cube.quads()) {
+            if (quad == null) {
+                continue;
+            }
+            
+            normalMatrix.transform(quad.normal(), normal);
+            for (GeoVertex vertex : quad.vertices()) {
+                Vector3f local = vertex.position();
+                poseMatrix.transform(position.set(local.x(), local.y(), local.z(), 1.0f));
+                buffer.addVertex(position.x(), position.y(), position.z(), -1, vertex.texU(), vertex.texV(),
+                        OverlayTexture.NO_OVERLAY, LightTexture.FULL_BRIGHT, normal.x(), normal.y(), normal.z());
+            }
+        }
+    }
+    
+    /**
+     * Render state of one crowd
+     */
+    private class Crowd {
+        final CrowdActor actor;
+        final BakedGeoModel model;
+        final BonePoseSampler sampler;
+        final RenderType renderType;
+        final float radius;
+        final float[] pose;
+        
+        /** Poses per second, lowered so the whole animation fits MAX_POSES */
+        final float poseRate;
+        
+        /** Uploaded poses by pose index, least recently used first */
+        final LinkedHashMap<Integer, VertexBuffer> poses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, VertexBuffer> eldest) {
+                if (size() > MAX_POSES) {
+                    eldest.getValue().close();
+                    return true;
+                }
+                return false;
+            }
+        };
+        
+        Crowd(CrowdActor actor) {
+            this.actor = actor;
+            this.model = GeckoLibCache.getBakedModels().get(actor.getGeometry());
+            this.sampler = model != null && actor.getAnimation() != null
+                    ? BonePoseSampler.create(model, actor.getAnimationFile(), actor.getAnimation())
+                    : null;
+            this.renderType = RenderType.entityCutoutNoCull(actor.getTexture());
+            this.radius = SceneBounds.measureGeometry(actor.getGeometry());
+            this.pose = sampler != null ? new float[sampler.getPoseSize()] : null;
+            
+            // A clamped animation also shows its last frame, hence the - 1
+            double length = sampler != null ? sampler.getLength() : 0;
+            this.poseRate = length > 0 ? (float) Math.min(POSE_RATE, (MAX_POSES - 1) / length) : POSE_RATE;
+            
+            if (model == null) {
+                CutScenesLib.LOGGER.warn("Crowd {} uses unknown geometry {}", actor.getId(), actor.getGeometry());
+            }
+        }
+        
+        /**
+         * Get the pose an instance shows at an animation time
+         */
+        int getPoseIndex(float time) {
+            if (sampler == null) {
+                return 0;
+            }
+            
+            double length = sampler.getLength();
+            double phase = sampler.isLooping() && length > 0
+                    ? ((time % length) + length) % length
+                    : Math.max(0, Math.min(time, length));
+            return (int) (phase * poseRate);
+        }
+        
+        /**
+         * Get the geometry of a pose, building it on first use
+         */
+        VertexBuffer getPose(int poseIndex) {
+            VertexBuffer buffer = poses.get(poseIndex);
+            if (buffer == null) {
+                if (sampler != null) {
+                    sampler.sample(poseIndex / poseRate, pose);
+                    sampler.apply(pose);
+                }
+                buffer = buildMesh(model);
+                if (buffer != null) {
+                    poses.put(poseIndex, buffer);
+                }
+            }
+            return buffer;
+        }
+    }
+}
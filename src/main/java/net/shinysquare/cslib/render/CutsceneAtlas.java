@@ -0,0 +1,29 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.resources.ResourceLocation;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+
+import java.util.Map;
+
+/**
+ * A built texture atlas for one cutscene
+ * 
+ * @param textureId The registered atlas texture
+ * @param entries Atlas entry of every Gecko model in the cutscene, by model ID
+ */
+public record CutsceneAtlas(ResourceLocation textureId, Map<String, Entry> entries) {
+    
+    /**
+     * A Gecko model's geometry, remapped onto the atlas
+     * 
+     * @param cutsceneId The cutscene the atlas belongs to
+     * @param modelId Synthetic ID the remapped geometry is registered under
+     * @param textureId The atlas texture
+     * @param model The remapped geometry
+     * @param boneTextureVersion The model's bone texture version it was built from
+     * @param globalVersion The global bone texture version it was built from
+     */
+    public record Entry(ResourceLocation cutsceneId, ResourceLocation modelId, ResourceLocation textureId, BakedGeoModel model,
+                        int boneTextureVersion, int globalVersion) {
+    }
+}
@@ -0,0 +1,401 @@
+package net.shinysquare.cslib.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+import software.bernie.geckolib.cache.object.GeoCube;
+import software.bernie.geckolib.cache.object.GeoQuad;
+import software.bernie.geckolib.cache.object.GeoVertex;
+import software.bernie.geckolib.animation.state.BoneSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds one texture atlas per cutscene for its Gecko models
+ * 
+ * Every base texture and bone-mapped texture used by a cutscene's Gecko
+ * models is stitched into a single dynamic texture, and each model's baked
+ * geometry is copied with its UVs remapped onto the atlas. A model with
+ * several bone textures then renders in one draw with one texture bind.
+ * 
+ * Images are read, packed and stitched, and geometry is remapped, on the
+ * background executor; only the texture upload runs on the render thread.
+ * Atlases are kept by cutscene ID and reused across playbacks until the
+ * next resource reload. Until an atlas is ready, models render with their
+ * own textures as before.
+ * 
+ * Player skins are per viewer and change at runtime, so they are not part
+ * of the atlas.
+ */
+public class CutsceneAtlasManager implements ResourceManagerReloadListener {
+    
+    private static final CutsceneAtlasManager INSTANCE = new CutsceneAtlasManager();
+    
+    /** Largest atlas side in pixels */
+    private static final int MAX_SIZE = 4096;
+    
+    /** Built atlases by cutscene ID (null value: nothing to atlas) */
+    private final Map<ResourceLocation, CutsceneAtlas> atlases = new HashMap<>();
+    
+    /** Cutscenes with a build in flight */
+    private final Set<ResourceLocation> building = new HashSet<>();
+    
+    /** Atlas entry of each model */
+    private final Map<GeckoSceneModel, CutsceneAtlas.Entry> entries = new WeakHashMap<>();
+    
+    /** Remapped geometry by synthetic model ID */
+    private final Map<ResourceLocation, BakedGeoModel> remappedModels = new HashMap<>();
+    
+    /** Bumped on reload, so builds started before it are thrown away */
+    private int generation;
+    
+    /**
+     * Get the shared atlas manager
+     */
+    public static CutsceneAtlasManager getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Start building a cutscene's atlas if it hasn't been built yet
+     * 
+     * Cheap to call every frame. Render thread only.
+     * 
+     * @param cutscene The cutscene
+     */
+    public void prepare(Cutscene cutscene) {
+        ResourceLocation cutsceneId = cutscene.getId();
+        if (cutsceneId == null || atlases.containsKey(cutsceneId) || building.contains(cutsceneId)) {
+            return;
+        }
+        
+        // Resolve the texture of every bone now, while the geometry is at hand
+        List<ModelRequest> requests = new ArrayList<>();
+        Set<ResourceLocation> textures = new LinkedHashSet<>();
+        for (SceneModel sceneModel : cutscene.getModels()) {
+            if (!(sceneModel instanceof GeckoSceneModel model)) {
+                continue;
+            }
+            BakedGeoModel baked = GeckoLibCache.getBakedModels().get(model.getGeoPath());
+            if (baked == null) {
+                continue;
+            }
+            
+            // Versions first: a mapping added meanwhile makes the atlas stale, never wrong
+            int boneTextureVersion = model.getBoneTextureVersion();
+            int globalVersion = BoneTextureManager.getVersion();
+            Map<String, ResourceLocation> boneTextures = new HashMap<>();
+            resolveBoneTextures(model, baked.topLevelBones(), boneTextures);
+            textures.addAll(boneTextures.values());
+            requests.add(new ModelRequest(model, baked, boneTextures, boneTextureVersion, globalVersion));
+        }
+        
+        // A single texture is already a single bind
+        if (textures.size() < 2) {
+            atlases.put(cutsceneId, null);
+            return;
+        }
+        
+        building.add(cutsceneId);
+        int buildGeneration = generation;
+        ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
+        
+        CompletableFuture.supplyAsync(() -> build(resourceManager, List.copyOf(textures), requests), Util.backgroundExecutor())
+                .whenCompleteAsync((result, error) -> {
+                    building.remove(cutsceneId);
+                    if (error != null || result == null) {
+                        if (error != null) {
+                            CutScenesLib.LOGGER.warn("Failed to build atlas for cutscene {}", cutsceneId, error);
+                        }
+                        atlases.put(cutsceneId, null);
+                        return;
+                    }
+                    if (buildGeneration != generation) {
+                        result.image().close();
+                        return;
+                    }
+                    upload(cutsceneId, result);
+                }, Minecraft.getInstance());
+    }
+    
+    /**
+     * Check whether a cutscene's atlas is still being built
+     * 
+     * @param cutscene The cutscene
+     * @return true from {@link #prepare} until the atlas is uploaded (or
+     *         turned out not to be needed)
+     */
+    public boolean isBuilding(Cutscene cutscene) {
+        return cutscene.getId() != null && building.contains(cutscene.getId());
+    }
+    
+    /**
+     * Get the atlas entry of a model
+     * 
+     * @return The entry, or null if the model has no ready, up-to-date atlas
+     */
+    public CutsceneAtlas.Entry getEntry(GeckoSceneModel model) {
+        CutsceneAtlas.Entry entry = entries.get(model);
+        if (entry == null) {
+            return null;
+        }
+        
+        // Mappings changed since the build; rebuild on the next prepare
+        if (entry.boneTextureVersion() != model.getBoneTextureVersion() || entry.globalVersion() != BoneTextureManager.getVersion()) {
+            release(entry.cutsceneId());
+            return null;
+        }
+        return entry;
+    }
+    
+    /**
+     * Get remapped geometry by its synthetic model ID
+     * 
+     * @return The geometry, or null if the ID isn't an atlas model
+     */
+    public BakedGeoModel getRemappedModel(ResourceLocation modelId) {
+        return remappedModels.get(modelId);
+    }
+    
+    @Override
+    public void onResourceManagerReload(ResourceManager resourceManager) {
+        generation++;
+        for (ResourceLocation cutsceneId : List.copyOf(atlases.keySet())) {
+            release(cutsceneId);
+        }
+        atlases.clear();
+    }
+    
+    /**
+     * Drop a cutscene's atlas and everything built from it
+     */
+    private void release(ResourceLocation cutsceneId) {
+        CutsceneAtlas atlas = atlases.remove(cutsceneId);
+        if (atlas == null) {
+            return;
+        }
+        
+        Minecraft.getInstance().getTextureManager().release(atlas.textureId());
+        for (CutsceneAtlas.Entry entry : atlas.entries().values()) {
+            remappedModels.remove(entry.modelId());
+        }
+        entries.values().removeIf(entry -> entry.cutsceneId().equals(cutsceneId));
+    }
+    
+    /**
+     * Register a finished build (render thread)
+     */
+    private void upload(ResourceLocation cutsceneId, Build build) {
+        String basePath = "atlas/" + cutsceneId.getNamespace() + "/" + cutsceneId.getPath();
+        ResourceLocation textureId = ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, basePath);
+        Minecraft.getInstance().getTextureManager().register(textureId, new DynamicTexture(build.image()));
+        
+        Map<String, CutsceneAtlas.Entry> atlasEntries = new HashMap<>();
+        for (RemappedModel remapped : build.models()) {
+            ModelRequest request = remapped.request();
+            ResourceLocation modelId = ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID,
+                    basePath + "/" + sanitize(request.model().getId()));
+            
+            CutsceneAtlas.Entry entry = new CutsceneAtlas.Entry(cutsceneId, modelId, textureId, remapped.model(),
+                    request.boneTextureVersion(), request.globalVersion());
+            atlasEntries.put(request.model().getId(), entry);
+            entries.put(request.model(), entry);
+            remappedModels.put(modelId, remapped.model());
+        }
+        
+        atlases.put(cutsceneId, new CutsceneAtlas(textureId, atlasEntries));
+        CutScenesLib.LOGGER.debug("Built {}x{} atlas for cutscene {}", build.image().getWidth(), build.image().getHeight(), cutsceneId);
+    }
+    
+    /**
+     * Read, pack and stitch the textures and remap the geometry (background executor)
+     */
+    private static Build build(ResourceManager resourceManager, List<ResourceLocation> textures, List<ModelRequest> requests) {
+        Map<ResourceLocation, NativeImage> images = new HashMap<>();
+        try {
+            for (ResourceLocation texture : textures) {
+                Optional<Resource> resource = resourceManager.getResource(texture);
+                if (resource.isEmpty()) {
+                    CutScenesLib.LOGGER.warn("Atlas texture not found: {}", texture);
+                    return null;
+                }
+                try (InputStream stream = resource.get().open()) {
+                    images.put(texture, NativeImage.read(stream));
+                }
+            }
+            
+            Map<ResourceLocation, Region> regions = new HashMap<>();
+            int[] size = pack(textures, images, regions);
+            if (size == null) {
+                CutScenesLib.LOGGER.warn("Cutscene textures don't fit in a {}x{} atlas", MAX_SIZE, MAX_SIZE);
+                return null;
+            }
+            
+            NativeImage atlas = new NativeImage(size[0], size[1], true);
+            for (ResourceLocation texture : textures) {
+                NativeImage image = images.get(texture);
+                Region region = regions.get(texture);
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        atlas.setPixelRGBA(region.x() + x, region.y() + y, image.getPixelRGBA(x, y));
+                    }
+                }
+            }
+            
+            List<RemappedModel> models = new ArrayList<>();
+            for (ModelRequest request : requests) {
+                List<GeoBone> bones = new ArrayList<>();
+                for (GeoBone bone : request.baked().topLevelBones()) {
+                    bones.add(copyBone(null, bone, request.boneTextures(), regions, size[0], size[1]));
+                }
+                models.add(new RemappedModel(request, new BakedGeoModel(bones, request.baked().properties())));
+            }
+            
+            return new Build(atlas, models);
+        } catch (IOException e) {
+            CutScenesLib.LOGGER.warn("Failed to read atlas textures", e);
+            return null;
+        } finally {
+            images.values().forEach(NativeImage::close);
+        }
+    }
+    
+    /**
+     * Shelf-pack the textures, tallest first, doubling the atlas until they fit
+     * 
+     * @return The atlas width and height, or null if it would exceed {@link #MAX_SIZE}
+     */
+    private static int[] pack(List<ResourceLocation> textures, Map<ResourceLocation, NativeImage> images, Map<ResourceLocation, Region> regions) {
+        List<ResourceLocation> sorted = new ArrayList<>(textures);
+        sorted.sort(Comparator.comparingInt((ResourceLocation t) -> images.get(t).getHeight()).reversed());
+        
+        int width = 16;
+        for (ResourceLocation texture : sorted) {
+            width = Math.max(width, images.get(texture).getWidth());
+        }
+        width = Integer.highestOneBit(width - 1) << 1;
+        
+        while (width <= MAX_SIZE) {
+            regions.clear();
+            int x = 0;
+            int y = 0;
+            int shelfHeight = 0;
+            for (ResourceLocation texture : sorted) {
+                NativeImage image = images.get(texture);
+                if (x + image.getWidth() > width) {
+                    x = 0;
+                    y += shelfHeight;
+                    shelfHeight = 0;
+                }
+                regions.put(texture, new Region(x, y, image.getWidth(), image.getHeight()));
+                x += image.getWidth();
+                shelfHeight = Math.max(shelfHeight, image.getHeight());
+            }
+            
+            int height = Integer.highestOneBit(Math.max(y + shelfHeight, 1) - 1) << 1;
+            if (height <= width) {
+                return new int[] {width, Math.max(height, 1)};
+            }
+            width <<= 1;
+        }
+        return null;
+    }
+    
+    /**
+     * Copy a bone and its children with UVs remapped onto the atlas
+     */
+    private static GeoBone copyBone(GeoBone parent, GeoBone source, Map<String, ResourceLocation> boneTextures,
+                                    Map<ResourceLocation, Region> regions, int atlasWidth, int atlasHeight) {
+        GeoBone copy = new GeoBone(parent, source.getName(), source.getMirror(), source.getInflate(), source.shouldNeverRender(), source.getReset());
+        copy.updatePivot(source.getPivotX(), source.getPivotY(), source.getPivotZ());
+        
+        // The source may be mid-animation, so copy its rest rotation
+        BoneSnapshot rest = source.getInitialSnapshot();
+        if (rest != null) {
+            copy.updateRotation(rest.getRotX(), rest.getRotY(), rest.getRotZ());
+        } else {
+            copy.updateRotation(source.getRotX(), source.getRotY(), source.getRotZ());
+        }
+        
+        Region region = regions.get(boneTextures.get(source.getName()));
+        for (GeoCube cube : source.getCubes()) {
+            copy.getCubes().add(region != null ? remapCube(cube, region, atlasWidth, atlasHeight) : cube);
+        }
+        for (GeoBone child : source.getChildBones()) {
+            copy.getChildBones().add(copyBone(copy, child, boneTextures, regions, atlasWidth, atlasHeight));
+        }
+        return copy;
+    }
+    
+    private static GeoCube remapCube(GeoCube cube, Region region, int atlasWidth, int atlasHeight) {
+        GeoQuad[] quads = new GeoQuad[cube.quads().length];
+        for (int q = 0; q < quads.length; q++) {
+            GeoQuad quad = cube.quads()[q];
+            if (quad == null) {
+                continue;
+            }
+            
+            GeoVertex[] vertices = new GeoVertex[quad.vertices().length];
+            for (int v = 0; v < vertices.length; v++) {
+                GeoVertex vertex = quad.vertices()[v];
+                vertices[v] = new GeoVertex(vertex.position(),
+                        (region.x() + vertex.texU() * region.width()) / atlasWidth,
+                        (region.y() + vertex.texV() * region.height()) / atlasHeight);
+            }
+            quads[q] = new GeoQuad(vertices, quad.normal(), quad.direction());
+        }
+        return new GeoCube(quads, cube.pivot(), cube.rotation(), cube.size(), cube.inflate(), cube.mirror());
+    }
+    
+    /**
+     * Resolve the texture of every bone: model mapping, then global mapping, then base texture
+     */
+    private static void resolveBoneTextures(GeckoSceneModel model, List<GeoBone> bones, Map<String, ResourceLocation> dest) {
+        for (GeoBone bone : bones) {
+            dest.put(bone.getName(), model.getTextureForBone(bone.getName()));
+            resolveBoneTextures(model, bone.getChildBones(), dest);
+        }
+    }
+    
+    private static String sanitize(String id) {
+        return id.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9/._-]", "_");
+    }
+    
+    private record ModelRequest(GeckoSceneModel model, BakedGeoModel baked, Map<String, ResourceLocation> boneTextures,
+                                int boneTextureVersion, int globalVersion) {
+    }
+    
+    private record Region(int x, int y, int width, int height) {
+    }
+    
+    private record RemappedModel(ModelRequest request, BakedGeoModel model) {
+    }
+    
+    private record Build(NativeImage image, List<RemappedModel> models) {
+    }
+}
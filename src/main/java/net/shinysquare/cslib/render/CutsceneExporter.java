@@ -0,0 +1,424 @@
+package net.shinysquare.cslib.render;
+
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.chat.Component;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforge.client.event.RenderFrameEvent;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutscenePlayer;
+import net.shinysquare.cslib.core.PlaybackSnapshot;
+import net.shinysquare.cslib.core.SceneEvaluator;
+import net.shinysquare.cslib.core.SceneState;
+import net.shinysquare.cslib.core.SceneStateBuffer;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.stb.STBImageWrite;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports cutscenes as image sequences
+ * 
+ * An export renders a {@link CutscenePlayer}'s cutscene into an offscreen
+ * render target of any size, one frame every 1 / fps seconds of cutscene
+ * time. Frame times never depend on the wall clock, level of detail is
+ * held at full and no frame is rendered until the cutscene's assets have
+ * loaded (see {@link AssetPrewarmer}), so an export produces the same
+ * images whether the client renders it faster or slower than real time.
+ * 
+ * Pixels are read back through {@link #PIXEL_BUFFERS} pixel buffers: each
+ * client frame renders up to one frame per buffer and queues their reads on
+ * the GPU, and the buffers are only mapped at the start of the next client
+ * frame, so the render thread doesn't stall on the transfers. Encoding and
+ * writing run on a worker pool. While every staging buffer is still out with
+ * a worker, the export renders no new frames; the render loop never waits on
+ * the disk.
+ * 
+ * Only OpenGL 2.1 calls are used, so exports also run on software
+ * renderers such as Mesa's llvmpipe.
+ * 
+ * Render thread only.
+ */
+public class CutsceneExporter {
+    
+    private static final CutsceneExporter INSTANCE = new CutsceneExporter();
+    
+    /** Pixel buffers reads are queued into, and so the most frames rendered per client frame */
+    private static final int PIXEL_BUFFERS = 4;
+    
+    /** Staging buffers frames are copied into for the workers */
+    private static final int STAGING_BUFFERS = 6;
+    
+    /** Threads encoding and writing frames */
+    private static final int WORKER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    
+    /**
+     * File format of exported frames
+     */
+    public enum Format {
+        /** One PNG per frame */
+        PNG,
+        /** Top-down 8-bit RGBA rows without a header, one file per frame */
+        RAW
+    }
+    
+    /** The running export, or null */
+    private Job job;
+    
+    /**
+     * Get the shared exporter
+     */
+    public static CutsceneExporter getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Start exporting a cutscene
+     * 
+     * @param viewer The view of the cutscene to export (for skin bindings)
+     * @param width Frame width in pixels
+     * @param height Frame height in pixels
+     * @param fps Frames per second of cutscene time
+     * @param format File format of the frames
+     * @return The directory the frames are written to
+     * @throws IllegalStateException If an export is already running
+     */
+    public Path export(CutscenePlayer viewer, int width, int height, int fps, Format format) {
+        if (job != null) {
+            throw new IllegalStateException("An export is already running");
+        }
+        if (width <= 0 || height <= 0 || fps <= 0) {
+            throw new IllegalArgumentException("Invalid export size " + width + "x" + height + " at " + fps + " fps");
+        }
+        
+        Cutscene cutscene = viewer.getCutscene();
+        String stamp = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+        Path directory = FMLPaths.GAMEDIR.get()
+                .resolve(CutScenesLib.MOD_ID)
+                .resolve("exports")
+                .resolve(cutscene.getName().replaceAll("[^A-Za-z0-9_.-]", "_") + "_" + stamp);
+        
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create export directory " + directory, e);
+        }
+        
+        job = new Job(viewer, width, height, fps, format, directory);
+        LodController.getInstance().setFixedDetail(true);
+        CutScenesLib.LOGGER.info("Exporting {} frames of {} at {}x{} to {}", job.frameCount, cutscene.getName(), width, height, directory);
+        return directory;
+    }
+    
+    /**
+     * Stop the running export after the frames already rendered are written
+     */
+    public void cancel() {
+        if (job != null) {
+            job.frameCount = job.nextFrame;
+        }
+    }
+    
+    /**
+     * Check whether an export is running
+     */
+    public boolean isExporting() {
+        return job != null;
+    }
+    
+    /**
+     * Render the next frames of the running export
+     * This is called once per client frame, after the game has rendered
+     */
+    @SubscribeEvent
+    public void onRenderFrame(RenderFrameEvent.Post event) {
+        if (job == null) {
+            return;
+        }
+        
+        if (Minecraft.getInstance().level == null) {
+            cancel();
+        }
+        
+        if (job.update()) {
+            job = null;
+            LodController.getInstance().setFixedDetail(false);
+        }
+    }
+    
+    /**
+     * One export in progress
+     */
+    private static class Job {
+        final CutscenePlayer viewer;
+        final Cutscene cutscene;
+        final int width;
+        final int height;
+        final int fps;
+        final Format format;
+        final Path directory;
+        final int frameBytes;
+        
+        /** Own evaluator, so frames land exactly on their time (created once the assets are ready) */
+        SceneEvaluator evaluator;
+        SceneStateBuffer sceneBuffer;
+        SceneState state;
+        
+        final TextureTarget target;
+        final int[] pixelBuffers = new int[PIXEL_BUFFERS];
+        
+        /** Loads the cutscene's assets before the first frame, null once they are ready */
+        AssetPrewarmer prewarmer;
+        
+        /** Staging buffers not out with a worker */
+        final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+        final ExecutorService workers;
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        
+        /** Frames to render (lowered on cancel) */
+        int frameCount;
+        
+        /** Next frame to render */
+        int nextFrame;
+        
+        /** Frames whose pixels are in flight in a pixel buffer, oldest first */
+        final Queue<Integer> pendingFrames = new ArrayDeque<>();
+        
+        boolean glReleased;
+        
+        Job(CutscenePlayer viewer, int width, int height, int fps, Format format, Path directory) {
+            this.viewer = viewer;
+            this.cutscene = viewer.getCutscene();
+            this.width = width;
+            this.height = height;
+            this.fps = fps;
+            this.format = format;
+            this.directory = directory;
+            this.frameBytes = width * height * 4;
+            this.frameCount = (int) Math.floor(cutscene.getDuration() * fps) + 1;
+            
+            this.target = new TextureTarget(width, height, true, Minecraft.ON_OSX);
+            target.setClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+            
+            for (int i = 0; i < pixelBuffers.length; i++) {
+                pixelBuffers[i] = GL15.glGenBuffers();
+                GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[i]);
+                GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, frameBytes, GL15.GL_STREAM_READ);
+            }
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+            
+            for (int i = 0; i < STAGING_BUFFERS; i++) {
+                freeBuffers.add(MemoryUtil.memAlloc(frameBytes));
+            }
+            
+            AtomicInteger threadId = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "CutsceneExport-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            
+            this.prewarmer = AssetPrewarmer.start(viewer);
+        }
+        
+        /**
+         * Render as many frames as the staging buffers allow
+         * 
+         * @return true once every frame is written and the job is closed
+         */
+        boolean update() {
+            // Loading assets on the first frames would make them differ from run to run
+            if (prewarmer != null) {
+                if (nextFrame < frameCount && !prewarmer.isReady()) {
+                    return false;
+                }
+                prewarmer = null;
+                
+                // Compiled after warming, so a camera config it loaded is included
+                evaluator = new SceneEvaluator(cutscene);
+                sceneBuffer = new SceneStateBuffer(evaluator.getActorCount());
+                state = sceneBuffer.createState();
+            }
+            
+            // Reads queued last client frame have had a whole frame to complete
+            while (!pendingFrames.isEmpty() && !freeBuffers.isEmpty()) {
+                collect(pendingFrames.poll());
+            }
+            
+            // Pixel buffers are only reused once all of them are collected
+            if (pendingFrames.isEmpty() && nextFrame < frameCount) {
+                for (int i = 0; i < PIXEL_BUFFERS && nextFrame < frameCount; i++) {
+                    renderFrame(nextFrame);
+                    pendingFrames.add(nextFrame++);
+                }
+                Minecraft.getInstance().getMainRenderTarget().bindWrite(true);
+            }
+            
+            if (nextFrame < frameCount || !pendingFrames.isEmpty()) {
+                return false;
+            }
+            
+            // Everything is rendered and read back; release the GPU side
+            if (!glReleased) {
+                target.destroyBuffers();
+                GL15.glDeleteBuffers(pixelBuffers);
+                glReleased = true;
+            }
+            
+            if (written.get() + failed.get() < nextFrame) {
+                return false;
+            }
+            
+            finish();
+            return true;
+        }
+        
+        /**
+         * Render a frame and queue its read back
+         */
+        private void renderFrame(int frame) {
+            double time = Math.min(frame / (double) fps, cutscene.getDuration());
+            
+            // Both slots hold the same state, so the renderer reads it as is
+            evaluator.evaluate(time, state);
+            sceneBuffer.reset(state);
+            PlaybackSnapshot snapshot = new PlaybackSnapshot(cutscene, false, time, fps, false, 0L, evaluator, sceneBuffer);
+            
+            target.clear(Minecraft.ON_OSX);
+            target.bindWrite(true);
+            CutsceneRenderer.getInstance().renderFrame(viewer, snapshot, width, height);
+            
+            // Start the transfer into this frame's pixel buffer; it is mapped next client frame
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[frame % PIXEL_BUFFERS]);
+            GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 4);
+            GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0L);
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+        }
+        
+        /**
+         * Copy a frame in flight out of its pixel buffer and hand it to a worker
+         */
+        private void collect(int frame) {
+            ByteBuffer staging = freeBuffers.poll();
+            
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[frame % PIXEL_BUFFERS]);
+            ByteBuffer pixels = GL15.glMapBuffer(GL21.GL_PIXEL_PACK_BUFFER, GL15.GL_READ_ONLY, frameBytes, null);
+            if (pixels == null) {
+                GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+                CutScenesLib.LOGGER.error("Could not read back export frame {}", frame);
+                freeBuffers.add(staging);
+                failed.incrementAndGet();
+                return;
+            }
+            
+            MemoryUtil.memCopy(MemoryUtil.memAddress(pixels), MemoryUtil.memAddress(staging), frameBytes);
+            GL15.glUnmapBuffer(GL21.GL_PIXEL_PACK_BUFFER);
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+            
+            workers.execute(() -> write(frame, staging));
+        }
+        
+        /**
+         * Encode and write one frame (worker thread)
+         */
+        private void write(int frame, ByteBuffer pixels) {
+            try {
+                prepareRows(pixels);
+                
+                String name = String.format("frame_%05d.%s", frame, format == Format.PNG ? "png" : "rgba");
+                Path file = directory.resolve(name);
+                if (format == Format.PNG) {
+                    if (!STBImageWrite.stbi_write_png(file.toString(), width, height, 4, pixels, width * 4)) {
+                        throw new IOException("PNG encoder failed");
+                    }
+                } else {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        pixels.position(0).limit(frameBytes);
+                        while (pixels.hasRemaining()) {
+                            channel.write(pixels);
+                        }
+                    }
+                }
+                written.incrementAndGet();
+            } catch (Exception e) {
+                CutScenesLib.LOGGER.error("Failed to write export frame {}", frame, e);
+                failed.incrementAndGet();
+            } finally {
+                pixels.clear();
+                freeBuffers.add(pixels);
+            }
+        }
+        
+        /**
+         * Flip rows to top-down order and make every pixel opaque
+         * 
+         * GL reads bottom-up, and the alpha left behind by blending means
+         * nothing in a video frame.
+         */
+        private void prepareRows(ByteBuffer pixels) {
+            int rowBytes = width * 4;
+            ByteBuffer row = MemoryUtil.memAlloc(rowBytes);
+            try {
+                long base = MemoryUtil.memAddress(pixels);
+                long scratch = MemoryUtil.memAddress(row);
+                for (int top = 0, bottom = height - 1; top < bottom; top++, bottom--) {
+                    long topRow = base + (long) top * rowBytes;
+                    long bottomRow = base + (long) bottom * rowBytes;
+                    MemoryUtil.memCopy(topRow, scratch, rowBytes);
+                    MemoryUtil.memCopy(bottomRow, topRow, rowBytes);
+                    MemoryUtil.memCopy(scratch, bottomRow, rowBytes);
+                }
+            } finally {
+                MemoryUtil.memFree(row);
+            }
+            
+            for (int alpha = 3; alpha < frameBytes; alpha += 4) {
+                pixels.put(alpha, (byte) 0xFF);
+            }
+        }
+        
+        /**
+         * Release the workers and staging memory and report the result
+         */
+        private void finish() {
+            workers.shutdown();
+            if (evaluator != null) {
+                evaluator.close();
+            }
+            ByteBuffer buffer;
+            while ((buffer = freeBuffers.poll()) != null) {
+                MemoryUtil.memFree(buffer);
+            }
+            
+            String message = failed.get() == 0
+                    ? String.format("Exported %d frames to %s", written.get(), directory)
+                    : String.format("Exported %d frames to %s (%d failed, see log)", written.get(), directory, failed.get());
+            CutScenesLib.LOGGER.info(message);
+            
+            Minecraft minecraft = Minecraft.getInstance();
+            if (minecraft.player != null) {
+                minecraft.player.displayClientMessage(Component.literal(message), false);
+            }
+        }
+    }
+}
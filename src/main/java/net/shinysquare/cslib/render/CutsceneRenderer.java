@@ -1,18 +1,48 @@
 package net.shinysquare.cslib.render;
 
+import com.mojang.blaze3d.platform.Window;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.BufferUploader;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import com.mojang.blaze3d.vertex.VertexSorting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.player.LocalPlayer;
-import net.minecraft.world.entity.player.Player;
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.renderer.LevelRenderer;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
 import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
 import net.neoforged.neoforge.client.event.RenderGuiEvent;
+import net.neoforged.neoforge.client.event.RenderHandEvent;
+import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
 import net.shinysquare.cslib.CutScenesLib;
 import net.shinysquare.cslib.core.CutscenePlayer;
-import net.shinysquare.cslib.cutscene.CameraPath;
-import net.shinysquare.cslib.cutscene.CutsceneFrame;
+import net.shinysquare.cslib.core.PlaybackSnapshot;
+import net.shinysquare.cslib.core.SceneEvaluator;
+import net.shinysquare.cslib.core.SceneState;
+import net.shinysquare.cslib.core.SceneStateBuffer;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
+import org.joml.Matrix4fStack;
 import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11;
+
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Renders cutscenes on screen
@@ -23,8 +53,14 @@ import org.joml.Vector3f;
  * - Applying player skin textures
  * - Drawing the cutscene overlay
  * 
- * The cutscene is rendered as an overlay on top of the game world,
- * similar to how the pause menu or inventory screen is rendered.
+ * The scene is drawn at the end of the level render stage, through the
+ * cutscene camera's own perspective projection and with its own depth
+ * buffer, so models are depth-tested in world units (blocks). Actors
+ * outside the camera's frustum are culled against bounds measured once per
+ * playback ({@link SceneBounds}) before anything is submitted.
+ * 
+ * The progress bar and other HUD elements are drawn afterwards in the GUI
+ * pass.
  * 
  * @author ShinySquare
  */
@@ -33,9 +69,44 @@ public class CutsceneRenderer {
     /** Singleton instance */
     private static CutsceneRenderer instance;
     
+    /** Near plane of the cutscene camera */
+    private static final float NEAR_PLANE = 0.05f;
+    
+    /** Far plane of the cutscene camera */
+    private static final float FAR_PLANE = 512.0f;
+    
     /** The skin texture mapper */
     private final SkinTextureMapper skinMapper;
     
+    /** Interpolated scene state for the current frame */
+    private SceneState renderState;
+    
+    /** The buffer renderState was created for */
+    private SceneStateBuffer renderStateSource;
+    
+    /** Bone matrices of each viewer's actors, kept for the viewer's playback */
+    private final Map<CutscenePlayer, PoseEvaluator> poseEvaluators = new WeakHashMap<>();
+    
+    /** Culling bounds of the current playback */
+    private SceneBounds bounds;
+    
+    /** The layout bounds were measured for */
+    private SceneEvaluator boundsSource;
+    
+    // Camera matrices and frustum reused every frame
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f screenProjection = new Matrix4f();
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final PoseStack worldPose = new PoseStack();
+    
+    // Scratch vectors reused every frame
+    private final Vector3f scratchPosition = new Vector3f();
+    private final Vector3f scratchRotation = new Vector3f();
+    private final Vector3f scratchScale = new Vector3f();
+    private final Vector3f scratchCamera = new Vector3f();
+    
     /**
      * Create a new cutscene renderer
      */
@@ -56,109 +127,363 @@ public class CutsceneRenderer {
     }
     
     /**
-     * Render the cutscene overlay
+     * Get the skin texture mapper
+     */
+    public SkinTextureMapper getSkinMapper() {
+        return skinMapper;
+    }
+    
+    /**
+     * Sweep the skin cache for players who left
+     */
+    @SubscribeEvent
+    public void onClientTick(ClientTickEvent.Post event) {
+        skinMapper.tick();
+    }
+    
+    /**
+     * Drop every cached skin when leaving a server
+     */
+    @SubscribeEvent
+    public void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        skinMapper.clearCache();
+    }
+    
+    /**
+     * Render the cutscene scene
+     * This is called every frame at the end of the level render
+     */
+    @SubscribeEvent
+    public void onRenderLevelStage(RenderLevelStageEvent event) {
+        if (event.getStage() != RenderLevelStageEvent.Stage.AFTER_LEVEL) {
+            return;
+        }
+        
+        CutscenePlayer viewer = getActiveViewer();
+        if (viewer == null) {
+            return;
+        }
+        
+        Window window = Minecraft.getInstance().getWindow();
+        float aspect = (float) window.getWidth() / Math.max(1, window.getHeight());
+        renderScene(viewer, viewer.getSnapshot(), event.getPartialTick().getGameTimeDeltaPartialTick(true), aspect);
+    }
+    
+    /**
+     * Render one frame of a cutscene into the bound render target
+     * 
+     * Used by {@link CutsceneExporter} to draw frames offscreen. The snapshot
+     * is rendered exactly at its tick time.
+     * 
+     * @param viewer The view of the cutscene to render (for skin bindings)
+     * @param snapshot The timeline state to render
+     * @param width The target width in pixels
+     * @param height The target height in pixels
+     */
+    public void renderFrame(CutscenePlayer viewer, PlaybackSnapshot snapshot, int width, int height) {
+        renderScene(viewer, snapshot, 0.0f, (float) width / Math.max(1, height));
+    }
+    
+    /**
+     * Hide the first-person hand while a cutscene is shown
+     */
+    @SubscribeEvent
+    public void onRenderHand(RenderHandEvent event) {
+        if (getActiveViewer() != null) {
+            event.setCanceled(true);
+        }
+    }
+    
+    /**
+     * Render the cutscene HUD
      * This is called every frame when rendering the GUI
      */
     @SubscribeEvent
     public void onRenderGui(RenderGuiEvent.Post event) {
-        Minecraft minecraft = Minecraft.getInstance();
-        LocalPlayer player = minecraft.player;
+        LocalPlayer player = Minecraft.getInstance().player;
+        CutscenePlayer viewer = player != null ? CutScenesLib.getInstance().getCutsceneManager().getCutscenePlayer(player) : null;
+        if (viewer == null) {
+            return;
+        }
         
-        if (player == null) {
+        // Fade to black while the assets load, and back in once playback begins
+        GuiGraphics graphics = event.getGuiGraphics();
+        float fade = viewer.getCutscene().getFadeDuration();
+        if (viewer.isWarming()) {
+            renderFade(graphics, fade > 0.0f ? viewer.getWarmingTime() / fade : 1.0f);
+            return;
+        }
+        if (!viewer.isPlaying()) {
             return;
         }
         
+        float partialTick = event.getPartialTick().getGameTimeDeltaPartialTick(true);
+        PlaybackSnapshot snapshot = viewer.getSnapshot();
+        renderHud(graphics, snapshot, partialTick);
+        if (fade > 0.0f) {
+            renderFade(graphics, 1.0f - (snapshot.getTime(partialTick) - viewer.getJoinOffset()) / fade);
+        }
+    }
+    
+    /**
+     * Cover the screen in black
+     * 
+     * @param alpha Opacity from 0 to 1 (clamped)
+     */
+    private void renderFade(GuiGraphics graphics, float alpha) {
+        int a = (int) (Mth.clamp(alpha, 0.0f, 1.0f) * 255.0f);
+        if (a > 0) {
+            graphics.fill(0, 0, graphics.guiWidth(), graphics.guiHeight(), a << 24);
+        }
+    }
+    
+    /**
+     * Get the local player's cutscene, or null if they aren't watching one
+     */
+    private CutscenePlayer getActiveViewer() {
+        LocalPlayer player = Minecraft.getInstance().player;
+        if (player == null) {
+            return null;
+        }
+        
         // Check if this player is watching a cutscene
-        CutscenePlayer cutscenePlayer = CutScenesLib.getInstance()
+        CutscenePlayer viewer = CutScenesLib.getInstance()
                 .getCutsceneManager()
                 .getCutscenePlayer(player);
         
-        if (cutscenePlayer == null || !cutscenePlayer.isPlaying()) {
-            return;
-        }
-        
-        // Render the cutscene
-        renderCutscene(event.getGuiGraphics(), cutscenePlayer, event.getPartialTick());
+        return viewer != null && viewer.isPlaying() ? viewer : null;
     }
     
     /**
-     * Render a cutscene
+     * Render the cutscene's models through the cutscene camera
      * 
-     * @param graphics The GUI graphics context
-     * @param cutscenePlayer The cutscene player
+     * @param viewer The local player's view of the cutscene
+     * @param snapshot The published timeline state
      * @param partialTick Partial tick for smooth interpolation
+     * @param aspect Width over height of the render target
      */
-    private void renderCutscene(GuiGraphics graphics, CutscenePlayer cutscenePlayer, float partialTick) {
-        PoseStack poseStack = graphics.pose();
-        net.shinysquare.cslib.cutscene.Cutscene cutscene = cutscenePlayer.getCutscene();
+    private void renderScene(CutscenePlayer viewer, PlaybackSnapshot snapshot, float partialTick, float aspect) {
+        Minecraft minecraft = Minecraft.getInstance();
+        Cutscene cutscene = snapshot.cutscene();
         
-        int screenWidth = Minecraft.getInstance().getWindow().getGuiScaledWidth();
-        int screenHeight = Minecraft.getInstance().getWindow().getGuiScaledHeight();
-
-        // Handle Background Overlay
-        if (cutscene.hasOverlay()) {
-            int color = cutscene.getOverlayColor();
-            float opacity = cutscene.getOverlayOpacity();
-            int alpha = (int)(opacity * 255) << 24;
-            graphics.fill(0, 0, screenWidth, screenHeight, (color & 0x00FFFFFF) | alpha);
-        } else {
-            // Default black background if no overlay specified
-            graphics.fill(0, 0, screenWidth, screenHeight, 0xFF000000);
-        }
+        // Sample the timeline at render rate rather than at tick granularity
+        float time = snapshot.getTime(partialTick);
+        
+        // Stitch the cutscene's model textures in the background (once per cutscene)
+        CutsceneAtlasManager.getInstance().prepare(cutscene);
+        
+        // Interpolate the states evaluated on the tick thread
+        SceneState state = getRenderState(snapshot.sceneBuffer());
+        snapshot.sceneBuffer().read(time, state);
         
-        // Handle External Camera Config
-        CameraPath.CameraState cameraState = cutscenePlayer.getCameraState();
-        if (cutscene.getCameraConfigLocation() != null && cutscene.getCameraPath() == null) {
-            // Load camera config if not already loaded
-            net.minecraft.server.packs.resources.ResourceManager rm = Minecraft.getInstance().getResourceManager();
-            cutscene.setCameraPath(net.shinysquare.cslib.loader.CutsceneLoader.loadCameraConfig(rm, cutscene.getCameraConfigLocation()));
+        SceneEvaluator layout = snapshot.evaluator();
+        SceneBounds sceneBounds = getBounds(cutscene, layout);
+        
+        setupCamera(state, aspect);
+        
+        // Pick detail levels from screen size, adapting to the frame rate
+        LodController lod = LodController.getInstance();
+        lod.beginFrame();
+        Vector3f camera = state.hasCamera() ? state.getCameraPosition(scratchCamera) : scratchCamera.zero();
+        float projectionScale = projection.m11();
+        
+        // Evaluate the bones of every actor in view, on the fork-join pool for large scenes
+        PoseEvaluator poses = poseEvaluators.computeIfAbsent(viewer, v -> new PoseEvaluator(v.getCutscene()));
+        poses.begin();
+        for (int i = 0; i < layout.getModelCount(); i++) {
+            if (state.isVisible(i) && sceneBounds.isVisible(frustum, state, i)) {
+                poses.add(i);
+            }
         }
+        poses.evaluate(time);
+        
+        // Swap the level camera for the cutscene camera
+        RenderSystem.backupProjectionMatrix();
+        Matrix4fStack modelViewStack = RenderSystem.getModelViewStack();
+        modelViewStack.pushMatrix();
+        modelViewStack.identity();
+        RenderSystem.applyModelViewMatrix();
+        
+        renderBackground(cutscene);
+        RenderSystem.setProjectionMatrix(projection, VertexSorting.DISTANCE_TO_ORIGIN);
         
+        MultiBufferSource.BufferSource bufferSource = minecraft.renderBuffers().bufferSource();
+        PoseStack poseStack = worldPose;
         poseStack.pushPose();
+        poseStack.mulPose(view);
+        poses.await();
+        
+        // Render all visible actors in the scene (Scene Composition + frame entities)
+        for (int i = 0; i < state.getActorCount(); i++) {
+            if (!state.isVisible(i) || !sceneBounds.isVisible(frustum, state, i)) {
+                continue;
+            }
+            
+            float screenSize = sceneBounds.getScreenSize(state, i, camera, projectionScale);
+            if (!lod.isVisible(screenSize)) {
+                continue;
+            }
+            
+            poseStack.pushPose();
+            applyActorTransform(poseStack, state, i);
+            
+            if (i < layout.getModelCount()) {
+                SceneModel model = cutscene.getModels().get(i);
+                lod.update(model, screenSize);
+                renderSceneModel(poseStack, bufferSource, model, poses.getPose(i), time, partialTick);
+            } else if (layout.usesPlayerSkin(i)) {
+                String actorId = layout.getActorId(i);
+                ResourceLocation skin = skinMapper.getSkinForEntity(cutscene, actorId, viewer.getSkinOwner(actorId));
+                skinMapper.renderWithSkinTexture(poseStack, bufferSource, layout.getEntityModel(i), skin, LightTexture.FULL_BRIGHT);
+            } else {
+                renderModel(poseStack, bufferSource, layout.getEntityModel(i));
+            }
+            
+            poseStack.popPose();
+        }
+        
+        poseStack.popPose();
+        bufferSource.endBatch();
+        
+        // Crowds draw their shared poses straight from GPU buffers
+        if (!cutscene.getCrowds().isEmpty()) {
+            CrowdRenderer.getInstance().render(cutscene, time, view, projection, frustum, camera, projectionScale);
+        }
+        
+        modelViewStack.popMatrix();
+        RenderSystem.applyModelViewMatrix();
+        RenderSystem.restoreProjectionMatrix();
+    }
+    
+    /**
+     * Render the cutscene HUD
+     * 
+     * @param graphics The GUI graphics context
+     * @param snapshot The published timeline state
+     * @param partialTick Partial tick for smooth interpolation
+     */
+    private void renderHud(GuiGraphics graphics, PlaybackSnapshot snapshot, float partialTick) {
+        Cutscene cutscene = snapshot.cutscene();
+        float time = snapshot.getTime(partialTick);
         
-        // Set up 3D rendering space
-        setupCamera(poseStack, cameraState, screenWidth, screenHeight);
+        int screenWidth = Minecraft.getInstance().getWindow().getGuiScaledWidth();
+        int screenHeight = Minecraft.getInstance().getWindow().getGuiScaledHeight();
         
         // Render recorded world if applicable
         if (cutscene.isRecording()) {
-            renderRecordedWorld(graphics, cutscene, cutscenePlayer.getCurrentTime());
+            renderRecordedWorld(graphics, cutscene, time);
         }
-
-        // Render all models in the scene (Scene Composition)
-        for (net.shinysquare.cslib.cutscene.SceneModel model : cutscene.getModels()) {
-            renderSceneModel(graphics, model, cutscenePlayer.getPlayer(), cutscenePlayer.getCurrentTime());
+        
+        // Render progress bar at bottom
+        renderProgressBar(graphics, snapshot, time, screenWidth, screenHeight);
+    }
+    
+    /**
+     * Get the render-side output state for a scene buffer
+     * 
+     * Reused across frames and only reallocated when a new playback starts.
+     */
+    private SceneState getRenderState(SceneStateBuffer buffer) {
+        if (renderStateSource != buffer) {
+            renderState = buffer.createState();
+            renderStateSource = buffer;
         }
+        return renderState;
+    }
+    
+    /**
+     * Get the culling bounds for a playback
+     * 
+     * Measured once when a new playback starts.
+     */
+    private SceneBounds getBounds(Cutscene cutscene, SceneEvaluator layout) {
+        if (boundsSource != layout) {
+            bounds = new SceneBounds(cutscene, layout);
+            boundsSource = layout;
+        }
+        return bounds;
+    }
+    
+    /**
+     * Clear the screen behind the scene
+     * 
+     * An opaque background replaces the level; a translucent overlay tints
+     * it. Either way the scene gets a depth buffer of its own.
+     */
+    private void renderBackground(Cutscene cutscene) {
+        // Default black background if no overlay specified
+        int color = cutscene.hasOverlay() ? cutscene.getOverlayColor() : 0x000000;
+        float opacity = cutscene.hasOverlay() ? cutscene.getOverlayOpacity() : 1.0f;
         
-        poseStack.popPose();
+        if (opacity >= 1.0f) {
+            RenderSystem.clearColor(((color >> 16) & 0xFF) / 255.0f, ((color >> 8) & 0xFF) / 255.0f, (color & 0xFF) / 255.0f, 1.0f);
+            RenderSystem.clear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT, Minecraft.ON_OSX);
+            return;
+        }
         
-        // Render progress bar at bottom
-        renderProgressBar(graphics, cutscenePlayer, screenWidth, screenHeight);
+        if (opacity > 0.0f) {
+            // Full-screen quad in clip space
+            RenderSystem.setProjectionMatrix(screenProjection.identity(), VertexSorting.ORTHOGRAPHIC_Z);
+            RenderSystem.setShader(GameRenderer::getPositionColorShader);
+            RenderSystem.enableBlend();
+            RenderSystem.defaultBlendFunc();
+            RenderSystem.disableDepthTest();
+            RenderSystem.disableCull();
+            
+            int argb = ((int) (opacity * 255) << 24) | (color & 0x00FFFFFF);
+            BufferBuilder builder = Tesselator.getInstance().begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_COLOR);
+            builder.addVertex(-1.0f, -1.0f, 0.0f).setColor(argb);
+            builder.addVertex(1.0f, -1.0f, 0.0f).setColor(argb);
+            builder.addVertex(1.0f, 1.0f, 0.0f).setColor(argb);
+            builder.addVertex(-1.0f, 1.0f, 0.0f).setColor(argb);
+            BufferUploader.drawWithShader(builder.buildOrThrow());
+            
+            RenderSystem.enableCull();
+            RenderSystem.enableDepthTest();
+            RenderSystem.disableBlend();
+        }
+        
+        RenderSystem.clear(GL11.GL_DEPTH_BUFFER_BIT, Minecraft.ON_OSX);
     }
-
+    
+    /**
+     * Render a scene model at the current pose
+     */
+    private void renderSceneModel(PoseStack poseStack, MultiBufferSource bufferSource, SceneModel model, PoseEvaluator.ActorPose pose, float time, float partialTick) {
+        if (model instanceof GeckoSceneModel geckoModel) {
+            // Gecko animations follow the cutscene clock
+            geckoModel.setAnimationTime(time);
+            renderGeckoModel(poseStack, bufferSource, geckoModel, pose, partialTick);
+        } else {
+            renderModel(poseStack, bufferSource, "cube");
+        }
+    }
+    
     /**
      * Render a GeckoLib model in the scene
+     * 
+     * @param pose The model's evaluated bone matrices, or null to pose its bones
      */
-    private void renderGeckoModel(GuiGraphics graphics, net.shinysquare.cslib.cutscene.GeckoSceneModel model, Player player, float time) {
-        PoseStack poseStack = graphics.pose();
+    private void renderGeckoModel(PoseStack poseStack, MultiBufferSource bufferSource, GeckoSceneModel model, PoseEvaluator.ActorPose pose, float partialTick) {
+        // The camera bone was baked into the cutscene's camera track at load
         
-        // 1. Handle Camera Bone
-        // We look for a bone named "camera" in the model's bone hierarchy
-        // If found, we extract its world-space position and rotation to set the camera
-        
-        // 2. Render using GeckoSceneRenderer
+        // Render using GeckoSceneRenderer
         // This renderer includes the BoneTextureRenderLayer for native texture swapping
-        net.shinysquare.cslib.render.GeckoSceneRenderer renderer = new net.shinysquare.cslib.render.GeckoSceneRenderer(model.getGeoPath());
+        // One renderer per geometry, shared across models and frames
+        GeckoSceneRenderer renderer = GeckoRendererCache.getInstance().get(model.getGeoPath());
+        renderer.setActorPose(pose);
         
         poseStack.pushPose();
-        // renderer.render(model, ...); // Native GeckoLib render call
-        graphics.fill(-10, -10, 10, 10, 0xFF00FF00); 
+        // GeoObjectRenderer centres models in a block; ours sit on the actor's pivot
+        poseStack.translate(-0.5f, -0.51f, -0.5f);
+        renderer.render(poseStack, model, bufferSource, null, null, LightTexture.FULL_BRIGHT, partialTick);
         poseStack.popPose();
     }
     
     /**
      * Render the recorded world snapshot and player path
      */
-    private void renderRecordedWorld(GuiGraphics graphics, net.shinysquare.cslib.cutscene.Cutscene cutscene, float time) {
+    private void renderRecordedWorld(GuiGraphics graphics, Cutscene cutscene, float time) {
         // In a full implementation, this would:
         // 1. Load the recording JSON from cutscene.getRecordingPath()
         // 2. Render the blocks from the world_snapshot
@@ -167,86 +492,74 @@ public class CutsceneRenderer {
         // Placeholder: Render a message indicating recording playback
         graphics.drawString(Minecraft.getInstance().font, "Playing Recording: " + cutscene.getRecordingPath(), 20, 40, 0xFF00FF00);
     }
-
+    
     /**
-     * Set up the camera for 3D rendering
+     * Set up the cutscene camera's projection, view and frustum
      */
-    private void setupCamera(PoseStack poseStack, CameraPath.CameraState cameraState, int screenWidth, int screenHeight) {
-        if (cameraState == null) {
-            return;
-        }
-        
-        // Center the rendering
-        poseStack.translate(screenWidth / 2.0, screenHeight / 2.0, 0);
+    private void setupCamera(SceneState state, float aspect) {
+        float fov = Minecraft.getInstance().options.fov().get();
+        projection.setPerspective((float) Math.toRadians(fov), aspect, NEAR_PLANE, FAR_PLANE);
         
-        // Apply camera rotation
-        Vector3f rotation = cameraState.getRotation();
-        poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(1, 0, 0, rotation.x));
-        poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(0, 1, 0, rotation.y));
-        poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(0, 0, 1, rotation.z));
+        view.identity();
+        if (state.hasCamera()) {
+            // Apply camera rotation
+            Vector3f rotation = state.getCameraRotation(scratchRotation);
+            view.rotateX((float) Math.toRadians(rotation.x))
+                    .rotateY((float) Math.toRadians(rotation.y))
+                    .rotateZ((float) Math.toRadians(rotation.z));
+            
+            // Apply camera position (translate in opposite direction)
+            Vector3f position = state.getCameraPosition(scratchPosition);
+            view.translate(-position.x, -position.y, -position.z);
+        }
         
-        // Apply camera position (translate in opposite direction)
-        Vector3f position = cameraState.getPosition();
-        poseStack.translate(-position.x * 20, -position.y * 20, -position.z * 20);
+        frustum.set(projection.mul(view, viewProjection));
     }
     
     /**
-     * Render a single entity in the cutscene
+     * Apply an actor's evaluated transform
      */
-    private void renderEntity(GuiGraphics graphics, CutsceneFrame.FrameEntity entity, Player player) {
-        PoseStack poseStack = graphics.pose();
-        
-        poseStack.pushPose();
+    private void applyActorTransform(PoseStack poseStack, SceneState state, int actor) {
+        Vector3f pos = state.getPosition(actor, scratchPosition);
+        poseStack.translate(pos.x, pos.y, pos.z);
         
-        // Apply entity transformations
-        Vector3f pos = entity.getPosition();
-        poseStack.translate(pos.x * 20, pos.y * 20, pos.z * 20);
-        
-        Vector3f rot = entity.getRotation();
+        Vector3f rot = state.getRotation(actor, scratchRotation);
         poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(1, 0, 0, rot.x));
         poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(0, 1, 0, rot.y));
         poseStack.mulPose(org.joml.Quaternionf.fromAxisAngleDeg(0, 0, 1, rot.z));
         
-        Vector3f scale = entity.getScale();
+        Vector3f scale = state.getScale(actor, scratchScale);
         poseStack.scale(scale.x, scale.y, scale.z);
-        
-        // Render the model
-        if (entity.isUsePlayerSkin()) {
-            // Render with player skin
-            skinMapper.renderWithPlayerSkin(graphics, entity, player);
-        } else {
-            // Render normal model
-            renderModel(graphics, entity);
-        }
-        
-        poseStack.popPose();
     }
     
     /**
      * Render a model (placeholder implementation)
      * 
-     * In a full implementation, this would load and render actual 3D models.
-     * For now, we'll render simple colored cubes as placeholders.
+     * Models without geometry are drawn as flat-shaded boxes of the size
+     * {@link SceneBounds} measures them at.
      */
-    private void renderModel(GuiGraphics graphics, CutsceneFrame.FrameEntity entity) {
-        // TODO: Implement actual 3D model rendering
-        // For now, render a simple placeholder
+    private void renderModel(PoseStack poseStack, MultiBufferSource bufferSource, String model) {
+        VertexConsumer buffer = bufferSource.getBuffer(RenderType.debugFilledBox());
         
-        String model = entity.getModel();
         if ("player".equals(model)) {
-            // Render a player-shaped placeholder
-            graphics.fill(-4, -12, 4, 12, 0xFFFFAAAA); // Body
-            graphics.fill(-3, -16, 3, -12, 0xFFFFDDDD); // Head
+            // Render a player-sized box standing on the pivot
+            float halfWidth = SceneBounds.PLAYER_HALF_WIDTH;
+            LevelRenderer.addChainedFilledBoxVertices(poseStack, buffer,
+                    -halfWidth, 0, -halfWidth, halfWidth, SceneBounds.PLAYER_HEIGHT, halfWidth,
+                    1.0f, 0.67f, 0.67f, 1.0f);
         } else {
             // Render a generic cube
-            graphics.fill(-5, -5, 5, 5, 0xFFAAAAAA);
+            float halfSize = SceneBounds.CUBE_HALF_SIZE;
+            LevelRenderer.addChainedFilledBoxVertices(poseStack, buffer,
+                    -halfSize, -halfSize, -halfSize, halfSize, halfSize, halfSize,
+                    0.67f, 0.67f, 0.67f, 1.0f);
         }
     }
     
     /**
      * Render the progress bar at the bottom of the screen
      */
-    private void renderProgressBar(GuiGraphics graphics, CutscenePlayer cutscenePlayer, int screenWidth, int screenHeight) {
+    private void renderProgressBar(GuiGraphics graphics, PlaybackSnapshot snapshot, float time, int screenWidth, int screenHeight) {
         int barHeight = 4;
         int barY = screenHeight - barHeight - 10;
         int barWidth = screenWidth - 40;
@@ -256,15 +569,14 @@ public class CutsceneRenderer {
         graphics.fill(barX, barY, barX + barWidth, barY + barHeight, 0xFF333333);
         
         // Progress
-        float progress = cutscenePlayer.getProgress();
+        float duration = snapshot.cutscene().getDuration();
+        float progress = duration <= 0 ? 1.0f : Math.min(time / duration, 1.0f);
         int progressWidth = (int) (barWidth * progress);
         graphics.fill(barX, barY, barX + progressWidth, barY + barHeight, 0xFFFFFFFF);
         
         // Time text
-        String timeText = String.format("%.1f / %.1f", 
-                cutscenePlayer.getCurrentTime(), 
-                cutscenePlayer.getCutscene().getDuration());
-        graphics.drawString(Minecraft.getInstance().font, timeText, 
+        String timeText = String.format("%.1f / %.1f", time, duration);
+        graphics.drawString(Minecraft.getInstance().font, timeText,
                 barX, barY - 10, 0xFFFFFFFF);
     }
 }
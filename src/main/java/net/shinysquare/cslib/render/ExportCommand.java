@@ -0,0 +1,95 @@
+package net.shinysquare.cslib.render;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.client.Minecraft;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.core.CutsceneManager;
+import net.shinysquare.cslib.core.CutscenePlayer;
+import net.shinysquare.cslib.cutscene.Cutscene;
+
+import java.nio.file.Path;
+
+/**
+ * Client command exporting cutscenes as image sequences
+ * 
+ * /cslib export <cutscene> <width> <height> <fps> [png|raw]
+ * /cslib export cancel
+ */
+public class ExportCommand {
+    
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("cslib")
+            .then(Commands.literal("export")
+                .then(Commands.literal("cancel")
+                    .executes(context -> {
+                        CutsceneExporter exporter = CutsceneExporter.getInstance();
+                        if (!exporter.isExporting()) {
+                            context.getSource().sendFailure(Component.literal("Not exporting!"));
+                            return 0;
+                        }
+                        
+                        exporter.cancel();
+                        context.getSource().sendSuccess(() -> Component.literal("Cancelled export, finishing frames already rendered"), false);
+                        return 1;
+                    })
+                )
+                .then(Commands.argument("cutscene", ResourceLocationArgument.id())
+                    .then(Commands.argument("width", IntegerArgumentType.integer(16, 8192))
+                        .then(Commands.argument("height", IntegerArgumentType.integer(16, 8192))
+                            .then(Commands.argument("fps", IntegerArgumentType.integer(1, 240))
+                                .executes(context -> export(context, CutsceneExporter.Format.PNG))
+                                .then(Commands.literal("png")
+                                    .executes(context -> export(context, CutsceneExporter.Format.PNG))
+                                )
+                                .then(Commands.literal("raw")
+                                    .executes(context -> export(context, CutsceneExporter.Format.RAW))
+                                )
+                            )
+                        )
+                    )
+                )
+            )
+        );
+    }
+    
+    private static int export(CommandContext<CommandSourceStack> context, CutsceneExporter.Format format) {
+        Minecraft minecraft = Minecraft.getInstance();
+        CutsceneExporter exporter = CutsceneExporter.getInstance();
+        if (minecraft.player == null) {
+            return 0;
+        }
+        if (exporter.isExporting()) {
+            context.getSource().sendFailure(Component.literal("Already exporting!"));
+            return 0;
+        }
+        
+        ResourceLocation id = ResourceLocationArgument.getId(context, "cutscene");
+        CutsceneManager manager = CutScenesLib.getInstance().getCutsceneManager();
+        Cutscene cutscene = manager.getCutscene(id);
+        if (cutscene == null) {
+            cutscene = manager.loadCutscene(id);
+        }
+        if (cutscene == null) {
+            context.getSource().sendFailure(Component.literal("Unknown cutscene " + id));
+            return 0;
+        }
+        
+        int width = IntegerArgumentType.getInteger(context, "width");
+        int height = IntegerArgumentType.getInteger(context, "height");
+        int fps = IntegerArgumentType.getInteger(context, "fps");
+        
+        // A viewer that is never started: it only supplies the skin bindings
+        CutscenePlayer viewer = new CutscenePlayer(minecraft.player, cutscene);
+        Path directory = exporter.export(viewer, width, height, fps, format);
+        
+        context.getSource().sendSuccess(() -> Component.literal("Exporting " + id + " to " + directory), false);
+        return 1;
+    }
+}
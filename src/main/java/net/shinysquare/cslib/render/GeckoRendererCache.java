@@ -0,0 +1,51 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.shinysquare.cslib.CutScenesLib;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches GeckoSceneRenderers by geometry
+ * 
+ * Building a renderer also builds its GeoModel and render layers, so each
+ * geometry gets one renderer, created on first use and shared by every
+ * model and playback that uses it. The cache is cleared on resource reload
+ * so renderers never hold on to stale geometry or textures.
+ * 
+ * Render thread only.
+ */
+public class GeckoRendererCache implements ResourceManagerReloadListener {
+    
+    private static final GeckoRendererCache INSTANCE = new GeckoRendererCache();
+    
+    private final Map<ResourceLocation, GeckoSceneRenderer> renderers = new HashMap<>();
+    
+    /**
+     * Get the shared cache
+     */
+    public static GeckoRendererCache getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Get the renderer for a geometry, creating it on first use
+     * 
+     * @param geometry The geometry the renderer draws
+     * @return The cached renderer
+     */
+    public GeckoSceneRenderer get(ResourceLocation geometry) {
+        return renderers.computeIfAbsent(geometry, g -> new GeckoSceneRenderer());
+    }
+    
+    @Override
+    public void onResourceManagerReload(ResourceManager resourceManager) {
+        if (!renderers.isEmpty()) {
+            CutScenesLib.LOGGER.debug("Dropping {} cached Gecko renderers after resource reload", renderers.size());
+            renderers.clear();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.cutscene.AnimationTrack;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.ModelLod;
+import software.bernie.geckolib.GeckoLibException;
+import software.bernie.geckolib.animation.AnimationState;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.model.GeoModel;
+
+/**
+ * GeoModel for cutscene models
+ * 
+ * Uses the geometry, animation and texture paths of the GeckoSceneModel
+ * itself. When the model's cutscene atlas is ready, the atlas texture and
+ * the atlas-remapped copy of the geometry are used instead, so the whole
+ * model renders with one texture.
+ * 
+ * A level of detail with its own geometry overrides both, and is drawn with
+ * the model's own texture.
+ * 
+ * Baked animations ({@link AnimationTrack}) are looked up at the cutscene
+ * time every frame, which costs no more than restoring a saved pose. Only
+ * animations GeckoLib has to evaluate itself are throttled by the model's
+ * level of detail (see {@link LodController}). Models whose bone matrices
+ * the {@link PoseEvaluator} built aren't posed here at all.
+ */
+public class GeckoSceneGeoModel extends GeoModel<GeckoSceneModel> {
+    
+    /** The model the animation processor was last pointed at */
+    private BakedGeoModel currentModel;
+    
+    /** Scratch pose for baked animations */
+    private float[] pose = new float[0];
+    
+    /** Whether the model being drawn has its bone matrices evaluated already */
+    private boolean posed;
+    
+    @Override
+    public ResourceLocation getModelResource(GeckoSceneModel animatable) {
+        ModelLod lod = LodController.getInstance().getLod(animatable);
+        if (lod != null && lod.getGeometry() != null) {
+            return lod.getGeometry();
+        }
+        
+        CutsceneAtlas.Entry entry = CutsceneAtlasManager.getInstance().getEntry(animatable);
+        return entry != null ? entry.modelId() : animatable.getGeoPath();
+    }
+    
+    @Override
+    public ResourceLocation getTextureResource(GeckoSceneModel animatable) {
+        ModelLod lod = LodController.getInstance().getLod(animatable);
+        if (lod != null && lod.getGeometry() != null) {
+            return animatable.getTexturePath();
+        }
+        
+        CutsceneAtlas.Entry entry = CutsceneAtlasManager.getInstance().getEntry(animatable);
+        return entry != null ? entry.textureId() : animatable.getTexturePath();
+    }
+    
+    @Override
+    public ResourceLocation getAnimationResource(GeckoSceneModel animatable) {
+        return animatable.getAnimPath();
+    }
+    
+    @Override
+    public BakedGeoModel getBakedModel(ResourceLocation location) {
+        BakedGeoModel model = lookupModel(location);
+        if (model == null) {
+            throw new GeckoLibException(location, "Unable to find model");
+        }
+        
+        if (model != currentModel) {
+            getAnimationProcessor().setActiveModel(model);
+            currentModel = model;
+        }
+        return model;
+    }
+    
+    /**
+     * Find the geometry a model will be drawn with, without binding it
+     * 
+     * @return The geometry, or null if it isn't loaded
+     */
+    BakedGeoModel findBakedModel(GeckoSceneModel animatable) {
+        return lookupModel(getModelResource(animatable));
+    }
+    
+    private static BakedGeoModel lookupModel(ResourceLocation location) {
+        BakedGeoModel model = CutsceneAtlasManager.getInstance().getRemappedModel(location);
+        return model != null ? model : GeckoLibCache.getBakedModels().get(location);
+    }
+    
+    /**
+     * Skip posing the bones of the next model drawn
+     * 
+     * Set by the renderer when the model's bone matrices come from the
+     * {@link PoseEvaluator}, so the shared bones are left alone.
+     */
+    void setPosed(boolean posed) {
+        this.posed = posed;
+    }
+    
+    @Override
+    public void handleAnimations(GeckoSceneModel animatable, long instanceId, AnimationState<GeckoSceneModel> animationState, float partialTick) {
+        if (posed) {
+            return;
+        }
+        
+        AnimationTrack track = animatable.getAnimationTrack();
+        if (track != null) {
+            if (pose.length != track.getPoseSize()) {
+                pose = new float[track.getPoseSize()];
+            }
+            track.sample(animatable.getAnimationTime(), pose);
+            track.apply(pose, currentModel);
+            return;
+        }
+        
+        LodController lod = LodController.getInstance();
+        if (lod.shouldAnimate(animatable, currentModel)) {
+            super.handleAnimations(animatable, instanceId, animationState, partialTick);
+            lod.savePose(animatable, currentModel);
+        } else {
+            lod.restorePose(animatable, currentModel);
+        }
+    }
+}
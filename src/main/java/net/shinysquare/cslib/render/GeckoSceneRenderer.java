@@ -1,25 +1,162 @@
 package net.shinysquare.cslib.render;
 
-import net.minecraft.resources.ResourceLocation;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
 import net.shinysquare.cslib.cutscene.GeckoSceneModel;
-import software.bernie.geckolib.model.DefaultedGeoModel;
-import software.bernie.geckolib.renderer.GeoRenderer;
-import software.bernie.geckolib.renderer.layer.GeoRenderLayer;
-import software.bernie.geckolib.renderer.GeoEntityRenderer;
-import net.minecraft.client.renderer.entity.EntityRendererProvider;
+import net.shinysquare.cslib.cutscene.ModelLod;
+import net.shinysquare.cslib.cutscene.Skeleton;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 
 /**
  * A custom GeckoLib renderer that supports our BoneTextureRenderLayer
+ * 
+ * When the model's bone matrices were evaluated ahead of the frame (see
+ * {@link PoseEvaluator}), each bone is placed with its evaluated matrix
+ * instead of the values in the shared GeoBones.
+ * 
+ * Bones are identified by their depth-first index ({@link Skeleton}),
+ * counted while GeckoLib walks them, so per-bone tables are plain arrays.
  */
 public class GeckoSceneRenderer extends software.bernie.geckolib.renderer.GeoObjectRenderer<GeckoSceneModel> {
     
-    public GeckoSceneRenderer(ResourceLocation model) {
-        super(new DefaultedGeoModel<>(model));
+    private final BoneTextureRenderLayer boneTextureLayer;
+    
+    private final GeckoSceneGeoModel sceneModel;
+    
+    /** Evaluated bone matrices of the next model drawn, or null */
+    private PoseEvaluator.ActorPose actorPose;
+    
+    /** The evaluated matrices of the model being drawn, or null to use its bones */
+    private PoseEvaluator.ActorPose activePose;
+    
+    /** Skeleton of the geometry being drawn, for counting bones */
+    private Skeleton skeleton;
+    
+    /** Depth-first index of the bone being drawn, and of the next bone reached */
+    private int boneIndex;
+    private int nextBoneIndex;
+    
+    // Model root the evaluated matrices are relative to, and scratch matrices
+    private final Matrix4f rootPose = new Matrix4f();
+    private final Matrix3f rootNormal = new Matrix3f();
+    private final Matrix4f boneMatrix = new Matrix4f();
+    private final Matrix3f boneNormal = new Matrix3f();
+    
+    /** Bones hidden by the level of detail of the model being drawn */
+    private Set<String> hiddenBones = Set.of();
+    
+    public GeckoSceneRenderer() {
+        this(new GeckoSceneGeoModel());
+    }
+    
+    private GeckoSceneRenderer(GeckoSceneGeoModel model) {
+        super(model);
+        this.sceneModel = model;
         
         // Add our custom render layer for bone-based texture swapping
-        addRenderLayer(new BoneTextureRenderLayer(this));
+        this.boneTextureLayer = new BoneTextureRenderLayer(this);
+        addRenderLayer(boneTextureLayer);
+    }
+    
+    /**
+     * Use evaluated bone matrices for the next model drawn
+     * 
+     * @param pose The model's pose for this frame, or null to pose its bones
+     */
+    public void setActorPose(PoseEvaluator.ActorPose pose) {
+        this.actorPose = pose;
+    }
+    
+    /**
+     * Find the geometry a model will be drawn with
+     * 
+     * @return The geometry, or null if it isn't loaded
+     */
+    BakedGeoModel findBakedModel(GeckoSceneModel animatable) {
+        return sceneModel.findBakedModel(animatable);
+    }
+    
+    @Override
+    public void preRender(PoseStack poseStack, GeckoSceneModel animatable, BakedGeoModel model, MultiBufferSource bufferSource, VertexConsumer buffer, boolean isReRender, float partialTick, int packedLight, int packedOverlay, int colour) {
+        super.preRender(poseStack, animatable, model, bufferSource, buffer, isReRender, partialTick, packedLight, packedOverlay, colour);
+        skeleton = Skeleton.of(model);
+        nextBoneIndex = 0;
+        
+        if (!isReRender) {
+            ModelLod lod = LodController.getInstance().getLod(animatable);
+            hiddenBones = lod != null ? lod.getHiddenBones() : Set.of();
+            boneTextureLayer.prepare(animatable, model);
+            
+            // Evaluated for another geometry (the level of detail changed): pose the bones instead
+            activePose = actorPose != null && actorPose.getSkeleton().getModel() == model ? actorPose : null;
+            actorPose = null;
+            sceneModel.setPosed(activePose != null);
+        }
+    }
+    
+    @Override
+    public void renderRecursively(PoseStack poseStack, GeckoSceneModel animatable, GeoBone bone, RenderType renderType, MultiBufferSource bufferSource, VertexConsumer buffer, boolean isReRender, float partialTick, int packedLight, int packedOverlay, int colour) {
+        // Bones are reached depth-first, so count them instead of looking them up
+        int index = nextBoneIndex;
+        int end = index + skeleton.getSubtreeSize(index);
+        
+        // Hidden bones take their children with them
+        if (!hiddenBones.isEmpty() && hiddenBones.contains(bone.getName())) {
+            nextBoneIndex = end;
+            return;
+        }
+        
+        boneIndex = index;
+        nextBoneIndex = index + 1;
+        if (activePose == null) {
+            super.renderRecursively(poseStack, animatable, bone, renderType, bufferSource, buffer, isReRender, partialTick, packedLight, packedOverlay, colour);
+            nextBoneIndex = end;
+            return;
+        }
+        
+        // Top-level bones are reached with the model root on the stack
+        if (bone.getParent() == null) {
+            rootPose.set(poseStack.last().pose());
+            rootNormal.set(poseStack.last().normal());
+        }
+        
+        poseStack.pushPose();
+        PoseStack.Pose last = poseStack.last();
+        last.pose().set(rootPose).mul(activePose.getMatrix(index, boneMatrix));
+        last.normal().set(rootNormal).mul(activePose.getNormal(index, boneNormal));
+        
+        renderCubesOfBone(poseStack, bone, buffer, packedLight, packedOverlay, colour);
+        if (!isReRender) {
+            applyRenderLayersForBone(poseStack, animatable, bone, renderType, bufferSource, buffer, partialTick, packedLight, packedOverlay);
+        }
+        renderChildBones(poseStack, animatable, bone, renderType, bufferSource, buffer, isReRender, partialTick, packedLight, packedOverlay, colour);
+        poseStack.popPose();
+        
+        // Children hidden by GeckoLib weren't reached
+        nextBoneIndex = end;
+    }
+    
+    @Override
+    public void renderCubesOfBone(PoseStack poseStack, GeoBone bone, VertexConsumer buffer, int packedLight, int packedOverlay, int colour) {
+        // Bones with their own texture are drawn by the layer's post pass
+        if (boneTextureLayer.deferBone(bone, boneIndex, poseStack)) {
+            return;
+        }
+        
+        super.renderCubesOfBone(poseStack, bone, buffer, packedLight, packedOverlay, colour);
+    }
+    
+    /**
+     * Draw a deferred bone's cubes into its texture group's buffer
+     */
+    void renderDeferredCubes(PoseStack poseStack, GeoBone bone, VertexConsumer buffer, int packedLight, int packedOverlay) {
+        super.renderCubesOfBone(poseStack, bone, buffer, packedLight, packedOverlay, -1);
     }
 }
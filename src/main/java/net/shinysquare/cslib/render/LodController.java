@@ -0,0 +1,293 @@
+package net.shinysquare.cslib.render;
+
+import net.shinysquare.cslib.cutscene.ModelLod;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Picks a level of detail for every scene model, every frame
+ * 
+ * A model's level comes from its screen size (the fraction of the screen
+ * height its bounds span), scaled by a bias:
+ * - Below each {@link ModelLod}'s screen size that level is used
+ * - Below {@link #MIN_SCREEN_SIZE} the model isn't drawn at all
+ * - Small models animate less often, even without LOD levels of their own
+ * 
+ * The bias adapts to the measured frame time. While the client runs below
+ * {@link #TARGET_FPS} it shrinks, so every model drops detail sooner; once
+ * there is headroom again it grows back towards 1.
+ * 
+ * Models that skip an animation update keep the pose they had at their
+ * last one, so geometry shared between models never shows another
+ * model's pose.
+ * 
+ * Render thread only.
+ */
+public class LodController {
+    
+    private static final LodController INSTANCE = new LodController();
+    
+    /** Frame rate the controller tries to hold */
+    private static final float TARGET_FPS = 30.0f;
+    
+    /** Frame rate above which detail is given back */
+    private static final float RECOVER_FPS = 40.0f;
+    
+    /** Lowest bias the controller goes down to */
+    private static final float MIN_BIAS = 0.25f;
+    
+    /** Frames between bias adjustments */
+    private static final int ADJUST_INTERVAL = 10;
+    
+    /** Weight of the newest frame in the frame time average */
+    private static final float FRAME_TIME_SMOOTHING = 0.1f;
+    
+    /** Screen size below which a model isn't drawn */
+    public static final float MIN_SCREEN_SIZE = 0.005f;
+    
+    /** Screen sizes below which models animate every 2nd and 4th frame */
+    private static final float HALF_RATE_SCREEN_SIZE = 0.1f;
+    private static final float QUARTER_RATE_SCREEN_SIZE = 0.04f;
+    
+    /** Floats stored per bone in a saved pose */
+    private static final int POSE_STRIDE = 9;
+    
+    /** LOD state of every model drawn so far */
+    private final Map<SceneModel, State> states = new WeakHashMap<>();
+    
+    /** Every bone of each baked model, in a fixed order */
+    private final Map<BakedGeoModel, GeoBone[]> boneLists = new WeakHashMap<>();
+    
+    /** Multiplier applied to every screen size */
+    private float bias = 1.0f;
+    
+    /** Smoothed frame time, in seconds */
+    private float averageFrameTime;
+    
+    /** When the last frame started */
+    private long lastFrameNanos;
+    
+    /** Frames until the bias is next adjusted */
+    private int framesUntilAdjust = ADJUST_INTERVAL;
+    
+    /** Whether every model is held at full detail (for exports) */
+    private boolean fixedDetail;
+    
+    /**
+     * Get the shared controller
+     */
+    public static LodController getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Measure the frame time and adjust the bias (called once per frame)
+     */
+    public void beginFrame() {
+        if (fixedDetail) {
+            return;
+        }
+        
+        long now = System.nanoTime();
+        float frameTime = (now - lastFrameNanos) / 1_000_000_000.0f;
+        lastFrameNanos = now;
+        
+        // Skip stalls from pausing, loading or the first frame
+        if (frameTime <= 0.0f || frameTime > 1.0f) {
+            return;
+        }
+        
+        averageFrameTime = averageFrameTime == 0.0f
+                ? frameTime
+                : averageFrameTime + (frameTime - averageFrameTime) * FRAME_TIME_SMOOTHING;
+        
+        if (--framesUntilAdjust > 0) {
+            return;
+        }
+        framesUntilAdjust = ADJUST_INTERVAL;
+        
+        if (averageFrameTime > 1.0f / TARGET_FPS) {
+            bias = Math.max(MIN_BIAS, bias * 0.85f);
+        } else if (averageFrameTime < 1.0f / RECOVER_FPS) {
+            bias = Math.min(1.0f, bias * 1.05f);
+        }
+    }
+    
+    /**
+     * Check whether a model of some screen size is worth drawing
+     */
+    public boolean isVisible(float screenSize) {
+        return screenSize * bias >= MIN_SCREEN_SIZE;
+    }
+    
+    /**
+     * Pick a model's level of detail for this frame
+     * 
+     * @param model The model about to be drawn
+     * @param screenSize The fraction of the screen height it covers
+     */
+    public void update(SceneModel model, float screenSize) {
+        State state = states.computeIfAbsent(model, m -> new State());
+        float size = screenSize * bias;
+        
+        ModelLod lod = null;
+        for (ModelLod level : model.getLods()) {
+            if (size >= level.getScreenSize()) {
+                break;
+            }
+            lod = level;
+        }
+        state.lod = lod;
+        
+        int interval = size < QUARTER_RATE_SCREEN_SIZE ? 4 : size < HALF_RATE_SCREEN_SIZE ? 2 : 1;
+        state.animationInterval = lod != null ? Math.max(interval, lod.getAnimationInterval()) : interval;
+    }
+    
+    /**
+     * Get a model's level of detail for this frame
+     * 
+     * @return The level, or null for full detail
+     */
+    public ModelLod getLod(SceneModel model) {
+        State state = states.get(model);
+        return state != null ? state.lod : null;
+    }
+    
+    /**
+     * Check whether a model's animation should be evaluated this frame
+     * 
+     * @param model The model being drawn
+     * @param bakedModel The geometry it is drawn with
+     * @return true to evaluate it, false to restore the last pose instead
+     */
+    public boolean shouldAnimate(SceneModel model, BakedGeoModel bakedModel) {
+        State state = states.get(model);
+        if (state == null || fixedDetail) {
+            return true;
+        }
+        
+        // Always animate straight away when there is no pose to fall back on
+        if (state.poseModel != bakedModel || --state.framesUntilAnimate <= 0) {
+            state.framesUntilAnimate = state.animationInterval;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Remember a model's pose after it was animated
+     */
+    public void savePose(SceneModel model, BakedGeoModel bakedModel) {
+        State state = states.get(model);
+        if (state == null || state.animationInterval <= 1) {
+            return;
+        }
+        
+        GeoBone[] bones = getBones(bakedModel);
+        if (state.pose == null || state.pose.length != bones.length * POSE_STRIDE) {
+            state.pose = new float[bones.length * POSE_STRIDE];
+        }
+        
+        float[] pose = state.pose;
+        for (int i = 0; i < bones.length; i++) {
+            GeoBone bone = bones[i];
+            int o = i * POSE_STRIDE;
+            pose[o] = bone.getRotX();
+            pose[o + 1] = bone.getRotY();
+            pose[o + 2] = bone.getRotZ();
+            pose[o + 3] = bone.getPosX();
+            pose[o + 4] = bone.getPosY();
+            pose[o + 5] = bone.getPosZ();
+            pose[o + 6] = bone.getScaleX();
+            pose[o + 7] = bone.getScaleY();
+            pose[o + 8] = bone.getScaleZ();
+        }
+        state.poseModel = bakedModel;
+    }
+    
+    /**
+     * Put back the pose a model had at its last animation update
+     */
+    public void restorePose(SceneModel model, BakedGeoModel bakedModel) {
+        State state = states.get(model);
+        if (state == null || state.poseModel != bakedModel || state.pose == null) {
+            return;
+        }
+        
+        GeoBone[] bones = getBones(bakedModel);
+        float[] pose = state.pose;
+        for (int i = 0; i < bones.length; i++) {
+            GeoBone bone = bones[i];
+            int o = i * POSE_STRIDE;
+            bone.setRotX(pose[o]);
+            bone.setRotY(pose[o + 1]);
+            bone.setRotZ(pose[o + 2]);
+            bone.setPosX(pose[o + 3]);
+            bone.setPosY(pose[o + 4]);
+            bone.setPosZ(pose[o + 5]);
+            bone.setScaleX(pose[o + 6]);
+            bone.setScaleY(pose[o + 7]);
+            bone.setScaleZ(pose[o + 8]);
+            bone.markRotationAsChanged();
+            bone.markPositionAsChanged();
+            bone.markScaleAsChanged();
+        }
+    }
+    
+    /**
+     * Hold every model at full detail, ignoring the frame rate
+     * 
+     * Exports render at a fixed timestep and must look the same however
+     * fast the client runs, so they switch adaptation off while they run.
+     * 
+     * @param fixed true to hold full detail, false to adapt again
+     */
+    public void setFixedDetail(boolean fixed) {
+        fixedDetail = fixed;
+        if (fixed) {
+            bias = 1.0f;
+        }
+        lastFrameNanos = 0;
+    }
+    
+    /**
+     * Get the current bias (1 = full detail)
+     */
+    public float getBias() {
+        return bias;
+    }
+    
+    private GeoBone[] getBones(BakedGeoModel bakedModel) {
+        return boneLists.computeIfAbsent(bakedModel, m -> {
+            List<GeoBone> bones = new ArrayList<>();
+            for (GeoBone bone : m.topLevelBones()) {
+                collectBones(bone, bones);
+            }
+            return bones.toArray(new GeoBone[0]);
+        });
+    }
+    
+    private static void collectBones(GeoBone bone, List<GeoBone> bones) {
+        bones.add(bone);
+        for (GeoBone child : bone.getChildBones()) {
+            collectBones(child, bones);
+        }
+    }
+    
+    /**
+     * LOD state of one model
+     */
+    private static class State {
+        ModelLod lod;
+        int animationInterval = 1;
+        int framesUntilAnimate;
+        float[] pose;
+        BakedGeoModel poseModel;
+    }
+}
@@ -0,0 +1,256 @@
+package net.shinysquare.cslib.render;
+
+import net.shinysquare.cslib.cutscene.AnimationTrack;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import net.shinysquare.cslib.cutscene.Skeleton;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates the bone matrices of a viewer's Gecko actors for each frame
+ * 
+ * At the start of a frame ({@link #begin}) the renderer adds every actor
+ * that may be drawn, then {@link #evaluate} samples each actor's baked
+ * animation and builds its bone matrices into buffers the actor keeps for
+ * the whole playback.
+ * Geometry is shared between actors, so the matrices are written into those
+ * buffers rather than into the GeoBones; while drawing, the renderer only
+ * reads them back ({@link GeckoSceneRenderer}).
+ * 
+ * From {@link #PARALLEL_THRESHOLD} actors on, evaluation runs on the common
+ * fork-join pool while the render thread clears the screen, and the render
+ * thread joins it ({@link #await}) just before the first actor is drawn.
+ * Smaller scenes evaluate in place, since forking would cost more than it
+ * saves.
+ * 
+ * Actors are evaluated for the geometry they were drawn with last frame.
+ * When that changes (a new level of detail), the actor falls back to posing
+ * the GeoBones for that one frame.
+ * 
+ * Render thread only, apart from the evaluation itself.
+ */
+public class PoseEvaluator {
+    
+    /** Actors from which evaluation is spread over the pool */
+    public static final int PARALLEL_THRESHOLD = 16;
+    
+    /** Actors each pool task evaluates without splitting further */
+    private static final int ACTORS_PER_TASK = 4;
+    
+    /** The cutscene whose actors are evaluated */
+    private final Cutscene cutscene;
+    
+    /** Buffers of each scene model, by model index (null until first drawn) */
+    private final ActorPose[] poses;
+    
+    /** The actors to evaluate this frame */
+    private final ActorPose[] batch;
+    
+    /** Number of actors in the batch */
+    private int batchSize;
+    
+    /** Evaluation running on the pool, or null */
+    private ForkJoinTask<?> pending;
+    
+    /** Playback time of the frame being evaluated */
+    private double time;
+    
+    public PoseEvaluator(Cutscene cutscene) {
+        this.cutscene = cutscene;
+        this.poses = new ActorPose[cutscene.getModels().size()];
+        this.batch = new ActorPose[poses.length];
+    }
+    
+    /**
+     * Start a new frame, forgetting the last frame's poses
+     */
+    public void begin() {
+        // A frame that failed half way may have left its evaluation running
+        await();
+        for (ActorPose pose : poses) {
+            if (pose != null) {
+                pose.ready = false;
+            }
+        }
+        batchSize = 0;
+    }
+    
+    /**
+     * Add a scene model to this frame's evaluation
+     * 
+     * Models without a baked animation are skipped; GeckoLib poses them
+     * while they are drawn, as before.
+     * 
+     * @param index The model index
+     */
+    public void add(int index) {
+        List<SceneModel> models = cutscene.getModels();
+        if (index >= models.size() || !(models.get(index) instanceof GeckoSceneModel model)) {
+            return;
+        }
+        
+        AnimationTrack track = model.getAnimationTrack();
+        BakedGeoModel bakedModel = track != null
+                ? GeckoRendererCache.getInstance().get(model.getGeoPath()).findBakedModel(model)
+                : null;
+        if (bakedModel == null) {
+            return;
+        }
+        
+        ActorPose pose = poses[index];
+        if (pose == null) {
+            pose = poses[index] = new ActorPose();
+        }
+        pose.prepare(Skeleton.of(bakedModel), track);
+        batch[batchSize++] = pose;
+    }
+    
+    /**
+     * Evaluate every added actor at a playback time
+     * 
+     * Returns straight away if the evaluation was forked; call
+     * {@link #await} before reading any pose.
+     */
+    public void evaluate(double time) {
+        this.time = time;
+        if (batchSize >= PARALLEL_THRESHOLD) {
+            pending = ForkJoinPool.commonPool().submit(new EvaluateTask(0, batchSize));
+        } else {
+            evaluateRange(0, batchSize);
+        }
+    }
+    
+    /**
+     * Wait for this frame's evaluation to finish
+     */
+    public void await() {
+        if (pending != null) {
+            try {
+                pending.join();
+            } finally {
+                pending = null;
+            }
+        }
+        batchSize = 0;
+    }
+    
+    /**
+     * Get a model's evaluated pose for this frame
+     * 
+     * @param index The model index
+     * @return The pose, or null if it wasn't evaluated this frame
+     */
+    public ActorPose getPose(int index) {
+        ActorPose pose = index < poses.length ? poses[index] : null;
+        return pose != null && pose.ready ? pose : null;
+    }
+    
+    private void evaluateRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch[i].evaluate(time);
+        }
+    }
+    
+    /**
+     * Splits the batch until each task has a few actors left
+     */
+    private class EvaluateTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        
+        EvaluateTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= ACTORS_PER_TASK) {
+                evaluateRange(from, to);
+                return;
+            }
+            
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(from, middle), new EvaluateTask(middle, to));
+        }
+    }
+    
+    /**
+     * The bone matrices of one actor, reused every frame
+     */
+    public static class ActorPose {
+        private Skeleton skeleton;
+        private AnimationTrack track;
+        private int[] slots;
+        private float[] pose = new float[0];
+        private float[] matrices = new float[0];
+        private float[] normals = new float[0];
+        private final Matrix4f matrix = new Matrix4f();
+        private final Matrix3f normal = new Matrix3f();
+        
+        /** Whether the matrices are for the current frame */
+        private boolean ready;
+        
+        /**
+         * Point the buffers at a geometry and animation (render thread)
+         */
+        void prepare(Skeleton skeleton, AnimationTrack track) {
+            if (this.skeleton != skeleton || this.track != track) {
+                this.skeleton = skeleton;
+                this.track = track;
+                this.slots = skeleton.bind(track);
+            }
+            
+            // Only grows, so buffers settle after the first frames
+            if (pose.length < track.getPoseSize()) {
+                pose = new float[track.getPoseSize()];
+            }
+            if (matrices.length < skeleton.getBoneCount() * Skeleton.MATRIX_SIZE) {
+                matrices = new float[skeleton.getBoneCount() * Skeleton.MATRIX_SIZE];
+                normals = new float[skeleton.getBoneCount() * Skeleton.NORMAL_SIZE];
+            }
+        }
+        
+        void evaluate(double time) {
+            track.sample(time, pose);
+            skeleton.evaluate(pose, slots, matrices, normals, matrix, normal);
+            ready = true;
+        }
+        
+        /**
+         * Get the skeleton the matrices were built for
+         */
+        public Skeleton getSkeleton() {
+            return skeleton;
+        }
+        
+        /**
+         * Read a bone's model-space matrix
+         * 
+         * @param bone The bone's index in the skeleton
+         */
+        public Matrix4f getMatrix(int bone, Matrix4f dest) {
+            return dest.set(matrices, bone * Skeleton.MATRIX_SIZE);
+        }
+        
+        /**
+         * Read a bone's model-space normal matrix
+         * 
+         * @param bone The bone's index in the skeleton
+         */
+        public Matrix3f getNormal(int bone, Matrix3f dest) {
+            int o = bone * Skeleton.NORMAL_SIZE;
+            return dest.set(normals[o], normals[o + 1], normals[o + 2],
+                    normals[o + 3], normals[o + 4], normals[o + 5],
+                    normals[o + 6], normals[o + 7], normals[o + 8]);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package net.shinysquare.cslib.render;
+
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.core.SceneEvaluator;
+import net.shinysquare.cslib.core.SceneState;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.GeckoSceneModel;
+import net.shinysquare.cslib.cutscene.SceneModel;
+import org.joml.FrustumIntersection;
+import org.joml.Vector3f;
+import software.bernie.geckolib.cache.GeckoLibCache;
+import software.bernie.geckolib.cache.object.BakedGeoModel;
+import software.bernie.geckolib.cache.object.GeoBone;
+import software.bernie.geckolib.cache.object.GeoCube;
+import software.bernie.geckolib.cache.object.GeoQuad;
+import software.bernie.geckolib.cache.object.GeoVertex;
+
+/**
+ * Precomputed culling bounds of every actor slot in a playback
+ * 
+ * Each actor's model-space bounding box is measured once, when the playback
+ * starts, and reduced to the distance of its farthest corner from the
+ * actor's pivot. Per frame an actor is then a sphere around its evaluated
+ * position, scaled by its largest scale axis, so rotating an actor never
+ * needs its box re-bounded.
+ */
+public class SceneBounds {
+    
+    /** Extra room for bones animated outside the rest pose, in blocks */
+    private static final float ANIMATION_PADDING = 0.5f;
+    
+    /** Radius used when a Gecko model isn't baked */
+    private static final float FALLBACK_RADIUS = 4.0f;
+    
+    /** Half size of the placeholder cube */
+    static final float CUBE_HALF_SIZE = 0.5f;
+    
+    /** Half width of the player model */
+    static final float PLAYER_HALF_WIDTH = 0.3f;
+    
+    /** Height of the player model */
+    static final float PLAYER_HEIGHT = 1.8f;
+    
+    /** Bounding radius of each actor slot at scale 1 */
+    private final float[] radii;
+    
+    // Scratch vectors reused every frame
+    private final Vector3f position = new Vector3f();
+    private final Vector3f scale = new Vector3f();
+    
+    /**
+     * Measure every actor of a playback
+     * 
+     * @param cutscene The cutscene being played
+     * @param layout The playback's actor slots
+     */
+    public SceneBounds(Cutscene cutscene, SceneEvaluator layout) {
+        this.radii = new float[layout.getActorCount()];
+        
+        for (int i = 0; i < radii.length; i++) {
+            if (i < layout.getModelCount()) {
+                radii[i] = measure(cutscene.getModels().get(i));
+            } else if ("player".equals(layout.getEntityModel(i))) {
+                radii[i] = corner(PLAYER_HALF_WIDTH, PLAYER_HEIGHT, PLAYER_HALF_WIDTH);
+            } else {
+                radii[i] = corner(CUBE_HALF_SIZE, CUBE_HALF_SIZE, CUBE_HALF_SIZE);
+            }
+        }
+    }
+    
+    /**
+     * Check whether an actor can be seen
+     * 
+     * @param frustum The cutscene camera's frustum
+     * @param state The interpolated state for this frame
+     * @param actor The actor slot
+     * @return false if the actor is entirely outside the frustum
+     */
+    public boolean isVisible(FrustumIntersection frustum, SceneState state, int actor) {
+        Vector3f pos = state.getPosition(actor, position);
+        return frustum.testSphere(pos.x, pos.y, pos.z, getRadius(state, actor));
+    }
+    
+    /**
+     * Get the fraction of the screen height an actor spans
+     * 
+     * @param state The interpolated state for this frame
+     * @param actor The actor slot
+     * @param camera The camera position
+     * @param projectionScale The projection's vertical scale (1 / tan(fov / 2))
+     * @return The screen size, where 1 fills the screen height
+     */
+    public float getScreenSize(SceneState state, int actor, Vector3f camera, float projectionScale) {
+        float radius = getRadius(state, actor);
+        float distance = state.getPosition(actor, position).distance(camera);
+        return radius * projectionScale / Math.max(distance, radius);
+    }
+    
+    /**
+     * Get an actor's bounding radius at its current scale
+     */
+    private float getRadius(SceneState state, int actor) {
+        Vector3f size = state.getScale(actor, scale).absolute();
+        return radii[actor] * Math.max(size.x, Math.max(size.y, size.z));
+    }
+    
+    /**
+     * Measure a scene model from its baked geometry
+     */
+    private static float measure(SceneModel model) {
+        if (!(model instanceof GeckoSceneModel geckoModel)) {
+            return corner(CUBE_HALF_SIZE, CUBE_HALF_SIZE, CUBE_HALF_SIZE);
+        }
+        return measureGeometry(geckoModel.getGeoPath());
+    }
+    
+    /**
+     * Measure the bounding radius of a Gecko geometry around its origin
+     * 
+     * @param geometry The geometry
+     * @return The radius in blocks, padded for animation
+     */
+    static float measureGeometry(ResourceLocation geometry) {
+        BakedGeoModel baked = GeckoLibCache.getBakedModels().get(geometry);
+        if (baked == null) {
+            return FALLBACK_RADIUS;
+        }
+        
+        float[] max = new float[1];
+        for (GeoBone bone : baked.topLevelBones()) {
+            measureBone(bone, max);
+        }
+        return (float) Math.sqrt(max[0]) + ANIMATION_PADDING;
+    }
+    
+    /**
+     * Find the farthest vertex of a bone and its children
+     * 
+     * @param max Holds the largest squared distance found so far
+     */
+    private static void measureBone(GeoBone bone, float[] max) {
+        for (GeoCube cube : bone.getCubes()) {
+            for (GeoQuad quad : cube.quads()) {
+                if (quad == null) {
+                    continue;
+                }
+                for (GeoVertex vertex : quad.vertices()) {
+                    max[0] = Math.max(max[0], vertex.position().lengthSquared());
+                }
+            }
+        }
+        
+        for (GeoBone child : bone.getChildBones()) {
+            measureBone(child, max);
+        }
+    }
+    
+    private static float corner(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+}
@@ -0,0 +1,270 @@
+package net.shinysquare.cslib.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.shinysquare.cslib.CutScenesLib;
+import net.shinysquare.cslib.cutscene.SkinMapping;
+import org.lwjgl.opengl.GL11;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Composites player skin regions onto model textures
+ * 
+ * For each skin zone, the zone's skin region (in skin pixels) is copied
+ * and scaled onto its model region (as a fraction of the target texture).
+ * The pipeline is:
+ * 1. Read back the skin and the base texture into NativeImages (render thread)
+ * 2. Copy and scale the pixels (background executor)
+ * 3. Upload the result as a DynamicTexture (render thread)
+ * 
+ * Results are cached by (skin texture, base texture, zone regions), so
+ * each player and cutscene combination is composited once. Until a result
+ * is ready, callers get the fallback texture they passed in. A composite
+ * that finishes after its skin was released is thrown away.
+ * 
+ * Render thread only.
+ */
+public class SkinCompositor {
+    
+    /** Finished composites */
+    private final Map<Key, ResourceLocation> composites = new HashMap<>();
+    
+    /** Composites being built, each with a token that is dropped when the build is abandoned */
+    private final Map<Key, Object> pending = new HashMap<>();
+    
+    /** Counter for unique texture IDs */
+    private int nextId;
+    
+    /**
+     * Get a skin composited onto a texture, starting the work if needed
+     * 
+     * @param skinTexture The player's skin
+     * @param baseTexture The texture to paste onto, or null to paste onto a
+     *                    copy of the skin itself (so the rest of the skin
+     *                    still shows)
+     * @param zones The zones to apply
+     * @param fallback Returned while the composite is being built
+     * @return The composited texture, or the fallback if not ready yet
+     */
+    public ResourceLocation getComposite(ResourceLocation skinTexture, ResourceLocation baseTexture, ZoneSet zones, ResourceLocation fallback) {
+        if (zones.isEmpty()) {
+            return fallback;
+        }
+        
+        Key key = new Key(skinTexture, baseTexture, zones);
+        ResourceLocation composite = composites.get(key);
+        if (composite != null) {
+            return composite;
+        }
+        
+        if (!pending.containsKey(key)) {
+            Object token = new Object();
+            pending.put(key, token);
+            start(key, token);
+        }
+        return fallback;
+    }
+    
+    /**
+     * Release every composite made from a skin
+     * 
+     * @param skinTexture The skin
+     */
+    public void release(ResourceLocation skinTexture) {
+        pending.keySet().removeIf(key -> key.skin().equals(skinTexture));
+        composites.entrySet().removeIf(entry -> {
+            if (entry.getKey().skin().equals(skinTexture)) {
+                Minecraft.getInstance().getTextureManager().release(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Release every composite
+     */
+    public void clear() {
+        pending.clear();
+        composites.values().forEach(Minecraft.getInstance().getTextureManager()::release);
+        composites.clear();
+    }
+    
+    private void start(Key key, Object token) {
+        NativeImage skin = readTexture(key.skin());
+        NativeImage base = key.base() != null ? readTexture(key.base()) : null;
+        
+        // Not uploaded yet; try again on a later frame
+        if (skin == null || (key.base() != null && base == null)) {
+            if (skin != null) skin.close();
+            if (base != null) base.close();
+            pending.remove(key, token);
+            return;
+        }
+        
+        CompletableFuture.supplyAsync(() -> composite(skin, base, key.zones()), Util.backgroundExecutor())
+                .whenCompleteAsync((result, error) -> {
+                    // Released (or cleared on logout) while building: nobody wants it any more
+                    if (!pending.remove(key, token)) {
+                        if (result != null) {
+                            result.close();
+                        }
+                        return;
+                    }
+                    if (error != null) {
+                        CutScenesLib.LOGGER.warn("Failed to composite skin {}", key.skin(), error);
+                        return;
+                    }
+                    
+                    ResourceLocation id = ResourceLocation.fromNamespaceAndPath(CutScenesLib.MOD_ID, "skin_composite/" + nextId++);
+                    Minecraft.getInstance().getTextureManager().register(id, new DynamicTexture(result));
+                    composites.put(key, id);
+                }, Minecraft.getInstance());
+    }
+    
+    /**
+     * Copy and scale every zone onto the target (background executor)
+     */
+    private static NativeImage composite(NativeImage skin, NativeImage base, ZoneSet zones) {
+        try {
+            // Pasted onto the skin itself by default, so pixels outside the zones keep their alpha
+            NativeImage source = base != null ? base : skin;
+            NativeImage result = new NativeImage(source.getWidth(), source.getHeight(), false);
+            result.copyFrom(source);
+            
+            float[] r = zones.regions;
+            for (int z = 0; z < r.length; z += ZoneSet.REGION_SIZE) {
+                int sx0 = clamp(Math.round(r[z]), skin.getWidth());
+                int sy0 = clamp(Math.round(r[z + 1]), skin.getHeight());
+                int sx1 = clamp(Math.round(r[z + 2]), skin.getWidth());
+                int sy1 = clamp(Math.round(r[z + 3]), skin.getHeight());
+                int dx0 = clamp(Math.round(r[z + 4] * result.getWidth()), result.getWidth());
+                int dy0 = clamp(Math.round(r[z + 5] * result.getHeight()), result.getHeight());
+                int dx1 = clamp(Math.round(r[z + 6] * result.getWidth()), result.getWidth());
+                int dy1 = clamp(Math.round(r[z + 7] * result.getHeight()), result.getHeight());
+                
+                int sw = sx1 - sx0;
+                int sh = sy1 - sy0;
+                int dw = dx1 - dx0;
+                int dh = dy1 - dy0;
+                if (sw <= 0 || sh <= 0 || dw <= 0 || dh <= 0) {
+                    continue;
+                }
+                
+                // Nearest-neighbour, so skin pixels stay crisp
+                for (int dy = 0; dy < dh; dy++) {
+                    int sy = sy0 + dy * sh / dh;
+                    for (int dx = 0; dx < dw; dx++) {
+                        int sx = sx0 + dx * sw / dw;
+                        result.setPixelRGBA(dx0 + dx, dy0 + dy, skin.getPixelRGBA(sx, sy));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            skin.close();
+            if (base != null) {
+                base.close();
+            }
+        }
+    }
+    
+    /**
+     * Read a texture's pixels back from the GPU (render thread)
+     * 
+     * @return A copy of the pixels, or null if the texture isn't uploaded yet
+     */
+    private static NativeImage readTexture(ResourceLocation location) {
+        AbstractTexture texture = Minecraft.getInstance().getTextureManager().getTexture(location);
+        
+        if (texture instanceof DynamicTexture dynamic && dynamic.getPixels() != null) {
+            NativeImage pixels = dynamic.getPixels();
+            NativeImage copy = new NativeImage(pixels.getWidth(), pixels.getHeight(), false);
+            copy.copyFrom(pixels);
+            return copy;
+        }
+        
+        RenderSystem.bindTexture(texture.getId());
+        int width = GlStateManager._getTexLevelParameter(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH);
+        int height = GlStateManager._getTexLevelParameter(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        
+        NativeImage image = new NativeImage(width, height, false);
+        image.downloadTexture(0, false);
+        return image;
+    }
+    
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(value, size));
+    }
+    
+    /**
+     * An immutable copy of a set of zones' regions, with its hash computed once
+     * 
+     * Equal when the regions are equal, so two mappings only share a
+     * composite if they would produce the same one.
+     */
+    public static final class ZoneSet {
+        
+        /** Floats per zone: skin region, then model region */
+        private static final int REGION_SIZE = 8;
+        
+        private final float[] regions;
+        private final int hash;
+        
+        private ZoneSet(float[] regions) {
+            this.regions = regions;
+            this.hash = Arrays.hashCode(regions);
+        }
+        
+        public static ZoneSet of(List<SkinMapping.SkinZone> zones) {
+            float[] regions = new float[zones.size() * REGION_SIZE];
+            for (int i = 0; i < zones.size(); i++) {
+                SkinMapping.SkinZone zone = zones.get(i);
+                int o = i * REGION_SIZE;
+                regions[o] = zone.getSkinUStart();
+                regions[o + 1] = zone.getSkinVStart();
+                regions[o + 2] = zone.getSkinUEnd();
+                regions[o + 3] = zone.getSkinVEnd();
+                regions[o + 4] = zone.getModelUStart();
+                regions[o + 5] = zone.getModelVStart();
+                regions[o + 6] = zone.getModelUEnd();
+                regions[o + 7] = zone.getModelVEnd();
+            }
+            return new ZoneSet(regions);
+        }
+        
+        public boolean isEmpty() {
+            return regions.length == 0;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ZoneSet set && hash == set.hash && Arrays.equals(regions, set.regions);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * Cache key of a composite
+     */
+    private record Key(ResourceLocation skin, ResourceLocation base, ZoneSet zones) {
+    }
+}
@@ -1,26 +1,42 @@
 package net.shinysquare.cslib.render;
 
 import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.model.PlayerModel;
+import net.minecraft.client.model.geom.ModelLayers;
+import net.minecraft.client.multiplayer.ClientPacketListener;
 import net.minecraft.client.multiplayer.PlayerInfo;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.client.resources.DefaultPlayerSkin;
+import net.minecraft.client.resources.PlayerSkin;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.shinysquare.cslib.CutScenesLib;
-import net.shinysquare.cslib.cutscene.CutsceneFrame;
+import net.shinysquare.cslib.cutscene.Cutscene;
+import net.shinysquare.cslib.cutscene.SceneModel;
 import net.shinysquare.cslib.cutscene.SkinMapping;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 
 /**
  * Handles mapping player skins onto cutscene elements
  * 
  * This class:
- * - Fetches player skin textures
- * - Caches them for performance
+ * - Fetches player skin textures, ahead of time when a cutscene starts
+ * - Caches them for performance (bounded, and dropped when players leave)
  * - Maps specific UV regions from the skin to cutscene models
  * - Renders entities with player skins applied
  * 
@@ -34,14 +50,47 @@ import java.util.UUID;
  */
 public class SkinTextureMapper {
     
-    /** Cache of player skins by UUID */
-    private final Map<UUID, ResourceLocation> skinCache;
+    /** Most player skins kept cached */
+    private static final int MAX_CACHED_SKINS = 64;
+    
+    /** Ticks between sweeps for players who left */
+    private static final int SWEEP_INTERVAL = 200;
+    
+    /** Loaded player skins by UUID, least recently used first */
+    private final Map<UUID, CachedSkin> skinCache;
+    
+    /** Players whose skins are being loaded */
+    private final Set<UUID> loading;
+    
+    /** Ticks until the next sweep */
+    private int ticksUntilSweep;
+    
+    /** Composites skins onto models */
+    private final SkinCompositor compositor;
+    
+    /** Zones of each entity, by skin mapping */
+    private final Map<SkinMapping, Map<String, SkinCompositor.ZoneSet>> zonesByEntity;
+    
+    /** Model skinned entities are drawn with, baked on first use */
+    private PlayerModel<?> playerModel;
     
     /**
      * Create a new skin texture mapper
      */
     public SkinTextureMapper() {
-        this.skinCache = new HashMap<>();
+        this.skinCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedSkin> eldest) {
+                if (size() > MAX_CACHED_SKINS) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.loading = new HashSet<>();
+        this.compositor = new SkinCompositor();
+        this.zonesByEntity = new WeakHashMap<>();
         CutScenesLib.LOGGER.info("SkinTextureMapper initialized");
     }
     
@@ -52,28 +101,97 @@ public class SkinTextureMapper {
      * @return The resource location of their skin texture
      */
     public ResourceLocation getPlayerSkin(Player player) {
-        UUID playerId = player.getUUID();
-        
-        // Check cache first
-        if (skinCache.containsKey(playerId)) {
-            return skinCache.get(playerId);
+        return getPlayerSkin(player.getUUID());
+    }
+    
+    /**
+     * Get the skin texture for a player by UUID
+     * 
+     * Returns the default skin while the real one is loading.
+     * 
+     * @param playerId The player's UUID
+     * @return The resource location of their skin texture
+     */
+    public ResourceLocation getPlayerSkin(UUID playerId) {
+        CachedSkin cached = skinCache.get(playerId);
+        if (cached != null) {
+            return cached.texture();
         }
         
-        // Get the skin from player info
+        prefetch(playerId);
+        return DefaultPlayerSkin.get(playerId).texture();
+    }
+    
+    /**
+     * Start loading a player's skin if it isn't cached yet
+     * 
+     * Called when a cutscene starts, so the first frame already has
+     * the real skin.
+     * 
+     * @param playerId The player's UUID
+     */
+    public void prefetch(UUID playerId) {
         Minecraft minecraft = Minecraft.getInstance();
-        if (minecraft.getConnection() != null) {
-            PlayerInfo playerInfo = minecraft.getConnection().getPlayerInfo(playerId);
-            if (playerInfo != null) {
-                ResourceLocation skin = playerInfo.getSkin().texture();
-                skinCache.put(playerId, skin);
-                return skin;
+        if (!minecraft.isSameThread()) {
+            minecraft.execute(() -> prefetch(playerId));
+            return;
+        }
+        
+        if (skinCache.containsKey(playerId) || loading.contains(playerId)) {
+            return;
+        }
+        
+        ClientPacketListener connection = minecraft.getConnection();
+        PlayerInfo playerInfo = connection != null ? connection.getPlayerInfo(playerId) : null;
+        if (playerInfo == null) {
+            return;
+        }
+        
+        loading.add(playerId);
+        minecraft.getSkinManager().getOrLoad(playerInfo.getProfile()).whenCompleteAsync((skin, error) -> {
+            // Dropped by a logout while loading
+            if (!loading.remove(playerId)) {
+                return;
             }
+            
+            if (error != null) {
+                CutScenesLib.LOGGER.warn("Failed to load skin for {}", playerId, error);
+                skin = DefaultPlayerSkin.get(playerId);
+            }
+            
+            CachedSkin previous = skinCache.put(playerId, new CachedSkin(skin.texture(), skin.textureUrl()));
+            if (previous != null && !Objects.equals(previous.hash(), skin.textureUrl())) {
+                release(previous);
+            }
+        }, minecraft);
+    }
+    
+    /**
+     * Drop players who left, and skins that changed since they were cached
+     * (called every client tick)
+     */
+    public void tick() {
+        if (--ticksUntilSweep > 0) {
+            return;
+        }
+        ticksUntilSweep = SWEEP_INTERVAL;
+        
+        ClientPacketListener connection = Minecraft.getInstance().getConnection();
+        if (connection == null) {
+            return;
         }
         
-        // Fall back to default skin
-        ResourceLocation defaultSkin = DefaultPlayerSkin.get(playerId);
-        skinCache.put(playerId, defaultSkin);
-        return defaultSkin;
+        Iterator<Map.Entry<UUID, CachedSkin>> iterator = skinCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, CachedSkin> entry = iterator.next();
+            PlayerInfo playerInfo = connection.getPlayerInfo(entry.getKey());
+            PlayerSkin current = playerInfo != null ? playerInfo.getSkin() : null;
+            
+            if (current == null || !Objects.equals(current.textureUrl(), entry.getValue().hash())) {
+                release(entry.getValue());
+                iterator.remove();
+            }
+        }
     }
     
     /**
@@ -95,54 +213,128 @@ public class SkinTextureMapper {
     }
     
     /**
-     * Render a player model with skin texture
+     * Get the skin texture for an entity, with the cutscene's skin zones applied
+     * 
+     * @param cutscene The cutscene being played
+     * @param entityId The entity showing the skin
+     * @param skinOwner The player whose skin to show
+     * @return The composited texture, or the raw skin if the entity has no
+     *         zones or the composite isn't ready yet
+     */
+    public ResourceLocation getSkinForEntity(Cutscene cutscene, String entityId, UUID skinOwner) {
+        ResourceLocation skinTexture = getPlayerSkin(skinOwner);
+        
+        SkinMapping mapping = cutscene.getSkinMapping();
+        if (mapping == null || !mapping.isEnabled()) {
+            return skinTexture;
+        }
+        
+        return compositor.getComposite(skinTexture, null, getZones(mapping, entityId), skinTexture);
+    }
+    
+    /**
+     * Check whether an entity's skin is ready to show, starting any loading
+     * or compositing it still needs
+     * 
+     * Used to load skins before a cutscene starts. A skin that can't be
+     * loaded (the owner isn't online) counts as ready, since the default
+     * skin is shown instead.
+     * 
+     * @param cutscene The cutscene about to be played
+     * @param entityId The entity showing the skin
+     * @param skinOwner The player whose skin to show
+     * @return true once {@link #getSkinForEntity} returns the final texture
      */
-    private void renderPlayerModel(GuiGraphics graphics, ResourceLocation skinTexture) {
-        // Render head
-        // In Minecraft, the head texture is at (8, 8) to (16, 16) on a 64x64 skin
-        // We'll render it as a simple textured quad
+    public boolean isSkinReady(Cutscene cutscene, String entityId, UUID skinOwner) {
+        prefetch(skinOwner);
+        if (loading.contains(skinOwner)) {
+            return false;
+        }
         
-        // For a full implementation, you would:
-        // 1. Bind the skin texture
-        // 2. Render a 3D cube with proper UV mapping
-        // 3. Apply transformations for animation
+        SkinMapping mapping = cutscene.getSkinMapping();
+        if (mapping == null || !mapping.isEnabled()) {
+            return true;
+        }
         
-        // Placeholder: render colored rectangles
-        graphics.fill(-4, -16, 4, -8, 0xFFFFDDDD); // Head
-        graphics.fill(-4, -8, 4, 8, 0xFFAAAAFF);   // Body
-        graphics.fill(-6, -8, -4, 8, 0xFF8888FF);  // Left arm
-        graphics.fill(4, -8, 6, 8, 0xFF8888FF);    // Right arm
-        graphics.fill(-2, 8, 0, 16, 0xFF6666FF);   // Left leg
-        graphics.fill(0, 8, 2, 16, 0xFF6666FF);    // Right leg
+        SkinCompositor.ZoneSet zones = getZones(mapping, entityId);
+        ResourceLocation skinTexture = getPlayerSkin(skinOwner);
+        return zones.isEmpty() || compositor.getComposite(skinTexture, null, zones, skinTexture) != skinTexture;
+    }
+    
+    /**
+     * Get the zones of a skin mapping that apply to an entity
+     */
+    private SkinCompositor.ZoneSet getZones(SkinMapping mapping, String entityId) {
+        return zonesByEntity
+                .computeIfAbsent(mapping, m -> new HashMap<>())
+                .computeIfAbsent(entityId, id -> {
+                    List<SkinMapping.SkinZone> entityZones = new ArrayList<>();
+                    for (SkinMapping.SkinZone zone : mapping.getZones()) {
+                        if (zone.getEntityId() == null || zone.getEntityId().equals(id)) {
+                            entityZones.add(zone);
+                        }
+                    }
+                    return SkinCompositor.ZoneSet.of(entityZones);
+                });
     }
     
     /**
-     * Render a generic model with skin texture
+     * Render a model with a player's skin
+     * 
+     * @param poseStack The pose at the actor's feet, in blocks
+     * @param bufferSource Buffers to draw into
+     * @param model The model name (e.g., "player")
+     * @param skinOwner The player whose skin to show
+     * @param packedLight The light to draw with
      */
-    private void renderGenericModel(GuiGraphics graphics, ResourceLocation skinTexture) {
-        // Placeholder implementation
-        graphics.fill(-5, -5, 5, 5, 0xFFCCCCCC);
+    public void renderWithPlayerSkin(PoseStack poseStack, MultiBufferSource bufferSource, String model, UUID skinOwner, int packedLight) {
+        renderWithSkinTexture(poseStack, bufferSource, model, getPlayerSkin(skinOwner), packedLight);
+    }
+    
+    /**
+     * Render a model with an already resolved skin texture
+     * 
+     * @param poseStack The pose at the actor's feet, in blocks
+     * @param bufferSource Buffers to draw into
+     * @param model The model name (e.g., "player")
+     * @param skinTexture The skin texture to show
+     * @param packedLight The light to draw with
+     */
+    public void renderWithSkinTexture(PoseStack poseStack, MultiBufferSource bufferSource, String model, ResourceLocation skinTexture, int packedLight) {
+        if (playerModel == null) {
+            playerModel = new PlayerModel<>(Minecraft.getInstance().getEntityModels().bakeLayer(ModelLayers.PLAYER), false);
+        }
+        
+        VertexConsumer buffer = bufferSource.getBuffer(playerModel.renderType(skinTexture));
+        
+        poseStack.pushPose();
+        if ("player".equals(model)) {
+            // Model parts are y-down and 24 pixels above the feet, like LivingEntityRenderer
+            poseStack.scale(-1.0f, -1.0f, 1.0f);
+            poseStack.translate(0.0f, -1.501f, 0.0f);
+            playerModel.renderToBuffer(poseStack, buffer, packedLight, OverlayTexture.NO_OVERLAY);
+        } else {
+            // Generic models are the placeholder cube (centred on the pivot), wearing the skin's head
+            poseStack.scale(-2.0f, -2.0f, 2.0f);
+            poseStack.translate(0.0f, 0.25f, 0.0f);
+            playerModel.head.render(poseStack, buffer, packedLight, OverlayTexture.NO_OVERLAY);
+        }
+        poseStack.popPose();
     }
     
     /**
      * Apply skin mapping to a specific zone
      * 
-     * This maps a region of the player's skin texture to a region on the model
+     * This maps a region of the player's skin texture to a region on the model.
+     * The composite is built off the render thread and cached, so this returns
+     * the raw skin until it is ready.
      * 
      * @param zone The skin zone configuration
      * @param skinTexture The player's skin texture
-     * @return A modified texture with the skin applied
+     * @return A texture with the skin region applied
      */
     public ResourceLocation applySkinMapping(SkinMapping.SkinZone zone, ResourceLocation skinTexture) {
-        // TODO: Implement actual texture manipulation
-        // This would involve:
-        // 1. Loading the skin texture as a NativeImage
-        // 2. Extracting the specified UV region
-        // 3. Creating a new texture with the skin region applied
-        // 4. Registering it with the texture manager
-        
-        CutScenesLib.LOGGER.debug("Applying skin mapping for zone: {}", zone.getName());
-        return skinTexture;
+        return compositor.getComposite(skinTexture, null, SkinCompositor.ZoneSet.of(List.of(zone)), skinTexture);
     }
     
     /**
@@ -151,6 +343,8 @@ public class SkinTextureMapper {
      */
     public void clearCache() {
         skinCache.clear();
+        loading.clear();
+        compositor.clear();
         CutScenesLib.LOGGER.debug("Skin cache cleared");
     }
     
@@ -160,6 +354,29 @@ public class SkinTextureMapper {
      * @param playerId The player's UUID
      */
     public void removeCached(UUID playerId) {
-        skinCache.remove(playerId);
+        loading.remove(playerId);
+        CachedSkin cached = skinCache.remove(playerId);
+        if (cached != null) {
+            release(cached);
+        }
+    }
+    
+    /**
+     * Release the composites made from a cached skin
+     */
+    private void release(CachedSkin skin) {
+        // Default skins are shared by many players, so their composites stay
+        if (skin.hash() != null) {
+            compositor.release(skin.texture());
+        }
+    }
+    
+    /**
+     * A loaded skin
+     * 
+     * @param texture The skin texture
+     * @param hash The skin's texture URL (which ends in its hash), or null for a default skin
+     */
+    private record CachedSkin(ResourceLocation texture, String hash) {
     }
 }